@@ -24,7 +24,7 @@ import java.io.Serializable;
  * 
  * @author Matthias.Hauswirth@usi.ch
  */
-public abstract class AbstractContextTree implements ContextTree, Serializable {
+public abstract class AbstractContextTree<T> implements ContextTree<T>, Serializable {
 
 	private static final long serialVersionUID = 201010317L;
 	
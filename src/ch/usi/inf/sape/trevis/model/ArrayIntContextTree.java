@@ -0,0 +1,221 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model;
+
+import java.util.Arrays;
+
+/**
+ * An IntContextTree stored in primitive arrays.
+ * 
+ * Each node is represented by an int handle; its parent, first child, next sibling, and label are stored in parallel int arrays. Labels
+ * are interned in a LabelDictionary, and nodes refer to them by label id. This needs a few bytes per node instead of an object (plus a
+ * child list) per node.
+ * 
+ * Nodes are added with addNode(), and they cannot be removed.
+ */
+public final class ArrayIntContextTree implements IntContextTree {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final String name;
+
+    private int size;
+    private int[] parents;
+    private int[] firstChildren;
+    private int[] lastChildren;
+    private int[] nextSiblings;
+    private int[] childCounts;
+    private int[] labelIds;
+
+    private final LabelDictionary labels;
+
+    /**
+     * Create a tree consisting of just a root with the given label, using the shared LabelDictionary.
+     */
+    public ArrayIntContextTree(final String name, final Object rootLabel) {
+        this(name, rootLabel, INITIAL_CAPACITY, LabelDictionary.getShared());
+    }
+
+    /**
+     * Create a tree consisting of just a root with the given label, with room for the given number of nodes.
+     */
+    public ArrayIntContextTree(final String name, final Object rootLabel, final int capacity, final LabelDictionary labels) {
+        this.name = name;
+        this.labels = labels;
+        final int initialCapacity = Math.max(1, capacity);
+        parents = new int[initialCapacity];
+        firstChildren = new int[initialCapacity];
+        lastChildren = new int[initialCapacity];
+        nextSiblings = new int[initialCapacity];
+        childCounts = new int[initialCapacity];
+        labelIds = new int[initialCapacity];
+        append(NONE, rootLabel);
+    }
+
+    /**
+     * Add a new node as the last child of the given parent.
+     * 
+     * @return the handle of the new node
+     */
+    public int addNode(final int parent, final Object label) {
+        if (parent < 0 || parent >= size) {
+            throw new IllegalArgumentException("No such node: " + parent);
+        }
+        return append(parent, label);
+    }
+
+    /**
+     * Get the child of the given parent with the given label, and add it if it does not exist yet.
+     * 
+     * @return the handle of the (possibly new) child
+     */
+    public int getOrAddChild(final int parent, final Object label) {
+        final int child = getChild(parent, label);
+        return child == NONE ? addNode(parent, label) : child;
+    }
+
+    /**
+     * Add a new node as the last child of the given parent, with the label with the given id in the LabelDictionary of this tree. This
+     * avoids looking up the label in the dictionary (e.g. when copying nodes from a tree with the same dictionary).
+     * 
+     * @return the handle of the new node
+     */
+    public int addNodeWithLabelId(final int parent, final int labelId) {
+        if (parent < 0 || parent >= size) {
+            throw new IllegalArgumentException("No such node: " + parent);
+        }
+        if (labelId < 0 || labelId >= labels.size()) {
+            throw new IllegalArgumentException("No such label id: " + labelId);
+        }
+        return appendWithLabelId(parent, labelId);
+    }
+
+    private int append(final int parent, final Object label) {
+        return appendWithLabelId(parent, labels.intern(label));
+    }
+
+    private int appendWithLabelId(final int parent, final int labelId) {
+        if (size == parents.length) {
+            grow();
+        }
+        final int node = size++;
+        parents[node] = parent;
+        firstChildren[node] = NONE;
+        lastChildren[node] = NONE;
+        nextSiblings[node] = NONE;
+        childCounts[node] = 0;
+        labelIds[node] = labelId;
+        if (parent != NONE) {
+            if (lastChildren[parent] == NONE) {
+                firstChildren[parent] = node;
+            } else {
+                nextSiblings[lastChildren[parent]] = node;
+            }
+            lastChildren[parent] = node;
+            childCounts[parent]++;
+        }
+        return node;
+    }
+
+    private void grow() {
+        final int capacity = Math.max(2 * parents.length, 1);
+        parents = Arrays.copyOf(parents, capacity);
+        firstChildren = Arrays.copyOf(firstChildren, capacity);
+        lastChildren = Arrays.copyOf(lastChildren, capacity);
+        nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+        childCounts = Arrays.copyOf(childCounts, capacity);
+        labelIds = Arrays.copyOf(labelIds, capacity);
+    }
+
+    public int getRoot() {
+        return 0;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Object getLabel(final int node) {
+        return labels.getLabel(labelIds[node]);
+    }
+
+    public LabelDictionary getLabelDictionary() {
+        return labels;
+    }
+
+    public int getLabelId(final int node) {
+        return labelIds[node];
+    }
+
+    public int getParent(final int node) {
+        return parents[node];
+    }
+
+    public int getFirstChild(final int node) {
+        return firstChildren[node];
+    }
+
+    public int getNextSibling(final int node) {
+        return nextSiblings[node];
+    }
+
+    public int getChildCount(final int node) {
+        return childCounts[node];
+    }
+
+    /**
+     * Takes time linear in index, because the children of a node form a linked list. To visit all children of a node, use
+     * getFirstChild() and getNextSibling() instead.
+     */
+    public int getChild(final int node, final int index) {
+        if (index < 0 || index >= childCounts[node]) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", child count: " + childCounts[node]);
+        }
+        int child = firstChildren[node];
+        for (int i = 0; i < index; i++) {
+            child = nextSiblings[child];
+        }
+        return child;
+    }
+
+    public int getChild(final int node, final Object label) {
+        final int id = labels.getId(label);
+        if (id < 0) {
+            return NONE;
+        }
+        for (int child = firstChildren[node]; child != NONE; child = nextSiblings[child]) {
+            if (labelIds[child] == id) {
+                return child;
+            }
+        }
+        return NONE;
+    }
+
+    public int indexOfChild(final int node, final int child) {
+        int index = 0;
+        for (int c = firstChildren[node]; c != NONE; c = nextSiblings[c]) {
+            if (c == child) {
+                return index;
+            }
+            index++;
+        }
+        return -1;
+    }
+
+    public boolean isRoot(final int node) {
+        return parents[node] == NONE;
+    }
+
+}
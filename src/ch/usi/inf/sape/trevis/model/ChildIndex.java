@@ -0,0 +1,104 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model;
+
+/**
+ * A ChildIndex maps the labels of the children of a node to the positions of those children.
+ * 
+ * It is an open addressing hash table (using the equals() and hashCode() methods of the labels), without an object per entry. It is
+ * meant for nodes with many children: below THRESHOLD children, a linear scan over the children is just as fast, and needs no memory.
+ * 
+ * @see ch.usi.inf.sape.trevis.model.ContextTreeNode
+ */
+public final class ChildIndex {
+
+    /**
+     * The number of children above which it pays off to index the children of a node.
+     */
+    public static final int THRESHOLD = 8;
+
+    private Object[] labels;
+    private int[] positions;
+    private int size;
+    private int mask;
+
+    public ChildIndex(final int expectedSize) {
+        final int capacity = Integer.highestOneBit(Math.max(4, expectedSize)) << 2;
+        labels = new Object[capacity];
+        positions = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    private static int hash(final Object label) {
+        final int h = label.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Associate the given label with the given position (replacing any previous position of that label).
+     */
+    public void put(final Object label, final int position) {
+        if (2 * (size + 1) > labels.length) {
+            rehash(2 * labels.length);
+        }
+        int slot = hash(label) & mask;
+        while (labels[slot] != null) {
+            if (labels[slot].equals(label)) {
+                positions[slot] = position;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        labels[slot] = label;
+        positions[slot] = position;
+        size++;
+    }
+
+    /**
+     * @return the position associated with the given label, or -1 if there is none
+     */
+    public int get(final Object label) {
+        int slot = hash(label) & mask;
+        while (labels[slot] != null) {
+            if (labels[slot].equals(label)) {
+                return positions[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * @return the number of labels in this index
+     */
+    public int size() {
+        return size;
+    }
+
+    private void rehash(final int capacity) {
+        final Object[] oldLabels = labels;
+        final int[] oldPositions = positions;
+        labels = new Object[capacity];
+        positions = new int[capacity];
+        mask = capacity - 1;
+        for (int i = 0; i < oldLabels.length; i++) {
+            if (oldLabels[i] != null) {
+                int slot = hash(oldLabels[i]) & mask;
+                while (labels[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                labels[slot] = oldLabels[i];
+                positions[slot] = oldPositions[i];
+            }
+        }
+    }
+
+}
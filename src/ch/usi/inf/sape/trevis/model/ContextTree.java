@@ -10,6 +10,8 @@
  */
 package ch.usi.inf.sape.trevis.model;
 
+import java.util.Comparator;
+
 import ch.usi.inf.sape.trevis.model.attribute.HeightAttribute;
 
 /**
@@ -69,7 +71,18 @@ public interface ContextTree<T> {
     public abstract boolean isRoot(final T node);
 
     public default long getHeight(final T node) {
-        return new HeightAttribute(this).evaluate(node);
+        return HeightAttribute.computeHeight(this, node);
+    }
+
+    /**
+     * A tree that keeps the children of every node in a canonical order returns the comparator defining that order. Operations that need
+     * ordered children (like the ones in ContextTreeOperations) then use the children as they are, instead of copying and sorting them,
+     * if the comparator equals the one they would sort with.
+     * 
+     * @return the comparator the children of each node are ordered by, or null if the children are in no particular order
+     */
+    public default Comparator<T> getChildComparator() {
+        return null;
     }
     
 }
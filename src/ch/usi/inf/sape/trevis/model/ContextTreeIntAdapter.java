@@ -0,0 +1,155 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model;
+
+import java.util.Arrays;
+
+/**
+ * Makes a ContextTree usable as an IntContextTree.
+ * 
+ * The handles are the pre-order indices assigned by a NodeIndex, and the structure is captured in int arrays when the adapter is
+ * created, together with the ids of the labels in a LabelDictionary. Thus the adapter is a snapshot of the structure of the underlying
+ * tree. The children of all nodes are stored in one array (the children of each node in a contiguous range, in increasing order of
+ * their handles), so getChild(node, index) takes constant time, and indexOfChild logarithmic time. Use getNode() and indexOf() to
+ * convert between handles and nodes (e.g. to evaluate NodeAttributes of the underlying tree).
+ * 
+ * @see ch.usi.inf.sape.trevis.model.IntContextTreeAdapter
+ */
+public final class ContextTreeIntAdapter<T> implements IntContextTree {
+
+    private final ContextTree<T> tree;
+    private final NodeIndex<T> index;
+    // the children of node n are children[childOffsets[n]] to children[childOffsets[n + 1] - 1]
+    private final int[] childOffsets;
+    private final int[] children;
+    private final int[] nextSiblings;
+    private final int[] labelIds;
+    private final LabelDictionary labels;
+
+    public ContextTreeIntAdapter(final ContextTree<T> tree) {
+        this(tree, new NodeIndex<T>(tree), LabelDictionary.getShared());
+    }
+
+    public ContextTreeIntAdapter(final ContextTree<T> tree, final NodeIndex<T> index, final LabelDictionary labels) {
+        this.tree = tree;
+        this.index = index;
+        this.labels = labels;
+        final int size = index.size();
+        labelIds = new int[size];
+        childOffsets = new int[size + 1];
+        children = new int[Math.max(0, size - 1)];
+        nextSiblings = new int[size];
+        for (int i = 0; i < size; i++) {
+            labelIds[i] = labels.intern(tree.getLabel(index.getNode(i)));
+            nextSiblings[i] = NONE;
+        }
+        // count the children of each node (in childOffsets[parent + 1]), and sum up the counts to get the offsets
+        for (int i = 1; i < size; i++) {
+            childOffsets[index.getParentIndex(i) + 1]++;
+        }
+        for (int i = 0; i < size; i++) {
+            childOffsets[i + 1] += childOffsets[i];
+        }
+        // in pre-order, the children of a node appear in their original order
+        final int[] ends = Arrays.copyOf(childOffsets, size);
+        for (int i = 1; i < size; i++) {
+            final int parent = index.getParentIndex(i);
+            if (ends[parent] > childOffsets[parent]) {
+                nextSiblings[children[ends[parent] - 1]] = i;
+            }
+            children[ends[parent]++] = i;
+        }
+    }
+
+    public ContextTree<T> getContextTree() {
+        return tree;
+    }
+
+    /**
+     * @return the node of the underlying ContextTree for the given handle
+     */
+    public T getNode(final int node) {
+        return index.getNode(node);
+    }
+
+    /**
+     * @return the handle for the given node of the underlying ContextTree, or NONE
+     */
+    public int indexOf(final T node) {
+        return index.indexOf(node);
+    }
+
+    public int getRoot() {
+        return 0;
+    }
+
+    public String getName() {
+        return tree.getName();
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    public Object getLabel(final int node) {
+        return labels.getLabel(labelIds[node]);
+    }
+
+    public LabelDictionary getLabelDictionary() {
+        return labels;
+    }
+
+    public int getLabelId(final int node) {
+        return labelIds[node];
+    }
+
+    public int getParent(final int node) {
+        return index.getParentIndex(node);
+    }
+
+    public int getFirstChild(final int node) {
+        return childOffsets[node + 1] > childOffsets[node] ? children[childOffsets[node]] : NONE;
+    }
+
+    public int getNextSibling(final int node) {
+        return nextSiblings[node];
+    }
+
+    public int getChildCount(final int node) {
+        return childOffsets[node + 1] - childOffsets[node];
+    }
+
+    /**
+     * Takes constant time.
+     */
+    public int getChild(final int node, final int index) {
+        final int count = childOffsets[node + 1] - childOffsets[node];
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", child count: " + count);
+        }
+        return children[childOffsets[node] + index];
+    }
+
+    public int getChild(final int node, final Object label) {
+        final T child = tree.getChild(index.getNode(node), label);
+        return child == null ? NONE : index.indexOf(child);
+    }
+
+    public int indexOfChild(final int node, final int child) {
+        final int position = Arrays.binarySearch(children, childOffsets[node], childOffsets[node + 1], child);
+        return position < 0 ? -1 : position - childOffsets[node];
+    }
+
+    public boolean isRoot(final int node) {
+        return node == 0;
+    }
+
+}
@@ -0,0 +1,143 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A node of a NodeContextTree: a label, a parent, and an ordered list of children.
+ * 
+ * Looking up a child by label (and the index of a child) is a linear scan for nodes with few children. Once a node has more than
+ * ChildIndex.THRESHOLD children, a ChildIndex is built for it (when the child crossing the threshold is added), and the lookups become
+ * hash table lookups. The index is kept up to date when children are added afterwards.
+ * 
+ * Subclass this class to store the values (e.g. sample counts) your NodeAttributes extract.
+ * 
+ * @see ch.usi.inf.sape.trevis.model.NodeContextTree
+ */
+public class ContextTreeNode implements Serializable {
+
+    private static final long serialVersionUID = 201610171L;
+
+    private final Object label;
+    private ContextTreeNode parent;
+    private final ArrayList<ContextTreeNode> children;
+    private transient ChildIndex childIndex;
+
+    public ContextTreeNode(final Object label) {
+        this.label = label;
+        children = new ArrayList<ContextTreeNode>(0);
+    }
+
+    public final Object getLabel() {
+        return label;
+    }
+
+    public final ContextTreeNode getParent() {
+        return parent;
+    }
+
+    public final int getChildCount() {
+        return children.size();
+    }
+
+    public final ContextTreeNode getChild(final int index) {
+        return children.get(index);
+    }
+
+    /**
+     * @return an unmodifiable view of the children of this node
+     */
+    public final List<ContextTreeNode> getChildren() {
+        return Collections.unmodifiableList(children);
+    }
+
+    /**
+     * Find the child (if any) with a label equal to the given label.
+     * 
+     * @return the corresponding child, or null if no such child exists.
+     */
+    public final ContextTreeNode getChild(final Object label) {
+        final int index = indexOfLabel(label);
+        return index < 0 ? null : children.get(index);
+    }
+
+    /**
+     * @return the index of the given child, or -1 if it is not a child of this node
+     */
+    public final int indexOfChild(final ContextTreeNode child) {
+        if (child.parent != this) {
+            return -1;
+        }
+        return indexOfLabel(child.label);
+    }
+
+    private int indexOfLabel(final Object label) {
+        if (childIndex != null) {
+            return childIndex.get(label);
+        }
+        final int childCount = children.size();
+        for (int i = 0; i < childCount; i++) {
+            if (children.get(i).label.equals(label)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Build the ChildIndex, if this node has enough children. It is assigned only once it is complete, and lookups never build it, so
+     * several threads can look up children of the same node at the same time.
+     */
+    private void indexChildren() {
+        final int childCount = children.size();
+        if (childCount > ChildIndex.THRESHOLD) {
+            final ChildIndex index = new ChildIndex(childCount);
+            for (int i = 0; i < childCount; i++) {
+                index.put(children.get(i).label, i);
+            }
+            childIndex = index;
+        }
+    }
+
+    /**
+     * Add the given (parentless) node as the last child of this node.
+     * 
+     * @throws IllegalArgumentException
+     *             if the child already has a parent, or if this node already has a child with an equal label
+     */
+    public final void addChild(final ContextTreeNode child) {
+        if (child.parent != null) {
+            throw new IllegalArgumentException("Child already has a parent");
+        }
+        if (indexOfLabel(child.label) >= 0) {
+            throw new IllegalArgumentException("Duplicate child label: " + child.label);
+        }
+        child.parent = this;
+        children.add(child);
+        if (childIndex != null) {
+            childIndex.put(child.label, children.size() - 1);
+        } else {
+            indexChildren();
+        }
+    }
+
+    private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        indexChildren();
+    }
+
+}
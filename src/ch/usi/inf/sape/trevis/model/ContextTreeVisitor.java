@@ -0,0 +1,30 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model;
+
+/**
+ * A ContextTreeVisitor gets called for each node visited by a TreeCursor.
+ * 
+ * @see ch.usi.inf.sape.trevis.model.TreeCursor#accept(Object, TreeCursor.Order, ContextTreeVisitor)
+ */
+public interface ContextTreeVisitor<T> {
+
+    /**
+     * Visit the given node.
+     * 
+     * @param depth
+     *            the depth of the node, relative to the node where the walk started (which has depth 0)
+     * @return true to also visit the children of the node, false to skip them (ignored in post-order, where the children have already
+     *         been visited)
+     */
+    public abstract boolean visit(final T node, final int depth);
+
+}
@@ -0,0 +1,51 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+/**
+ * A growable long array stored outside the Java heap, in pages of direct ByteBuffers.
+ * Growing allocates new pages, it never copies existing ones.
+ */
+final class DirectLongArray {
+
+    private static final int PAGE_BITS = 16;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private LongBuffer[] pages = new LongBuffer[4];
+    private int pageCount;
+
+    public long get(final int index) {
+        return pages[index >>> PAGE_BITS].get(index & PAGE_MASK);
+    }
+
+    public void set(final int index, final long value) {
+        pages[index >>> PAGE_BITS].put(index & PAGE_MASK, value);
+    }
+
+    /**
+     * Make sure the indices 0 to capacity-1 can be accessed.
+     */
+    public void ensureCapacity(final int capacity) {
+        while ((long) pageCount * PAGE_SIZE < capacity) {
+            if (pageCount == pages.length) {
+                pages = Arrays.copyOf(pages, 2 * pages.length);
+            }
+            pages[pageCount++] = ByteBuffer.allocateDirect(PAGE_SIZE * 8).order(ByteOrder.nativeOrder()).asLongBuffer();
+        }
+    }
+
+}
@@ -0,0 +1,334 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * An immutable snapshot of a ContextTree, stored in arrays in pre-order.
+ *
+ * The nodes are the nodes of the original tree (so all NodeAttributes of the original tree still work), but the structure is captured
+ * in arrays when the snapshot is created. Each node has a position (its pre-order index), and the subtree of a node occupies the
+ * contiguous range of positions from getPosition(node) to getPosition(node)+getSubtreeSize(node)-1. Thus descendant counts and ancestor
+ * checks take constant time, and walking a subtree is a sequential scan over an array.
+ *
+ * The children of each node are kept in their original order, or sorted by a given comparator. A tree with sorted children declares
+ * its comparator with getChildComparator(), so operations sorting children by the same comparator can use them without sorting. (The
+ * positions remain the pre-order positions of the original tree.)
+ *
+ * Changes to the original tree after the snapshot has been taken are not reflected in the snapshot.
+ *
+ * @see ch.usi.inf.sape.trevis.model.operations.ContextTreeOperations#freeze(ContextTree)
+ * @see ch.usi.inf.sape.trevis.model.operations.ContextTreeOperations#freeze(ContextTree, Comparator)
+ */
+public final class FrozenContextTree<T> implements ContextTree<T>, RandomAccessContextTree {
+
+    private final String name;
+    private final NodeIndex<T> index;
+    private final Object[] labels;
+    private final int[] subtreeSizes;
+    private final int[] childCounts;
+    /**
+     * The children of the node at position p are at positions childPositions[childStarts[p]] ...
+     * childPositions[childStarts[p]+childCounts[p]-1].
+     */
+    private final int[] childStarts;
+    private final int[] childPositions;
+    private final Comparator<T> childComparator;
+
+    /**
+     * Take a snapshot of the given tree, keeping the children in their original order.
+     */
+    public FrozenContextTree(final ContextTree<T> tree) {
+        this(tree, null);
+    }
+
+    /**
+     * Take a snapshot of the given tree, with the children of each node sorted by the given comparator.
+     *
+     * @param childComparator
+     *            the comparator to sort children by, or null to keep the original order
+     */
+    public FrozenContextTree(final ContextTree<T> tree, final Comparator<T> childComparator) {
+        this.childComparator = childComparator;
+        name = tree.getName();
+        index = new NodeIndex<T>(tree);
+        final int size = index.size();
+        labels = new Object[size];
+        subtreeSizes = new int[size];
+        childCounts = new int[size];
+        childStarts = new int[size];
+        childPositions = new int[Math.max(0, size - 1)];
+        for (int p = 0; p < size; p++) {
+            labels[p] = tree.getLabel(index.getNode(p));
+            subtreeSizes[p] = 1;
+            if (p > 0) {
+                childCounts[index.getParentIndex(p)]++;
+            }
+        }
+        for (int p = size - 1; p > 0; p--) {
+            subtreeSizes[index.getParentIndex(p)] += subtreeSizes[p];
+        }
+        int start = 0;
+        for (int p = 0; p < size; p++) {
+            childStarts[p] = start;
+            start += childCounts[p];
+        }
+        // children appear in pre-order in their original order
+        final int[] filled = new int[size];
+        for (int p = 1; p < size; p++) {
+            final int parent = index.getParentIndex(p);
+            childPositions[childStarts[parent] + filled[parent]++] = p;
+        }
+        if (childComparator != null) {
+            sortChildren();
+        }
+    }
+
+    private void sortChildren() {
+        final Comparator<Integer> byNode = new Comparator<Integer>() {
+            public int compare(final Integer position1, final Integer position2) {
+                return childComparator.compare(index.getNode(position1), index.getNode(position2));
+            }
+        };
+        for (int p = 0; p < childCounts.length; p++) {
+            if (childCounts[p] > 1) {
+                final Integer[] children = new Integer[childCounts[p]];
+                for (int i = 0; i < children.length; i++) {
+                    children[i] = childPositions[childStarts[p] + i];
+                }
+                Arrays.sort(children, byNode);
+                for (int i = 0; i < children.length; i++) {
+                    childPositions[childStarts[p] + i] = children[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of nodes
+     */
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * @return the pre-order position of the given node, or -1 if it is not part of this tree
+     */
+    public int getPosition(final T node) {
+        return index.indexOf(node);
+    }
+
+    /**
+     * @return the node at the given pre-order position
+     */
+    public T getNode(final int position) {
+        return index.getNode(position);
+    }
+
+    private int position(final T node) {
+        final int position = index.indexOf(node);
+        if (position < 0) {
+            throw new IllegalArgumentException("Node is not part of this tree: " + node);
+        }
+        return position;
+    }
+
+    /**
+     * @return the number of nodes in the subtree rooted at the given node (including the node itself)
+     */
+    public int getSubtreeSize(final T node) {
+        return subtreeSizes[position(node)];
+    }
+
+    /**
+     * @return the number of descendants of the given node
+     */
+    public int getDescendantCount(final T node) {
+        return subtreeSizes[position(node)] - 1;
+    }
+
+    /**
+     * @return true if ancestor is a proper ancestor of node
+     */
+    public boolean isAncestor(final T ancestor, final T node) {
+        final int a = position(ancestor);
+        final int n = position(node);
+        return a < n && n < a + subtreeSizes[a];
+    }
+
+    /**
+     * @return the nodes of the subtree rooted at the given node, in pre-order
+     */
+    public Iterable<T> subtree(final T node) {
+        final int start = position(node);
+        return range(start, start + subtreeSizes[start]);
+    }
+
+    private Iterable<T> range(final int start, final int end) {
+        return new Iterable<T>() {
+            public Iterator<T> iterator() {
+                return new Iterator<T>() {
+                    private int next = start;
+
+                    public boolean hasNext() {
+                        return next < end;
+                    }
+
+                    public T next() {
+                        if (next >= end) {
+                            throw new NoSuchElementException();
+                        }
+                        return index.getNode(next++);
+                    }
+                };
+            }
+        };
+    }
+
+    public T getRoot() {
+        return index.getNode(0);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Object getLabel(final T node) {
+        return labels[position(node)];
+    }
+
+    public T getParent(final T node) {
+        final int parent = index.getParentIndex(position(node));
+        return parent < 0 ? null : index.getNode(parent);
+    }
+
+    public Iterable<T> iterable(final T node) {
+        final int p = position(node);
+        final int start = childStarts[p];
+        final int end = start + childCounts[p];
+        return new Iterable<T>() {
+            public Iterator<T> iterator() {
+                return new Iterator<T>() {
+                    private int next = start;
+
+                    public boolean hasNext() {
+                        return next < end;
+                    }
+
+                    public T next() {
+                        if (next >= end) {
+                            throw new NoSuchElementException();
+                        }
+                        return index.getNode(childPositions[next++]);
+                    }
+                };
+            }
+        };
+    }
+
+    public int getChildCount(final T node) {
+        return childCounts[position(node)];
+    }
+
+    public T getChild(final T node, final int i) {
+        final int p = position(node);
+        if (i < 0 || i >= childCounts[p]) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", child count: " + childCounts[p]);
+        }
+        return index.getNode(childPositions[childStarts[p] + i]);
+    }
+
+    /**
+     * @return an unmodifiable view of the children of the given node (sorted, if this tree has a child comparator)
+     */
+    public List<T> getChildren(final T node) {
+        final int p = position(node);
+        final int start = childStarts[p];
+        final int count = childCounts[p];
+        return new ChildList(start, count);
+    }
+
+    private final class ChildList extends AbstractList<T> implements RandomAccess {
+
+        private final int start;
+        private final int count;
+
+        private ChildList(final int start, final int count) {
+            this.start = start;
+            this.count = count;
+        }
+
+        public T get(final int i) {
+            if (i < 0 || i >= count) {
+                throw new IndexOutOfBoundsException("Index: " + i + ", child count: " + count);
+            }
+            return index.getNode(childPositions[start + i]);
+        }
+
+        public int size() {
+            return count;
+        }
+
+    }
+
+    public T getChild(final T node, final Object label) {
+        final int p = position(node);
+        final int end = childStarts[p] + childCounts[p];
+        for (int c = childStarts[p]; c < end; c++) {
+            if (labels[childPositions[c]].equals(label)) {
+                return index.getNode(childPositions[c]);
+            }
+        }
+        return null;
+    }
+
+    public int indexOfChild(final T node, final T child) {
+        final int c = index.indexOf(child);
+        if (c <= 0 || index.getParentIndex(c) != position(node)) {
+            return -1;
+        }
+        final int start = childStarts[index.getParentIndex(c)];
+        for (int i = 0; ; i++) {
+            if (childPositions[start + i] == c) {
+                return i;
+            }
+        }
+    }
+
+    public boolean isRoot(final T node) {
+        return position(node) == 0;
+    }
+
+    public Comparator<T> getChildComparator() {
+        return childComparator;
+    }
+
+    public long getHeight(final T node) {
+        final int start = position(node);
+        final int end = start + subtreeSizes[start];
+        // depths relative to the given node, computed in one sequential scan over its subtree
+        final int[] depths = new int[end - start];
+        int height = 0;
+        for (int p = start; p < end; p++) {
+            depths[p - start] = p == start ? 1 : depths[index.getParentIndex(p) - start] + 1;
+            height = Math.max(height, depths[p - start]);
+        }
+        return height;
+    }
+
+}
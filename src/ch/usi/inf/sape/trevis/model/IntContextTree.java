@@ -0,0 +1,95 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model;
+
+/**
+ * An IntContextTree is a ContextTree whose nodes are int handles instead of objects.
+ * 
+ * It has the same properties as a ContextTree (a single root, sibling labels differ), but it allows implementations to store the tree
+ * in primitive arrays, without an object per node. Handles are dense (0 to size()-1), so per-node values can be kept in primitive arrays
+ * indexed by handle.
+ * 
+ * Use IntContextTreeAdapter to use an IntContextTree where a ContextTree is expected (e.g. with NodeAttributes), and
+ * ContextTreeIntAdapter to use a ContextTree where an IntContextTree is expected. IntContextTreeOperations merges IntContextTrees
+ * directly, without boxing their handles.
+ * 
+ * @see ch.usi.inf.sape.trevis.model.ContextTree
+ * @see ch.usi.inf.sape.trevis.model.ArrayIntContextTree
+ * @see ch.usi.inf.sape.trevis.model.operations.IntContextTreeOperations
+ */
+public interface IntContextTree {
+
+    /**
+     * The handle used to denote "no node" (e.g. the parent of the root, or the next sibling of the last child).
+     */
+    public static final int NONE = -1;
+
+    public abstract int getRoot();
+
+    /**
+     * Get the name (the string that briefly describes this tree).
+     */
+    public abstract String getName();
+
+    /**
+     * @return the number of nodes (all handles are in the range 0 to size()-1)
+     */
+    public abstract int size();
+
+    public abstract Object getLabel(final int node);
+
+    /**
+     * @return the dictionary in which the labels of this tree are interned
+     */
+    public abstract LabelDictionary getLabelDictionary();
+
+    /**
+     * @return the id of the label of the given node in the dictionary of this tree
+     */
+    public abstract int getLabelId(final int node);
+
+    /**
+     * @return the parent of the given node, or NONE if the node is the root
+     */
+    public abstract int getParent(final int node);
+
+    /**
+     * @return the first child of the given node, or NONE if the node is a leaf
+     */
+    public abstract int getFirstChild(final int node);
+
+    /**
+     * @return the next sibling of the given node, or NONE if the node is the last child of its parent
+     */
+    public abstract int getNextSibling(final int node);
+
+    public abstract int getChildCount(final int node);
+
+    /**
+     * Depending on the implementation, this may take time linear in index (e.g. in an ArrayIntContextTree, whose children form linked
+     * lists). To visit all children of a node, use getFirstChild() and getNextSibling() instead.
+     */
+    public abstract int getChild(final int node, final int index);
+
+    /**
+     * Find the child (if any) that contains the given label (a label equal to the given label).
+     * 
+     * @param label
+     *            the label we look for
+     * @return the corresponding child, or NONE if no such child exists.
+     */
+    public abstract int getChild(final int node, final Object label);
+
+    public abstract int indexOfChild(final int node, final int child);
+
+    public abstract boolean isRoot(final int node);
+
+}
@@ -0,0 +1,114 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Makes an IntContextTree usable as a ContextTree, e.g. to evaluate NodeAttributes on it.
+ * 
+ * The nodes of this ContextTree are the (boxed) handles of the IntContextTree. No per-node objects are kept: the Integers are created on
+ * demand and are short-lived. To merge IntContextTrees, use IntContextTreeOperations, which works on the handles directly, instead of
+ * using ContextTreeOperations on adapters.
+ * 
+ * @see ch.usi.inf.sape.trevis.model.ContextTreeIntAdapter
+ * @see ch.usi.inf.sape.trevis.model.operations.IntContextTreeOperations
+ */
+public final class IntContextTreeAdapter implements LabelIdContextTree<Integer> {
+
+    private final IntContextTree tree;
+
+    public IntContextTreeAdapter(final IntContextTree tree) {
+        this.tree = tree;
+    }
+
+    public IntContextTree getIntContextTree() {
+        return tree;
+    }
+
+    private static Integer box(final int node) {
+        return node == IntContextTree.NONE ? null : Integer.valueOf(node);
+    }
+
+    public Integer getRoot() {
+        return box(tree.getRoot());
+    }
+
+    public String getName() {
+        return tree.getName();
+    }
+
+    public Object getLabel(final Integer node) {
+        return tree.getLabel(node);
+    }
+
+    public LabelDictionary getLabelDictionary() {
+        return tree.getLabelDictionary();
+    }
+
+    public int getLabelId(final Integer node) {
+        return tree.getLabelId(node);
+    }
+
+    public Integer getParent(final Integer node) {
+        return box(tree.getParent(node));
+    }
+
+    public Iterable<Integer> iterable(final Integer node) {
+        final int parent = node;
+        return new Iterable<Integer>() {
+            public Iterator<Integer> iterator() {
+                return new Iterator<Integer>() {
+                    private int next = tree.getFirstChild(parent);
+
+                    public boolean hasNext() {
+                        return next != IntContextTree.NONE;
+                    }
+
+                    public Integer next() {
+                        if (next == IntContextTree.NONE) {
+                            throw new NoSuchElementException();
+                        }
+                        final int current = next;
+                        next = tree.getNextSibling(current);
+                        return current;
+                    }
+                };
+            }
+        };
+    }
+
+    public int getChildCount(final Integer node) {
+        return tree.getChildCount(node);
+    }
+
+    /**
+     * Takes as long as getChild(node, index) of the IntContextTree (possibly time linear in index). To visit all children of a node, use
+     * iterable(node) instead.
+     */
+    public Integer getChild(final Integer node, final int index) {
+        return tree.getChild(node.intValue(), index);
+    }
+
+    public Integer getChild(final Integer node, final Object label) {
+        return box(tree.getChild(node.intValue(), label));
+    }
+
+    public int indexOfChild(final Integer node, final Integer child) {
+        return tree.indexOfChild(node, child);
+    }
+
+    public boolean isRoot(final Integer node) {
+        return tree.isRoot(node);
+    }
+
+}
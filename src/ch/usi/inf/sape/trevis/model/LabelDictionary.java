@@ -0,0 +1,96 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A LabelDictionary interns labels: it assigns each distinct label (according to equals()) a dense int id, starting at 0.
+ * 
+ * Trees that store label ids instead of labels (see LabelIdContextTree) can compare and hash labels by id, which is much cheaper than
+ * comparing e.g. long method signatures. To compare labels across trees by id, the trees have to share the same dictionary; by default
+ * they all use the shared dictionary returned by getShared().
+ * 
+ * Ids are never reused or removed. A LabelDictionary is thread-safe; looking up ids and labels does not lock.
+ */
+public final class LabelDictionary {
+
+    private static final LabelDictionary SHARED = new LabelDictionary();
+
+    private final ConcurrentHashMap<Object, Integer> ids;
+    private volatile Object[] labels;
+    private int size;
+
+    public LabelDictionary() {
+        ids = new ConcurrentHashMap<Object, Integer>();
+        labels = new Object[64];
+    }
+
+    /**
+     * @return the dictionary shared by all trees that are not given a dictionary of their own
+     */
+    public static LabelDictionary getShared() {
+        return SHARED;
+    }
+
+    /**
+     * @return the id of the given label, assigning a new id if the label is not in the dictionary yet
+     */
+    public int intern(final Object label) {
+        final Integer id = ids.get(label);
+        if (id != null) {
+            return id;
+        }
+        return add(label);
+    }
+
+    private synchronized int add(final Object label) {
+        final Integer id = ids.get(label);
+        if (id != null) {
+            return id;
+        }
+        final int newId = size;
+        Object[] array = labels;
+        if (newId == array.length) {
+            array = Arrays.copyOf(array, 2 * array.length);
+        }
+        array[newId] = label;
+        // publish the label before its id, so whoever gets the id can also get the label
+        labels = array;
+        size++;
+        ids.put(label, newId);
+        return newId;
+    }
+
+    /**
+     * @return the id of the given label, or -1 if the label is not in the dictionary
+     */
+    public int getId(final Object label) {
+        final Integer id = ids.get(label);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * @return the label with the given id
+     */
+    public Object getLabel(final int id) {
+        return labels[id];
+    }
+
+    /**
+     * @return the number of labels in the dictionary
+     */
+    public int size() {
+        return ids.size();
+    }
+
+}
@@ -0,0 +1,30 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model;
+
+/**
+ * A ContextTree whose labels are interned in a LabelDictionary.
+ * 
+ * For nodes of trees that share the same dictionary, getLabel(a).equals(getLabel(b)) if and only if getLabelId(a)==getLabelId(b). This
+ * allows labels to be compared and hashed as ints (e.g. when matching the children of two trees).
+ * 
+ * @see ch.usi.inf.sape.trevis.model.LabelDictionary
+ */
+public interface LabelIdContextTree<T> extends ContextTree<T> {
+
+    public abstract LabelDictionary getLabelDictionary();
+
+    /**
+     * @return the id of the label of the given node in the dictionary of this tree
+     */
+    public abstract int getLabelId(final T node);
+
+}
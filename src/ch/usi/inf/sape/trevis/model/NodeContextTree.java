@@ -0,0 +1,74 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model;
+
+import java.util.List;
+
+/**
+ * A ContextTree consisting of ContextTreeNodes.
+ * 
+ * Finding a child by label (getChild(node, label)) and finding the index of a child (indexOfChild) use the hashed ChildIndex of nodes
+ * with many children, so they stay cheap for high-fanout nodes (e.g. while ingesting samples into a live tree).
+ * 
+ * @see ch.usi.inf.sape.trevis.model.ContextTreeNode
+ */
+public class NodeContextTree<N extends ContextTreeNode> extends AbstractContextTree<N> implements RandomAccessContextTree {
+
+    private static final long serialVersionUID = 201610171L;
+
+    private final N root;
+
+    public NodeContextTree(final String name, final N root) {
+        setName(name);
+        this.root = root;
+    }
+
+    public N getRoot() {
+        return root;
+    }
+
+    public Object getLabel(final N node) {
+        return node.getLabel();
+    }
+
+    @SuppressWarnings("unchecked")
+    public N getParent(final N node) {
+        return (N) node.getParent();
+    }
+
+    @SuppressWarnings("unchecked")
+    public Iterable<N> iterable(final N node) {
+        return (List<N>) (List<?>) node.getChildren();
+    }
+
+    public int getChildCount(final N node) {
+        return node.getChildCount();
+    }
+
+    @SuppressWarnings("unchecked")
+    public N getChild(final N node, final int index) {
+        return (N) node.getChild(index);
+    }
+
+    @SuppressWarnings("unchecked")
+    public N getChild(final N node, final Object label) {
+        return (N) node.getChild(label);
+    }
+
+    public int indexOfChild(final N node, final N child) {
+        return node.indexOfChild(child);
+    }
+
+    public boolean isRoot(final N node) {
+        return node == root;
+    }
+
+}
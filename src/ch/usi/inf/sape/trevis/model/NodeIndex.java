@@ -0,0 +1,138 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model;
+
+import java.util.Arrays;
+
+/**
+ * A NodeIndex assigns a dense int index to every node of a (sub)tree of a ContextTree.
+ *
+ * The indices are assigned in pre-order, starting with 0 for the root of the indexed subtree. Thus a parent always has a smaller index
+ * than any of its descendants, and walking the indices backwards visits every node after all of its descendants. This allows
+ * per-node values to be stored in primitive arrays (columns) indexed by node, and to be computed bottom-up in a single loop.
+ *
+ * The index is built with a TreeCursor (no recursion), so it works for arbitrarily deep trees. It is a snapshot: if the tree changes, a new
+ * NodeIndex has to be built. Nodes are looked up using their equals() and hashCode() methods.
+ */
+public final class NodeIndex<T> {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private Object[] nodes;
+    private int[] parents;
+    private int size;
+
+    /**
+     * Open addressing hash table, mapping a node to its index. A slot contains index+1, or 0 if it is empty.
+     */
+    private int[] table;
+    private int mask;
+
+    /**
+     * Index all nodes of the given tree.
+     */
+    public NodeIndex(final ContextTree<T> tree) {
+        this(tree, tree.getRoot());
+    }
+
+    /**
+     * Index all nodes of the subtree starting at the given subtree root.
+     */
+    public NodeIndex(final ContextTree<T> tree, final T subtreeRoot) {
+        nodes = new Object[INITIAL_CAPACITY];
+        parents = new int[INITIAL_CAPACITY];
+        // in pre-order, the parent of a node at depth d is the last node visited at depth d-1
+        int[] lastIndexAtDepth = new int[INITIAL_CAPACITY];
+        final TreeCursor<T> cursor = new TreeCursor<T>(tree);
+        cursor.reset(subtreeRoot, TreeCursor.Order.PRE_ORDER);
+        while (cursor.next()) {
+            final int depth = cursor.getDepth();
+            final int index = add(cursor.getNode(), depth == 0 ? -1 : lastIndexAtDepth[depth - 1]);
+            if (depth == lastIndexAtDepth.length) {
+                lastIndexAtDepth = Arrays.copyOf(lastIndexAtDepth, 2 * depth);
+            }
+            lastIndexAtDepth[depth] = index;
+        }
+        buildTable();
+    }
+
+    private int add(final Object node, final int parent) {
+        if (size == nodes.length) {
+            nodes = Arrays.copyOf(nodes, 2 * size);
+            parents = Arrays.copyOf(parents, 2 * size);
+        }
+        nodes[size] = node;
+        parents[size] = parent;
+        return size++;
+    }
+
+    private void buildTable() {
+        final int capacity = Integer.highestOneBit(Math.max(2, size)) << 2;
+        table = new int[capacity];
+        mask = capacity - 1;
+        for (int i = 0; i < size; i++) {
+            int slot = hash(nodes[i]) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = i + 1;
+        }
+    }
+
+    private static int hash(final Object node) {
+        final int h = node.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * @return the number of indexed nodes
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the index of the given node, or -1 if the node is not part of the indexed (sub)tree
+     */
+    public int indexOf(final Object node) {
+        if (node == null) {
+            return -1;
+        }
+        int slot = hash(node) & mask;
+        while (true) {
+            final int entry = table[slot];
+            if (entry == 0) {
+                return -1;
+            }
+            final Object candidate = nodes[entry - 1];
+            if (candidate == node || candidate.equals(node)) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * @return the node with the given index
+     */
+    @SuppressWarnings("unchecked")
+    public T getNode(final int index) {
+        return (T) nodes[index];
+    }
+
+    /**
+     * @return the index of the parent of the node with the given index, or -1 for the root of the indexed (sub)tree
+     */
+    public int getParentIndex(final int index) {
+        return parents[index];
+    }
+
+}
@@ -0,0 +1,383 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import ch.usi.inf.sape.trevis.model.attribute.LongAttribute;
+
+/**
+ * A ContextTree that keeps its structure and its metrics outside the Java heap.
+ *
+ * The parent, first child, next sibling, and label id of each node, as well as a fixed set of long metric columns (e.g. sample counts),
+ * are stored in direct ByteBuffers. Labels are interned in a separate (on-heap) LabelDictionary. Thus the heap (and the work of the
+ * garbage collector) does not grow with the number of nodes.
+ *
+ * The nodes of this tree are small Node handles (a tree and an int index). They are created on demand and are not retained by the tree,
+ * so they are short-lived; two handles for the same node are equal.
+ *
+ * A node can be created detached (without a parent) and connected to its parent later. The root is the first node created.
+ *
+ * @see ch.usi.inf.sape.trevis.model.operations.OffHeapContextTreeFactory
+ */
+public final class OffHeapContextTree implements LabelIdContextTree<OffHeapContextTree.Node> {
+
+    private static final int NONE = -1;
+
+    private final String name;
+    private final String[] longColumnNames;
+
+    private int size;
+    private final DirectIntArray parents;
+    private final DirectIntArray firstChildren;
+    private final DirectIntArray lastChildren;
+    private final DirectIntArray nextSiblings;
+    private final DirectIntArray childCounts;
+    private final DirectIntArray labelIds;
+    private final DirectLongArray[] longColumns;
+
+    private final LabelDictionary labels;
+
+    /**
+     * Create a tree consisting of just a root with the given label.
+     *
+     * @param longColumnNames
+     *            the names of the long metric columns each node carries (all initially 0)
+     */
+    public OffHeapContextTree(final String name, final String[] longColumnNames, final Object rootLabel) {
+        this(name, longColumnNames, LabelDictionary.getShared());
+        createNode(rootLabel);
+    }
+
+    /**
+     * Create an empty tree, with its labels interned in the given dictionary. The first node created with createNode() becomes the root.
+     */
+    public OffHeapContextTree(final String name, final String[] longColumnNames, final LabelDictionary labels) {
+        this.name = name;
+        this.labels = labels;
+        this.longColumnNames = longColumnNames.clone();
+        parents = new DirectIntArray();
+        firstChildren = new DirectIntArray();
+        lastChildren = new DirectIntArray();
+        nextSiblings = new DirectIntArray();
+        childCounts = new DirectIntArray();
+        labelIds = new DirectIntArray();
+        longColumns = new DirectLongArray[longColumnNames.length];
+        for (int c = 0; c < longColumns.length; c++) {
+            longColumns[c] = new DirectLongArray();
+        }
+    }
+
+    /**
+     * Create a new node with the given label, without a parent. All its metrics are 0.
+     */
+    public Node createNode(final Object label) {
+        if (size == Integer.MAX_VALUE) {
+            throw new IllegalStateException("Tree is full");
+        }
+        final int node = size;
+        ensureCapacity(node + 1);
+        parents.set(node, NONE);
+        firstChildren.set(node, NONE);
+        lastChildren.set(node, NONE);
+        nextSiblings.set(node, NONE);
+        childCounts.set(node, 0);
+        labelIds.set(node, labels.intern(label));
+        for (final DirectLongArray column : longColumns) {
+            column.set(node, 0);
+        }
+        size++;
+        return new Node(this, node);
+    }
+
+    /**
+     * Create a new node with the given label as the last child of the given parent.
+     */
+    public Node addNode(final Node parent, final Object label) {
+        final Node child = createNode(label);
+        connect(parent, child);
+        return child;
+    }
+
+    /**
+     * Make the given (detached) child the last child of the given parent.
+     */
+    public void connect(final Node parent, final Node child) {
+        final int p = check(parent);
+        final int c = check(child);
+        if (parents.get(c) != NONE || c == 0) {
+            throw new IllegalArgumentException("Node already has a parent, or is the root: " + c);
+        }
+        parents.set(c, p);
+        final int last = lastChildren.get(p);
+        if (last == NONE) {
+            firstChildren.set(p, c);
+        } else {
+            nextSiblings.set(last, c);
+        }
+        lastChildren.set(p, c);
+        childCounts.set(p, childCounts.get(p) + 1);
+    }
+
+    private void ensureCapacity(final int capacity) {
+        parents.ensureCapacity(capacity);
+        firstChildren.ensureCapacity(capacity);
+        lastChildren.ensureCapacity(capacity);
+        nextSiblings.ensureCapacity(capacity);
+        childCounts.ensureCapacity(capacity);
+        labelIds.ensureCapacity(capacity);
+        for (final DirectLongArray column : longColumns) {
+            column.ensureCapacity(capacity);
+        }
+    }
+
+    private int check(final Node node) {
+        if (node.tree != this) {
+            throw new IllegalArgumentException("Node belongs to a different tree");
+        }
+        return node.index;
+    }
+
+    private Node node(final int index) {
+        return index == NONE ? null : new Node(this, index);
+    }
+
+    /**
+     * @return the number of nodes (including detached ones)
+     */
+    public int size() {
+        return size;
+    }
+
+    public int getLongColumnCount() {
+        return longColumns.length;
+    }
+
+    public String[] getLongColumnNames() {
+        return longColumnNames.clone();
+    }
+
+    public String getLongColumnName(final int column) {
+        return longColumnNames[column];
+    }
+
+    /**
+     * @return the index of the long column with the given name, or -1
+     */
+    public int indexOfLongColumn(final String columnName) {
+        for (int c = 0; c < longColumnNames.length; c++) {
+            if (longColumnNames[c].equals(columnName)) {
+                return c;
+            }
+        }
+        return -1;
+    }
+
+    public long getLong(final int column, final Node node) {
+        return longColumns[column].get(check(node));
+    }
+
+    public void setLong(final int column, final Node node, final long value) {
+        longColumns[column].set(check(node), value);
+    }
+
+    public void addToLong(final int column, final Node node, final long delta) {
+        final int n = check(node);
+        longColumns[column].set(n, longColumns[column].get(n) + delta);
+    }
+
+    /**
+     * @return a LongAttribute evaluating to the value of the given column of a node. The attribute can also be evaluated on the nodes
+     *         of other OffHeapContextTrees with the same columns (e.g. the result of a ContextTreeOperation).
+     */
+    public LongAttribute getLongAttribute(final int column) {
+        return new LongColumnAttribute(longColumnNames[column], column);
+    }
+
+    public Node getRoot() {
+        return size == 0 ? null : new Node(this, 0);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Object getLabel(final Node node) {
+        return labels.getLabel(labelIds.get(check(node)));
+    }
+
+    /**
+     * Change the label of the given node. The labels of siblings must remain different.
+     */
+    public void setLabel(final Node node, final Object label) {
+        labelIds.set(check(node), labels.intern(label));
+    }
+
+    public LabelDictionary getLabelDictionary() {
+        return labels;
+    }
+
+    public int getLabelId(final Node node) {
+        return labelIds.get(check(node));
+    }
+
+    public Node getParent(final Node node) {
+        return node(parents.get(check(node)));
+    }
+
+    public Iterable<Node> iterable(final Node node) {
+        final int parent = check(node);
+        return new Iterable<Node>() {
+            public Iterator<Node> iterator() {
+                return new Iterator<Node>() {
+                    private int next = firstChildren.get(parent);
+
+                    public boolean hasNext() {
+                        return next != NONE;
+                    }
+
+                    public Node next() {
+                        if (next == NONE) {
+                            throw new NoSuchElementException();
+                        }
+                        final int current = next;
+                        next = nextSiblings.get(current);
+                        return new Node(OffHeapContextTree.this, current);
+                    }
+                };
+            }
+        };
+    }
+
+    public int getChildCount(final Node node) {
+        return childCounts.get(check(node));
+    }
+
+    /**
+     * Takes time linear in index, because the children of a node form a linked list (which is why this is not a
+     * RandomAccessContextTree). To visit all children of a node, use iterable(node) instead.
+     */
+    public Node getChild(final Node node, final int index) {
+        final int parent = check(node);
+        if (index < 0 || index >= childCounts.get(parent)) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", child count: " + childCounts.get(parent));
+        }
+        int child = firstChildren.get(parent);
+        for (int i = 0; i < index; i++) {
+            child = nextSiblings.get(child);
+        }
+        return new Node(this, child);
+    }
+
+    public Node getChild(final Node node, final Object label) {
+        final int parent = check(node);
+        final int id = labels.getId(label);
+        if (id < 0) {
+            return null;
+        }
+        for (int child = firstChildren.get(parent); child != NONE; child = nextSiblings.get(child)) {
+            if (labelIds.get(child) == id) {
+                return new Node(this, child);
+            }
+        }
+        return null;
+    }
+
+    public int indexOfChild(final Node node, final Node child) {
+        final int c = check(child);
+        int index = 0;
+        for (int sibling = firstChildren.get(check(node)); sibling != NONE; sibling = nextSiblings.get(sibling)) {
+            if (sibling == c) {
+                return index;
+            }
+            index++;
+        }
+        return -1;
+    }
+
+    public boolean isRoot(final Node node) {
+        return check(node) == 0;
+    }
+
+
+    /**
+     * A handle for a node of an OffHeapContextTree.
+     */
+    public static final class Node {
+
+        private final OffHeapContextTree tree;
+        private final int index;
+
+        private Node(final OffHeapContextTree tree, final int index) {
+            this.tree = tree;
+            this.index = index;
+        }
+
+        public OffHeapContextTree getTree() {
+            return tree;
+        }
+
+        /**
+         * @return the index of this node in its tree (0 for the root)
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        public boolean equals(final Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Node)) {
+                return false;
+            }
+            final Node node = (Node) other;
+            return tree == node.tree && index == node.index;
+        }
+
+        public int hashCode() {
+            return 31 * System.identityHashCode(tree) + index;
+        }
+
+        public String toString() {
+            return tree.getLabel(this) + "#" + index;
+        }
+
+    }
+
+
+    private static final class LongColumnAttribute extends LongAttribute {
+
+        private final String name;
+        private final int column;
+
+        private LongColumnAttribute(final String name, final int column) {
+            this.name = name;
+            this.column = column;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getDescription() {
+            return name;
+        }
+
+        public long evaluate(final Object node) {
+            final Node n = (Node) node;
+            return n.tree.getLong(column, n);
+        }
+
+    }
+
+}
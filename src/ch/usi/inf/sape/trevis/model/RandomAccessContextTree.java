@@ -0,0 +1,23 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model;
+
+/**
+ * Marker interface for ContextTrees whose getChild(node, index) takes constant time (e.g. because the children are stored in arrays).
+ * 
+ * Generic algorithms (like TreeCursor) use getChild(node, index) to access the children of such trees, and iterable(node) for all other
+ * trees. This is the ContextTree equivalent of java.util.RandomAccess.
+ * 
+ * @see ch.usi.inf.sape.trevis.model.TreeCursor
+ */
+public interface RandomAccessContextTree {
+
+}
@@ -0,0 +1,272 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model;
+
+import java.util.Arrays;
+
+/**
+ * A TreeCursor walks a (sub)tree of a ContextTree in pre-order, post-order, or level-order.
+ * 
+ * It keeps the nodes still to be visited in an explicit stack (or queue), so it works for arbitrarily deep trees, and it does not
+ * recurse. A cursor can be reused for any number of walks; its arrays only grow, so walks don't allocate anything per node. (For trees
+ * that are not a RandomAccessContextTree, expanding a node with children allocates the one iterator of iterable(node).)
+ * 
+ * Use it either by pulling nodes:
+ * 
+ * <pre>
+ * cursor.reset(node, TreeCursor.Order.PRE_ORDER);
+ * while (cursor.next()) {
+ *     ... cursor.getNode() ... cursor.getDepth() ...
+ * }
+ * </pre>
+ * 
+ * or by passing a ContextTreeVisitor to accept(). A TreeCursor must not be used by multiple threads at the same time, and the tree must
+ * not change during a walk.
+ */
+public final class TreeCursor<T> {
+
+    public static enum Order {
+        /**
+         * Each node before its children, children in their order.
+         */
+        PRE_ORDER,
+        /**
+         * Each node after its children, children in their order.
+         */
+        POST_ORDER,
+        /**
+         * Breadth-first: all nodes of a depth before the nodes of the next depth.
+         */
+        LEVEL_ORDER
+    }
+
+    private final ContextTree<T> tree;
+    private final boolean randomAccess;
+
+    private Order order;
+    private T node;
+    private int depth;
+    private boolean expand;
+
+    // stack (pre- and post-order) or circular queue (level-order) of nodes to be visited
+    private Object[] nodes;
+    private int[] depths;
+    private boolean[] expanded;
+    private int head;
+    private int count;
+
+    public TreeCursor(final ContextTree<T> tree) {
+        this.tree = tree;
+        randomAccess = tree instanceof RandomAccessContextTree;
+        nodes = new Object[16];
+        depths = new int[16];
+        expanded = new boolean[16];
+    }
+
+    public ContextTree<T> getTree() {
+        return tree;
+    }
+
+    /**
+     * Start a new walk over the subtree rooted at the given node.
+     */
+    public void reset(final T start, final Order order) {
+        this.order = order;
+        if (count > 0) {
+            // a previous walk was abandoned
+            Arrays.fill(nodes, null);
+        }
+        node = null;
+        depth = -1;
+        expand = false;
+        head = 0;
+        count = 0;
+        push(start, 0);
+    }
+
+    /**
+     * Advance to the next node.
+     * 
+     * @return false if the walk is over
+     */
+    public boolean next() {
+        switch (order) {
+        case PRE_ORDER:
+            if (expand) {
+                pushChildren(node, depth + 1);
+            }
+            if (count == 0) {
+                return end();
+            }
+            count--;
+            visit(count);
+            return true;
+        case POST_ORDER:
+            while (count > 0) {
+                final int top = count - 1;
+                @SuppressWarnings("unchecked")
+                final T candidate = (T) nodes[top];
+                if (expanded[top] || tree.getChildCount(candidate) == 0) {
+                    count--;
+                    visit(top);
+                    expand = false;
+                    return true;
+                }
+                expanded[top] = true;
+                pushChildren(candidate, depths[top] + 1);
+            }
+            return end();
+        case LEVEL_ORDER:
+            if (expand) {
+                enqueueChildren(node, depth + 1);
+            }
+            if (count == 0) {
+                return end();
+            }
+            final int first = head;
+            head = (head + 1) & (nodes.length - 1);
+            count--;
+            visit(first);
+            return true;
+        default:
+            throw new IllegalStateException("Cursor has not been reset");
+        }
+    }
+
+    private void visit(final int slot) {
+        @SuppressWarnings("unchecked")
+        final T visited = (T) nodes[slot];
+        node = visited;
+        depth = depths[slot];
+        nodes[slot] = null;
+        expand = true;
+    }
+
+    private boolean end() {
+        node = null;
+        depth = -1;
+        expand = false;
+        return false;
+    }
+
+    /**
+     * @return the current node
+     */
+    public T getNode() {
+        return node;
+    }
+
+    /**
+     * @return the depth of the current node, relative to the start node (which has depth 0)
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Don't visit the descendants of the current node (only has an effect in pre-order and level-order).
+     */
+    public void skipChildren() {
+        expand = false;
+    }
+
+    /**
+     * Walk the subtree rooted at the given node, calling the visitor for each node.
+     */
+    public void accept(final T start, final Order order, final ContextTreeVisitor<T> visitor) {
+        reset(start, order);
+        while (next()) {
+            if (!visitor.visit(node, depth)) {
+                skipChildren();
+            }
+        }
+    }
+
+    private void ensureCapacity(final int capacity) {
+        if (capacity > nodes.length) {
+            int length = nodes.length;
+            while (length < capacity) {
+                length *= 2;
+            }
+            if (order == Order.LEVEL_ORDER && head + count > nodes.length) {
+                // unwrap the circular queue
+                final Object[] newNodes = new Object[length];
+                final int[] newDepths = new int[length];
+                final int firstPart = nodes.length - head;
+                System.arraycopy(nodes, head, newNodes, 0, firstPart);
+                System.arraycopy(nodes, 0, newNodes, firstPart, count - firstPart);
+                System.arraycopy(depths, head, newDepths, 0, firstPart);
+                System.arraycopy(depths, 0, newDepths, firstPart, count - firstPart);
+                nodes = newNodes;
+                depths = newDepths;
+                head = 0;
+            } else {
+                nodes = Arrays.copyOf(nodes, length);
+                depths = Arrays.copyOf(depths, length);
+            }
+            expanded = Arrays.copyOf(expanded, length);
+        }
+    }
+
+    private void push(final T child, final int childDepth) {
+        ensureCapacity(count + 1);
+        final int slot = order == Order.LEVEL_ORDER ? (head + count) & (nodes.length - 1) : count;
+        nodes[slot] = child;
+        depths[slot] = childDepth;
+        expanded[slot] = false;
+        count++;
+    }
+
+    /**
+     * Push the children, so that the first child is on top of the stack.
+     */
+    private void pushChildren(final T parent, final int childDepth) {
+        final int childCount = tree.getChildCount(parent);
+        if (childCount == 0) {
+            return;
+        }
+        ensureCapacity(count + childCount);
+        if (randomAccess) {
+            for (int i = childCount - 1; i >= 0; i--) {
+                push(tree.getChild(parent, i), childDepth);
+            }
+        } else {
+            final int first = count;
+            for (final T child : tree.iterable(parent)) {
+                push(child, childDepth);
+            }
+            // reverse the pushed children
+            for (int i = first, j = count - 1; i < j; i++, j--) {
+                final Object swap = nodes[i];
+                nodes[i] = nodes[j];
+                nodes[j] = swap;
+            }
+        }
+    }
+
+    private void enqueueChildren(final T parent, final int childDepth) {
+        final int childCount = tree.getChildCount(parent);
+        if (childCount == 0) {
+            return;
+        }
+        ensureCapacity(count + childCount);
+        if (randomAccess) {
+            for (int i = 0; i < childCount; i++) {
+                push(tree.getChild(parent, i), childDepth);
+            }
+        } else {
+            for (final T child : tree.iterable(parent)) {
+                push(child, childDepth);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,577 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model.attribute;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.HashMap;
+
+/**
+ * The AttributeCompiler turns an attribute expression (a tree of NodeAttributes, like a LongConditional of a LongGreaterThan and two
+ * LongAdditions) into a single attribute that evaluates the whole expression with one method handle.
+ *
+ * Evaluating an expression normally means one virtual evaluate() call per attribute of the expression, and since these calls happen
+ * in the same few methods for all kinds of attributes, the JIT can't inline them. The compiler instead combines method handles with the
+ * java.lang.invoke combinators: the operators of the attribute package (arithmetic, comparisons, and conversions) become static methods
+ * on primitive values, conditionals and (short-circuiting) ANDs and ORs become guards, constants become constant handles, and all other
+ * attributes (the leaves of the expression, such as attributes reading a value out of a node, or attributes the compiler doesn't know)
+ * are called through their evaluate() method. The JIT then compiles the combined handle into one piece of code.
+ *
+ * The compiled attribute holds the combined handle in a final field, and its evaluate() invokes it with invokeExact.
+ *
+ * A compiled attribute has the same name, description, type, and arguments as the original one, and produces the same values, as long
+ * as the attributes of the expression don't change how they evaluate (the compiler takes a snapshot of the expression's structure).
+ */
+public final class AttributeCompiler {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodType NODE_TO_LONG = MethodType.methodType(long.class, Object.class);
+    private static final MethodType NODE_TO_DOUBLE = MethodType.methodType(double.class, Object.class);
+    private static final MethodType NODE_TO_BOOLEAN = MethodType.methodType(boolean.class, Object.class);
+    private static final MethodType NODE_TO_STRING = MethodType.methodType(String.class, Object.class);
+
+    // operator attribute classes to the static methods computing them (from the values of their arguments)
+    private static final HashMap<Class<?>, MethodHandle> OPERATORS = new HashMap<Class<?>, MethodHandle>();
+
+    static {
+        final MethodType longLong = MethodType.methodType(long.class, long.class, long.class);
+        final MethodType doubleDouble = MethodType.methodType(double.class, double.class, double.class);
+        final MethodType longCompare = MethodType.methodType(boolean.class, long.class, long.class);
+        final MethodType doubleCompare = MethodType.methodType(boolean.class, double.class, double.class);
+        final MethodType booleanCompare = MethodType.methodType(boolean.class, boolean.class, boolean.class);
+        final MethodType stringCompare = MethodType.methodType(boolean.class, String.class, String.class);
+        operator(LongAddition.class, "add", longLong);
+        operator(LongSubtraction.class, "subtract", longLong);
+        operator(LongMultiplication.class, "multiply", longLong);
+        operator(LongDivision.class, "divide", longLong);
+        operator(LongRemainder.class, "remainder", longLong);
+        operator(LongBitwiseAnd.class, "and", longLong);
+        operator(LongBitwiseInclusiveOr.class, "or", longLong);
+        operator(LongBitwiseExclusiveOr.class, "xor", longLong);
+        operator(LongLeftShift.class, "shiftLeft", longLong);
+        operator(LongSignedRightShift.class, "shiftRight", longLong);
+        operator(LongUnsignedRightShift.class, "shiftRightUnsigned", longLong);
+        operator(LongNegation.class, "negate", MethodType.methodType(long.class, long.class));
+        operator(LongBitwiseNot.class, "not", MethodType.methodType(long.class, long.class));
+        operator(LongToDouble.class, "toDouble", MethodType.methodType(double.class, long.class));
+        operator(LongEqual.class, "equal", longCompare);
+        operator(LongNotEqual.class, "notEqual", longCompare);
+        operator(LongLessThan.class, "lessThan", longCompare);
+        operator(LongLessEqual.class, "lessEqual", longCompare);
+        operator(LongGreaterThan.class, "greaterThan", longCompare);
+        operator(LongGreaterEqual.class, "greaterEqual", longCompare);
+        operator(DoubleAddition.class, "add", doubleDouble);
+        operator(DoubleSubtraction.class, "subtract", doubleDouble);
+        operator(DoubleMultiplication.class, "multiply", doubleDouble);
+        operator(DoubleDivision.class, "divide", doubleDouble);
+        operator(DoubleNegation.class, "negate", MethodType.methodType(double.class, double.class));
+        operator(DoubleToLong.class, "toLong", MethodType.methodType(long.class, double.class));
+        operator(DoubleEqual.class, "equal", doubleCompare);
+        operator(DoubleNotEqual.class, "notEqual", doubleCompare);
+        operator(DoubleLessThan.class, "lessThan", doubleCompare);
+        operator(DoubleLessEqual.class, "lessEqual", doubleCompare);
+        operator(DoubleGreaterThan.class, "greaterThan", doubleCompare);
+        operator(DoubleGreaterEqual.class, "greaterEqual", doubleCompare);
+        operator(BooleanNot.class, "not", MethodType.methodType(boolean.class, boolean.class));
+        operator(BooleanEqual.class, "equal", booleanCompare);
+        operator(BooleanNotEqual.class, "notEqual", booleanCompare);
+        operator(StringEqual.class, "equal", stringCompare);
+        operator(StringNotEqual.class, "notEqual", stringCompare);
+        operator(StringLessThan.class, "lessThan", stringCompare);
+        operator(StringLessEqual.class, "lessEqual", stringCompare);
+        operator(StringGreaterThan.class, "greaterThan", stringCompare);
+        operator(StringGreaterEqual.class, "greaterEqual", stringCompare);
+        operator(StringLength.class, "length", MethodType.methodType(long.class, String.class));
+    }
+
+    private static void operator(final Class<? extends NodeAttribute> attributeClass, final String name, final MethodType type) {
+        try {
+            OPERATORS.put(attributeClass, LOOKUP.findStatic(AttributeCompiler.class, name, type));
+        } catch (final ReflectiveOperationException ex) {
+            throw new ExceptionInInitializerError(ex);
+        }
+    }
+
+
+    public static LongAttribute compile(final LongAttribute attribute) {
+        return new CompiledLongAttribute(attribute, compileHandle(attribute));
+    }
+
+    public static DoubleAttribute compile(final DoubleAttribute attribute) {
+        return new CompiledDoubleAttribute(attribute, compileHandle(attribute));
+    }
+
+    public static BooleanAttribute compile(final BooleanAttribute attribute) {
+        return new CompiledBooleanAttribute(attribute, compileHandle(attribute));
+    }
+
+    public static StringAttribute compile(final StringAttribute attribute) {
+        return new CompiledStringAttribute(attribute, compileHandle(attribute));
+    }
+
+    /**
+     * Compile an attribute of any of the four types.
+     */
+    public static NodeAttribute compile(final NodeAttribute attribute) {
+        if (attribute instanceof LongAttribute) {
+            return compile((LongAttribute) attribute);
+        } else if (attribute instanceof DoubleAttribute) {
+            return compile((DoubleAttribute) attribute);
+        } else if (attribute instanceof BooleanAttribute) {
+            return compile((BooleanAttribute) attribute);
+        } else if (attribute instanceof StringAttribute) {
+            return compile((StringAttribute) attribute);
+        }
+        // an attribute with a type of its own: nothing to compile
+        return attribute;
+    }
+
+    /**
+     * @return a method handle taking a node and returning the value of the given attribute for that node (as a long, double, boolean,
+     *         or String)
+     */
+    static MethodHandle compileHandle(final NodeAttribute attribute) {
+        if (attribute instanceof CompiledAttribute) {
+            return ((CompiledAttribute) attribute).getHandle();
+        }
+        final MethodType type = nodeType(attribute);
+        if (attribute instanceof LongConstant || attribute instanceof DoubleConstant || attribute instanceof BooleanConstant
+                || attribute instanceof StringConstant) {
+            return MethodHandles.dropArguments(MethodHandles.constant(type.returnType(), attribute.getValue(null)), 0, Object.class);
+        }
+        final NodeAttribute[] arguments = attribute.getArguments();
+        if (attribute instanceof LongConditional || attribute instanceof DoubleConditional || attribute instanceof BooleanConditional
+                || attribute instanceof StringConditional) {
+            return MethodHandles.guardWithTest(compileHandle(arguments[0]), compileHandle(arguments[1]), compileHandle(arguments[2]));
+        }
+        if ((attribute instanceof BooleanAnd || attribute instanceof BooleanOr) && arguments.length > 0
+                && !((BooleanNaryOperation) attribute).isAdaptive()) {
+            // short-circuit from left to right, as BooleanNaryOperation.evaluate does
+            // (adaptive operations stay leaves, so they keep reordering their arguments)
+            final boolean and = attribute instanceof BooleanAnd;
+            final MethodHandle decided = MethodHandles.dropArguments(MethodHandles.constant(boolean.class, !and), 0, Object.class);
+            MethodHandle handle = compileHandle(arguments[arguments.length - 1]);
+            for (int i = arguments.length - 2; i >= 0; i--) {
+                handle = and ? MethodHandles.guardWithTest(compileHandle(arguments[i]), handle, decided)
+                        : MethodHandles.guardWithTest(compileHandle(arguments[i]), decided, handle);
+            }
+            return handle;
+        }
+        final MethodHandle operator = operator(attribute);
+        if (operator != null) {
+            final MethodHandle[] argumentHandles = new MethodHandle[arguments.length];
+            for (int i = 0; i < arguments.length; i++) {
+                argumentHandles[i] = compileHandle(arguments[i]);
+            }
+            return apply(operator, argumentHandles);
+        }
+        // a leaf (or an attribute the compiler doesn't know)
+        return findVirtual(baseClass(attribute), "evaluate", type).bindTo(attribute);
+    }
+
+    /**
+     * @return the handle computing the given attribute from the values of its arguments, or null if there is none
+     */
+    private static MethodHandle operator(final NodeAttribute attribute) {
+        final MethodHandle operator = OPERATORS.get(attribute.getClass());
+        if (operator != null) {
+            return operator;
+        }
+        // binary operations the compiler doesn't know still can have their arguments compiled
+        if (attribute instanceof LongBinaryOperation) {
+            return findVirtual(LongBinaryOperation.class, "compute", MethodType.methodType(long.class, long.class, long.class))
+                    .bindTo(attribute);
+        } else if (attribute instanceof DoubleBinaryOperation) {
+            return findVirtual(DoubleBinaryOperation.class, "compute",
+                    MethodType.methodType(double.class, double.class, double.class)).bindTo(attribute);
+        } else if (attribute instanceof BooleanBinaryOperation) {
+            return findVirtual(BooleanBinaryOperation.class, "compute",
+                    MethodType.methodType(boolean.class, boolean.class, boolean.class)).bindTo(attribute);
+        }
+        return null;
+    }
+
+    private static MethodHandle findVirtual(final Class<?> declaringClass, final String name, final MethodType type) {
+        try {
+            return LOOKUP.findVirtual(declaringClass, name, type);
+        } catch (final ReflectiveOperationException ex) {
+            throw new IllegalStateException("Can't find " + declaringClass.getName() + "." + name + type, ex);
+        }
+    }
+
+    private static Class<?> baseClass(final NodeAttribute attribute) {
+        if (attribute instanceof LongAttribute) {
+            return LongAttribute.class;
+        } else if (attribute instanceof DoubleAttribute) {
+            return DoubleAttribute.class;
+        } else if (attribute instanceof BooleanAttribute) {
+            return BooleanAttribute.class;
+        }
+        return StringAttribute.class;
+    }
+
+    private static MethodType nodeType(final NodeAttribute attribute) {
+        if (attribute instanceof LongAttribute) {
+            return NODE_TO_LONG;
+        } else if (attribute instanceof DoubleAttribute) {
+            return NODE_TO_DOUBLE;
+        } else if (attribute instanceof BooleanAttribute) {
+            return NODE_TO_BOOLEAN;
+        } else if (attribute instanceof StringAttribute) {
+            return NODE_TO_STRING;
+        }
+        throw new IllegalArgumentException("Can't compile attribute " + attribute.getName() + " of type " + attribute.getType());
+    }
+
+    /**
+     * @return a handle taking a node, passing it to each of the argument handles, and applying the operator to their results
+     */
+    private static MethodHandle apply(final MethodHandle operator, final MethodHandle... arguments) {
+        final MethodHandle filtered = MethodHandles.filterArguments(operator, 0, arguments);
+        // all arguments get the same node
+        final int[] reorder = new int[arguments.length];
+        return MethodHandles.permuteArguments(filtered, MethodType.methodType(operator.type().returnType(), Object.class), reorder);
+    }
+
+
+    // the operators (these must compute exactly what the corresponding attributes compute)
+
+    private static long add(final long a, final long b) {
+        return a + b;
+    }
+
+    private static long subtract(final long a, final long b) {
+        return a - b;
+    }
+
+    private static long multiply(final long a, final long b) {
+        return a * b;
+    }
+
+    private static long divide(final long a, final long b) {
+        return a / b;
+    }
+
+    private static long remainder(final long a, final long b) {
+        return a % b;
+    }
+
+    private static long and(final long a, final long b) {
+        return a & b;
+    }
+
+    private static long or(final long a, final long b) {
+        return a | b;
+    }
+
+    private static long xor(final long a, final long b) {
+        return a ^ b;
+    }
+
+    private static long shiftLeft(final long a, final long b) {
+        return a << b;
+    }
+
+    private static long shiftRight(final long a, final long b) {
+        return a >> b;
+    }
+
+    private static long shiftRightUnsigned(final long a, final long b) {
+        return a >>> b;
+    }
+
+    private static long negate(final long a) {
+        return -a;
+    }
+
+    private static long not(final long a) {
+        return ~a;
+    }
+
+    private static double toDouble(final long a) {
+        return a;
+    }
+
+    private static boolean equal(final long a, final long b) {
+        return a == b;
+    }
+
+    private static boolean notEqual(final long a, final long b) {
+        return a != b;
+    }
+
+    private static boolean lessThan(final long a, final long b) {
+        return a < b;
+    }
+
+    private static boolean lessEqual(final long a, final long b) {
+        return a <= b;
+    }
+
+    private static boolean greaterThan(final long a, final long b) {
+        return a > b;
+    }
+
+    private static boolean greaterEqual(final long a, final long b) {
+        return a >= b;
+    }
+
+    private static double add(final double a, final double b) {
+        return a + b;
+    }
+
+    private static double subtract(final double a, final double b) {
+        return a - b;
+    }
+
+    private static double multiply(final double a, final double b) {
+        return a * b;
+    }
+
+    private static double divide(final double a, final double b) {
+        return a / b;
+    }
+
+    private static double negate(final double a) {
+        return -a;
+    }
+
+    private static long toLong(final double a) {
+        return (long) a;
+    }
+
+    private static boolean equal(final double a, final double b) {
+        return a == b;
+    }
+
+    private static boolean notEqual(final double a, final double b) {
+        return a != b;
+    }
+
+    private static boolean lessThan(final double a, final double b) {
+        return a < b;
+    }
+
+    private static boolean lessEqual(final double a, final double b) {
+        return a <= b;
+    }
+
+    private static boolean greaterThan(final double a, final double b) {
+        return a > b;
+    }
+
+    private static boolean greaterEqual(final double a, final double b) {
+        return a >= b;
+    }
+
+    private static boolean not(final boolean a) {
+        return !a;
+    }
+
+    private static boolean equal(final boolean a, final boolean b) {
+        return a == b;
+    }
+
+    private static boolean notEqual(final boolean a, final boolean b) {
+        return a != b;
+    }
+
+    private static boolean equal(final String a, final String b) {
+        return a.equals(b);
+    }
+
+    private static boolean notEqual(final String a, final String b) {
+        return !a.equals(b);
+    }
+
+    private static boolean lessThan(final String a, final String b) {
+        return a.compareTo(b) < 0;
+    }
+
+    private static boolean lessEqual(final String a, final String b) {
+        return a.compareTo(b) <= 0;
+    }
+
+    private static boolean greaterThan(final String a, final String b) {
+        return a.compareTo(b) > 0;
+    }
+
+    private static boolean greaterEqual(final String a, final String b) {
+        return a.compareTo(b) >= 0;
+    }
+
+    private static long length(final String a) {
+        return a.length();
+    }
+
+
+    // the compiled attributes
+
+    private static interface CompiledAttribute {
+        MethodHandle getHandle();
+    }
+
+    private static RuntimeException rethrow(final Throwable throwable) {
+        if (throwable instanceof RuntimeException) {
+            throw (RuntimeException) throwable;
+        } else if (throwable instanceof Error) {
+            throw (Error) throwable;
+        }
+        // the compiled attributes only call evaluate() methods, which don't throw checked exceptions
+        throw new IllegalStateException(throwable);
+    }
+
+    private static final class CompiledLongAttribute extends LongAttribute implements CompiledAttribute {
+
+        private final LongAttribute original;
+        private final MethodHandle handle;
+
+        private CompiledLongAttribute(final LongAttribute original, final MethodHandle handle) {
+            this.original = original;
+            this.handle = handle;
+        }
+
+        public MethodHandle getHandle() {
+            return handle;
+        }
+
+        public String getName() {
+            return original.getName();
+        }
+
+        public String getDescription() {
+            return original.getDescription();
+        }
+
+        public NodeAttribute[] getArguments() {
+            return original.getArguments();
+        }
+
+        public long evaluate(final Object node) {
+            try {
+                return (long) handle.invokeExact(node);
+            } catch (final Throwable throwable) {
+                throw rethrow(throwable);
+            }
+        }
+
+    }
+
+    private static final class CompiledDoubleAttribute extends DoubleAttribute implements CompiledAttribute {
+
+        private final DoubleAttribute original;
+        private final MethodHandle handle;
+
+        private CompiledDoubleAttribute(final DoubleAttribute original, final MethodHandle handle) {
+            this.original = original;
+            this.handle = handle;
+        }
+
+        public MethodHandle getHandle() {
+            return handle;
+        }
+
+        public String getName() {
+            return original.getName();
+        }
+
+        public String getDescription() {
+            return original.getDescription();
+        }
+
+        public NodeAttribute[] getArguments() {
+            return original.getArguments();
+        }
+
+        public double evaluate(final Object node) {
+            try {
+                return (double) handle.invokeExact(node);
+            } catch (final Throwable throwable) {
+                throw rethrow(throwable);
+            }
+        }
+
+    }
+
+    private static final class CompiledBooleanAttribute extends BooleanAttribute implements CompiledAttribute {
+
+        private final BooleanAttribute original;
+        private final MethodHandle handle;
+
+        private CompiledBooleanAttribute(final BooleanAttribute original, final MethodHandle handle) {
+            this.original = original;
+            this.handle = handle;
+        }
+
+        public MethodHandle getHandle() {
+            return handle;
+        }
+
+        public String getName() {
+            return original.getName();
+        }
+
+        public String getDescription() {
+            return original.getDescription();
+        }
+
+        public NodeAttribute[] getArguments() {
+            return original.getArguments();
+        }
+
+        public boolean evaluate(final Object node) {
+            try {
+                return (boolean) handle.invokeExact(node);
+            } catch (final Throwable throwable) {
+                throw rethrow(throwable);
+            }
+        }
+
+    }
+
+    private static final class CompiledStringAttribute extends StringAttribute implements CompiledAttribute {
+
+        private final StringAttribute original;
+        private final MethodHandle handle;
+
+        private CompiledStringAttribute(final StringAttribute original, final MethodHandle handle) {
+            this.original = original;
+            this.handle = handle;
+        }
+
+        public MethodHandle getHandle() {
+            return handle;
+        }
+
+        public String getName() {
+            return original.getName();
+        }
+
+        public String getDescription() {
+            return original.getDescription();
+        }
+
+        public NodeAttribute[] getArguments() {
+            return original.getArguments();
+        }
+
+        public String evaluate(final Object node) {
+            try {
+                return (String) handle.invokeExact(node);
+            } catch (final Throwable throwable) {
+                throw rethrow(throwable);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,714 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model.attribute;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * The AttributeOptimizer simplifies attribute expressions (trees, or DAGs, of NodeAttributes) before they are evaluated:
+ * <ul>
+ * <li>it folds sub-expressions made only of constants into a single constant,</li>
+ * <li>it removes identities, such as x+0, x*1, true&amp;x, or a conditional with a constant condition,</li>
+ * <li>it merges structurally equal sub-expressions (the same operator applied to the same arguments) into one attribute, and</li>
+ * <li>it makes each sub-expression that is used more than once evaluate only once per node (by caching its last value).</li>
+ * </ul>
+ *
+ * The optimizer rebuilds the expression with NodeAttribute.withArguments(), so it only looks inside attributes that support it (whose
+ * canRebuild() returns true); all other attributes (like the attributes extracting values from nodes, or InclusiveLongAttribute) are
+ * leaves, which are equal only to themselves. It assumes that evaluating an attribute has no side effects. Names and descriptions of
+ * rebuilt attributes are kept, so they may still mention sub-expressions that have been simplified away.
+ *
+ * An optimized expression with shared sub-expressions keeps their last values per thread (in a ThreadLocal), so it can be evaluated by
+ * multiple threads at the same time.
+ */
+public final class AttributeOptimizer {
+
+    // original attributes to their optimized versions
+    private final IdentityHashMap<NodeAttribute, NodeAttribute> optimized;
+    // the structure of each optimized attribute (its class, and its arguments or its value) to the attribute
+    private final HashMap<List<Object>, NodeAttribute> canonical;
+    // optimized attributes whose arguments the optimizer can't change
+    private final IdentityHashMap<NodeAttribute, Boolean> opaque;
+    // the number of shared sub-expressions cached so far
+    private int slotCount;
+
+
+    private AttributeOptimizer() {
+        optimized = new IdentityHashMap<NodeAttribute, NodeAttribute>();
+        canonical = new HashMap<List<Object>, NodeAttribute>();
+        opaque = new IdentityHashMap<NodeAttribute, Boolean>();
+    }
+
+    public static LongAttribute optimize(final LongAttribute attribute) {
+        return (LongAttribute) optimize((NodeAttribute) attribute);
+    }
+
+    public static DoubleAttribute optimize(final DoubleAttribute attribute) {
+        return (DoubleAttribute) optimize((NodeAttribute) attribute);
+    }
+
+    public static BooleanAttribute optimize(final BooleanAttribute attribute) {
+        return (BooleanAttribute) optimize((NodeAttribute) attribute);
+    }
+
+    public static StringAttribute optimize(final StringAttribute attribute) {
+        return (StringAttribute) optimize((NodeAttribute) attribute);
+    }
+
+    /**
+     * Optimize the expression rooted at the given attribute.
+     *
+     * @return an attribute of the same type, computing the same values as the given attribute
+     */
+    public static NodeAttribute optimize(final NodeAttribute attribute) {
+        final AttributeOptimizer optimizer = new AttributeOptimizer();
+        return optimizer.share(optimizer.simplify(attribute));
+    }
+
+
+    // simplification: folding, identities, and merging of equal sub-expressions
+
+    private NodeAttribute simplify(final NodeAttribute attribute) {
+        NodeAttribute result = optimized.get(attribute);
+        if (result == null) {
+            result = computeSimplified(attribute);
+            optimized.put(attribute, result);
+        }
+        return result;
+    }
+
+    private NodeAttribute computeSimplified(final NodeAttribute attribute) {
+        if (isConstant(attribute)) {
+            return intern(attribute);
+        }
+        final NodeAttribute[] arguments = attribute.getArguments();
+        if (arguments.length == 0) {
+            return intern(attribute);
+        }
+        if (!attribute.canRebuild()) {
+            opaque.put(attribute, Boolean.TRUE);
+            return intern(attribute);
+        }
+        final NodeAttribute[] simplifiedArguments = new NodeAttribute[arguments.length];
+        for (int i = 0; i < arguments.length; i++) {
+            simplifiedArguments[i] = simplify(arguments[i]);
+        }
+        final NodeAttribute rebuilt = attribute.withArguments(simplifiedArguments);
+        final NodeAttribute folded = fold(rebuilt, simplifiedArguments);
+        if (folded != null) {
+            return intern(folded);
+        }
+        final NodeAttribute reduced = reduce(rebuilt, simplifiedArguments);
+        // reduce returns one of the (already simplified) arguments, or a constant, or an attribute with simplified arguments
+        return intern(reduced);
+    }
+
+    /**
+     * @return the attribute structurally equal to the given one that was seen first
+     */
+    private NodeAttribute intern(final NodeAttribute attribute) {
+        final List<Object> key = new ArrayList<Object>();
+        key.add(attribute.getClass());
+        if (isConstant(attribute)) {
+            key.add(attribute.getValue(null));
+        } else if (opaque.containsKey(attribute) || attribute.getArguments().length == 0) {
+            key.add(attribute);
+        } else {
+            key.addAll(Arrays.asList(attribute.getArguments()));
+        }
+        final NodeAttribute existing = canonical.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        canonical.put(key, attribute);
+        return attribute;
+    }
+
+    /**
+     * @return a constant with the value of the given attribute if all its arguments are constants, or null
+     */
+    private static NodeAttribute fold(final NodeAttribute attribute, final NodeAttribute[] arguments) {
+        for (final NodeAttribute argument : arguments) {
+            if (!isConstant(argument)) {
+                return null;
+            }
+        }
+        final Object value;
+        try {
+            value = attribute.getValue(null);
+        } catch (final RuntimeException ex) {
+            // e.g. a division by zero: leave it to the evaluation to throw
+            return null;
+        }
+        return constant(attribute.getType(), value);
+    }
+
+    /**
+     * @return a simpler attribute computing the same as the given one (or the given attribute itself)
+     */
+    private NodeAttribute reduce(final NodeAttribute attribute, final NodeAttribute[] arguments) {
+        if (attribute instanceof LongConditional || attribute instanceof DoubleConditional || attribute instanceof BooleanConditional
+                || attribute instanceof StringConditional) {
+            if (isConstant(arguments[0])) {
+                return ((BooleanAttribute) arguments[0]).evaluate(null) ? arguments[1] : arguments[2];
+            }
+            return arguments[1] == arguments[2] ? arguments[1] : attribute;
+        }
+        if (attribute instanceof BooleanAnd || attribute instanceof BooleanOr) {
+            return reduceBooleanOperation(attribute, arguments, attribute instanceof BooleanAnd);
+        }
+        if (attribute instanceof LongNegation || attribute instanceof DoubleNegation || attribute instanceof LongBitwiseNot
+                || attribute instanceof BooleanNot) {
+            // -(-x) = x
+            if (arguments[0].getClass() == attribute.getClass()) {
+                return arguments[0].getArguments()[0];
+            }
+            return attribute;
+        }
+        if (attribute instanceof LongEqual || attribute instanceof LongLessEqual || attribute instanceof LongGreaterEqual
+                || attribute instanceof BooleanEqual) {
+            return arguments[0] == arguments[1] ? intern(new BooleanConstant(true)) : attribute;
+        }
+        if (attribute instanceof LongNotEqual || attribute instanceof LongLessThan || attribute instanceof LongGreaterThan
+                || attribute instanceof BooleanNotEqual) {
+            return arguments[0] == arguments[1] ? intern(new BooleanConstant(false)) : attribute;
+        }
+        if (attribute instanceof LongAddition || attribute instanceof LongBitwiseInclusiveOr
+                || attribute instanceof LongBitwiseExclusiveOr) {
+            return identity(attribute, arguments, 0L, true);
+        }
+        if (attribute instanceof LongSubtraction || attribute instanceof LongLeftShift || attribute instanceof LongSignedRightShift
+                || attribute instanceof LongUnsignedRightShift) {
+            return identity(attribute, arguments, 0L, false);
+        }
+        if (attribute instanceof LongMultiplication) {
+            return identity(attribute, arguments, 1L, true);
+        }
+        if (attribute instanceof LongDivision) {
+            return identity(attribute, arguments, 1L, false);
+        }
+        if (attribute instanceof LongBitwiseAnd) {
+            return identity(attribute, arguments, -1L, true);
+        }
+        // only the identities that hold exactly in floating point (x+0.0 is not x for x=-0.0)
+        if (attribute instanceof DoubleAddition) {
+            return identity(attribute, arguments, -0.0, true);
+        }
+        if (attribute instanceof DoubleSubtraction) {
+            return identity(attribute, arguments, 0.0, false);
+        }
+        if (attribute instanceof DoubleMultiplication) {
+            return identity(attribute, arguments, 1.0, true);
+        }
+        if (attribute instanceof DoubleDivision) {
+            return identity(attribute, arguments, 1.0, false);
+        }
+        if (attribute instanceof StringConcat) {
+            return reduceConcat(attribute, arguments);
+        }
+        return attribute;
+    }
+
+    /**
+     * @return the other argument of a binary operation if one argument is the operation's identity element
+     * @param commutative
+     *            whether the identity element can be the first argument (it always can be the second one)
+     */
+    private static NodeAttribute identity(final NodeAttribute attribute, final NodeAttribute[] arguments, final Object identity,
+            final boolean commutative) {
+        if (isConstant(arguments[1]) && arguments[1].getValue(null).equals(identity)) {
+            return arguments[0];
+        }
+        if (commutative && isConstant(arguments[0]) && arguments[0].getValue(null).equals(identity)) {
+            return arguments[1];
+        }
+        return attribute;
+    }
+
+    private NodeAttribute reduceBooleanOperation(final NodeAttribute attribute, final NodeAttribute[] arguments, final boolean and) {
+        // true&x = x, false&x = false, x&x = x (and the same for |)
+        final ArrayList<NodeAttribute> remaining = new ArrayList<NodeAttribute>();
+        for (final NodeAttribute argument : arguments) {
+            if (isConstant(argument)) {
+                if (((BooleanAttribute) argument).evaluate(null) != and) {
+                    return intern(new BooleanConstant(!and));
+                }
+            } else if (!containsIdentical(remaining, argument)) {
+                remaining.add(argument);
+            }
+        }
+        if (remaining.isEmpty()) {
+            return intern(new BooleanConstant(and));
+        } else if (remaining.size() == 1) {
+            return remaining.get(0);
+        } else if (remaining.size() == arguments.length) {
+            return attribute;
+        }
+        return attribute.withArguments(remaining.toArray(new NodeAttribute[remaining.size()]));
+    }
+
+    private static NodeAttribute reduceConcat(final NodeAttribute attribute, final NodeAttribute[] arguments) {
+        // x#"" = x (but keep at least one argument, as concat turns a null into "null")
+        final ArrayList<NodeAttribute> remaining = new ArrayList<NodeAttribute>();
+        for (final NodeAttribute argument : arguments) {
+            if (!isConstant(argument) || !"".equals(argument.getValue(null))) {
+                remaining.add(argument);
+            }
+        }
+        if (remaining.size() == arguments.length || remaining.isEmpty()) {
+            return attribute;
+        }
+        return attribute.withArguments(remaining.toArray(new NodeAttribute[remaining.size()]));
+    }
+
+    private static boolean containsIdentical(final List<NodeAttribute> attributes, final NodeAttribute attribute) {
+        for (final NodeAttribute a : attributes) {
+            if (a == attribute) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isConstant(final NodeAttribute attribute) {
+        return attribute instanceof LongConstant || attribute instanceof DoubleConstant || attribute instanceof BooleanConstant
+                || attribute instanceof StringConstant;
+    }
+
+    private static NodeAttribute constant(final Type type, final Object value) {
+        switch (type) {
+            case LONG:
+                return new LongConstant((Long) value);
+            case DOUBLE:
+                return new DoubleConstant((Double) value);
+            case BOOLEAN:
+                return new BooleanConstant((Boolean) value);
+            default:
+                return new StringConstant((String) value);
+        }
+    }
+
+
+    // sharing: evaluating sub-expressions used more than once only once per node
+
+    /**
+     * @return the simplified expression, where each sub-expression with more than one parent is cached
+     */
+    private NodeAttribute share(final NodeAttribute root) {
+        final IdentityHashMap<NodeAttribute, Integer> parentCounts = new IdentityHashMap<NodeAttribute, Integer>();
+        countParents(root, parentCounts);
+        int sharedCount = 0;
+        for (final NodeAttribute attribute : parentCounts.keySet()) {
+            if (isShared(attribute, parentCounts)) {
+                sharedCount++;
+            }
+        }
+        if (sharedCount == 0) {
+            return root;
+        }
+        final Evaluation evaluation = new Evaluation(sharedCount);
+        final NodeAttribute cachedRoot = cache(root, parentCounts, evaluation, new IdentityHashMap<NodeAttribute, NodeAttribute>());
+        switch (root.getType()) {
+            case LONG:
+                return new LongEvaluation((LongAttribute) cachedRoot, evaluation);
+            case DOUBLE:
+                return new DoubleEvaluation((DoubleAttribute) cachedRoot, evaluation);
+            case BOOLEAN:
+                return new BooleanEvaluation((BooleanAttribute) cachedRoot, evaluation);
+            default:
+                return new StringEvaluation((StringAttribute) cachedRoot, evaluation);
+        }
+    }
+
+    private void countParents(final NodeAttribute root, final IdentityHashMap<NodeAttribute, Integer> parentCounts) {
+        // walk the DAG (with an explicit stack), counting each edge once
+        final ArrayList<NodeAttribute> stack = new ArrayList<NodeAttribute>();
+        parentCounts.put(root, 0);
+        stack.add(root);
+        while (!stack.isEmpty()) {
+            final NodeAttribute attribute = stack.remove(stack.size() - 1);
+            for (final NodeAttribute argument : getArguments(attribute)) {
+                final Integer count = parentCounts.get(argument);
+                if (count == null) {
+                    parentCounts.put(argument, 1);
+                    stack.add(argument);
+                } else {
+                    parentCounts.put(argument, count + 1);
+                }
+            }
+        }
+    }
+
+    private NodeAttribute[] getArguments(final NodeAttribute attribute) {
+        return opaque.containsKey(attribute) ? new NodeAttribute[0] : attribute.getArguments();
+    }
+
+    private static boolean isShared(final NodeAttribute attribute, final IdentityHashMap<NodeAttribute, Integer> parentCounts) {
+        return parentCounts.get(attribute) > 1 && !isConstant(attribute);
+    }
+
+    private NodeAttribute cache(final NodeAttribute attribute, final IdentityHashMap<NodeAttribute, Integer> parentCounts,
+            final Evaluation evaluation, final IdentityHashMap<NodeAttribute, NodeAttribute> cached) {
+        NodeAttribute result = cached.get(attribute);
+        if (result != null) {
+            return result;
+        }
+        // expressions are shallow enough to recurse
+        final NodeAttribute[] arguments = getArguments(attribute);
+        result = attribute;
+        if (arguments.length > 0) {
+            final NodeAttribute[] cachedArguments = new NodeAttribute[arguments.length];
+            boolean changed = false;
+            for (int i = 0; i < arguments.length; i++) {
+                cachedArguments[i] = cache(arguments[i], parentCounts, evaluation, cached);
+                changed |= cachedArguments[i] != arguments[i];
+            }
+            if (changed) {
+                result = attribute.withArguments(cachedArguments);
+            }
+        }
+        if (isShared(attribute, parentCounts)) {
+            final int slot = slotCount++;
+            switch (attribute.getType()) {
+                case LONG:
+                    result = new CachedLongAttribute((LongAttribute) result, evaluation, slot);
+                    break;
+                case DOUBLE:
+                    result = new CachedDoubleAttribute((DoubleAttribute) result, evaluation, slot);
+                    break;
+                case BOOLEAN:
+                    result = new CachedBooleanAttribute((BooleanAttribute) result, evaluation, slot);
+                    break;
+                default:
+                    result = new CachedStringAttribute((StringAttribute) result, evaluation, slot);
+                    break;
+            }
+        }
+        cached.put(attribute, result);
+        return result;
+    }
+
+    /**
+     * The cached values of the shared sub-expressions of an optimized expression, for one thread. Each shared sub-expression has a slot
+     * in the arrays. The evaluations of the expression are counted, so a cached value is only used within the evaluation that computed
+     * it, and only for the same node (an attribute of the expression could evaluate the whole expression for another node, which starts
+     * another evaluation).
+     */
+    private static final class Frame {
+
+        private long count;
+        // per slot: the evaluation and the node the value was computed in and for, and the value
+        private final long[] counts;
+        private final Object[] nodes;
+        private final long[] longValues;
+        private final double[] doubleValues;
+        private final boolean[] booleanValues;
+        private final String[] stringValues;
+
+        private Frame(final int slotCount) {
+            counts = new long[slotCount];
+            Arrays.fill(counts, -1);
+            nodes = new Object[slotCount];
+            longValues = new long[slotCount];
+            doubleValues = new double[slotCount];
+            booleanValues = new boolean[slotCount];
+            stringValues = new String[slotCount];
+        }
+
+        private boolean isValid(final int slot, final Object node) {
+            return counts[slot] == count && nodes[slot] == node;
+        }
+
+        private void validate(final int slot, final Object node) {
+            counts[slot] = count;
+            nodes[slot] = node;
+        }
+
+    }
+
+    /**
+     * The frames of an optimized expression, one per thread evaluating it.
+     */
+    private static final class Evaluation extends ThreadLocal<Frame> {
+
+        private final int slotCount;
+
+        private Evaluation(final int slotCount) {
+            this.slotCount = slotCount;
+        }
+
+        protected Frame initialValue() {
+            return new Frame(slotCount);
+        }
+
+    }
+
+    private static final class LongEvaluation extends LongAttribute {
+
+        private final LongAttribute attribute;
+        private final Evaluation evaluation;
+
+        private LongEvaluation(final LongAttribute attribute, final Evaluation evaluation) {
+            this.attribute = attribute;
+            this.evaluation = evaluation;
+        }
+
+        public String getName() {
+            return attribute.getName();
+        }
+
+        public String getDescription() {
+            return attribute.getDescription();
+        }
+
+        public NodeAttribute[] getArguments() {
+            return new NodeAttribute[] {attribute};
+        }
+
+        public long evaluate(final Object node) {
+            evaluation.get().count++;
+            return attribute.evaluate(node);
+        }
+
+    }
+
+    private static final class DoubleEvaluation extends DoubleAttribute {
+
+        private final DoubleAttribute attribute;
+        private final Evaluation evaluation;
+
+        private DoubleEvaluation(final DoubleAttribute attribute, final Evaluation evaluation) {
+            this.attribute = attribute;
+            this.evaluation = evaluation;
+        }
+
+        public String getName() {
+            return attribute.getName();
+        }
+
+        public String getDescription() {
+            return attribute.getDescription();
+        }
+
+        public NodeAttribute[] getArguments() {
+            return new NodeAttribute[] {attribute};
+        }
+
+        public double evaluate(final Object node) {
+            evaluation.get().count++;
+            return attribute.evaluate(node);
+        }
+
+    }
+
+    private static final class BooleanEvaluation extends BooleanAttribute {
+
+        private final BooleanAttribute attribute;
+        private final Evaluation evaluation;
+
+        private BooleanEvaluation(final BooleanAttribute attribute, final Evaluation evaluation) {
+            this.attribute = attribute;
+            this.evaluation = evaluation;
+        }
+
+        public String getName() {
+            return attribute.getName();
+        }
+
+        public String getDescription() {
+            return attribute.getDescription();
+        }
+
+        public NodeAttribute[] getArguments() {
+            return new NodeAttribute[] {attribute};
+        }
+
+        public boolean evaluate(final Object node) {
+            evaluation.get().count++;
+            return attribute.evaluate(node);
+        }
+
+    }
+
+    private static final class StringEvaluation extends StringAttribute {
+
+        private final StringAttribute attribute;
+        private final Evaluation evaluation;
+
+        private StringEvaluation(final StringAttribute attribute, final Evaluation evaluation) {
+            this.attribute = attribute;
+            this.evaluation = evaluation;
+        }
+
+        public String getName() {
+            return attribute.getName();
+        }
+
+        public String getDescription() {
+            return attribute.getDescription();
+        }
+
+        public NodeAttribute[] getArguments() {
+            return new NodeAttribute[] {attribute};
+        }
+
+        public String evaluate(final Object node) {
+            evaluation.get().count++;
+            return attribute.evaluate(node);
+        }
+
+    }
+
+    private static final class CachedLongAttribute extends LongAttribute {
+
+        private final LongAttribute attribute;
+        private final Evaluation evaluation;
+        private final int slot;
+
+        private CachedLongAttribute(final LongAttribute attribute, final Evaluation evaluation, final int slot) {
+            this.attribute = attribute;
+            this.evaluation = evaluation;
+            this.slot = slot;
+        }
+
+        public String getName() {
+            return attribute.getName();
+        }
+
+        public String getDescription() {
+            return attribute.getDescription();
+        }
+
+        public NodeAttribute[] getArguments() {
+            return new NodeAttribute[] {attribute};
+        }
+
+        public long evaluate(final Object node) {
+            final Frame frame = evaluation.get();
+            if (!frame.isValid(slot, node)) {
+                frame.longValues[slot] = attribute.evaluate(node);
+                frame.validate(slot, node);
+            }
+            return frame.longValues[slot];
+        }
+
+    }
+
+    private static final class CachedDoubleAttribute extends DoubleAttribute {
+
+        private final DoubleAttribute attribute;
+        private final Evaluation evaluation;
+        private final int slot;
+
+        private CachedDoubleAttribute(final DoubleAttribute attribute, final Evaluation evaluation, final int slot) {
+            this.attribute = attribute;
+            this.evaluation = evaluation;
+            this.slot = slot;
+        }
+
+        public String getName() {
+            return attribute.getName();
+        }
+
+        public String getDescription() {
+            return attribute.getDescription();
+        }
+
+        public NodeAttribute[] getArguments() {
+            return new NodeAttribute[] {attribute};
+        }
+
+        public double evaluate(final Object node) {
+            final Frame frame = evaluation.get();
+            if (!frame.isValid(slot, node)) {
+                frame.doubleValues[slot] = attribute.evaluate(node);
+                frame.validate(slot, node);
+            }
+            return frame.doubleValues[slot];
+        }
+
+    }
+
+    private static final class CachedBooleanAttribute extends BooleanAttribute {
+
+        private final BooleanAttribute attribute;
+        private final Evaluation evaluation;
+        private final int slot;
+
+        private CachedBooleanAttribute(final BooleanAttribute attribute, final Evaluation evaluation, final int slot) {
+            this.attribute = attribute;
+            this.evaluation = evaluation;
+            this.slot = slot;
+        }
+
+        public String getName() {
+            return attribute.getName();
+        }
+
+        public String getDescription() {
+            return attribute.getDescription();
+        }
+
+        public NodeAttribute[] getArguments() {
+            return new NodeAttribute[] {attribute};
+        }
+
+        public boolean evaluate(final Object node) {
+            final Frame frame = evaluation.get();
+            if (!frame.isValid(slot, node)) {
+                frame.booleanValues[slot] = attribute.evaluate(node);
+                frame.validate(slot, node);
+            }
+            return frame.booleanValues[slot];
+        }
+
+    }
+
+    private static final class CachedStringAttribute extends StringAttribute {
+
+        private final StringAttribute attribute;
+        private final Evaluation evaluation;
+        private final int slot;
+
+        private CachedStringAttribute(final StringAttribute attribute, final Evaluation evaluation, final int slot) {
+            this.attribute = attribute;
+            this.evaluation = evaluation;
+            this.slot = slot;
+        }
+
+        public String getName() {
+            return attribute.getName();
+        }
+
+        public String getDescription() {
+            return attribute.getDescription();
+        }
+
+        public NodeAttribute[] getArguments() {
+            return new NodeAttribute[] {attribute};
+        }
+
+        public String evaluate(final Object node) {
+            final Frame frame = evaluation.get();
+            if (!frame.isValid(slot, node)) {
+                frame.stringValues[slot] = attribute.evaluate(node);
+                frame.validate(slot, node);
+            }
+            return frame.stringValues[slot];
+        }
+
+    }
+
+}
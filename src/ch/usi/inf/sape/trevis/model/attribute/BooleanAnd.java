@@ -10,6 +10,7 @@
  */
 package ch.usi.inf.sape.trevis.model.attribute;
 
+import java.util.Arrays;
 
 /**
  * Compute the AND (&) of two boolean attributes.
@@ -42,4 +43,21 @@ public final class BooleanAnd extends BooleanNaryOperation {
 		return a&b;
 	}
 	
+	/**
+	 * A false argument decides the result.
+	 */
+	protected boolean isShortCircuit(final boolean value) {
+		return !value;
+	}
+	
+	public boolean canRebuild() {
+		return true;
+	}
+
+	public BooleanAttribute withArguments(final NodeAttribute[] arguments) {
+		final BooleanAnd result = new BooleanAnd(getName(), getDescription(), Arrays.copyOf(arguments, arguments.length, BooleanAttribute[].class));
+		result.setAdaptive(isAdaptive());
+		return result;
+	}
+	
 }
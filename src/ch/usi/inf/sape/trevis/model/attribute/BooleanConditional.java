@@ -41,6 +41,18 @@ public final class BooleanConditional extends BooleanAttribute {
 	public String getDescription() {
 		return "if ("+condition.getDescription()+") {"+ifArg.getDescription()+"} else {"+elseArg.getDescription()+"}";
 	}
+
+	public NodeAttribute[] getArguments() {
+		return new NodeAttribute[] {condition, ifArg, elseArg};
+	}
+
+	public boolean canRebuild() {
+		return true;
+	}
+
+	public BooleanAttribute withArguments(final NodeAttribute[] arguments) {
+		return new BooleanConditional(name, (BooleanAttribute) arguments[0], (BooleanAttribute) arguments[1], (BooleanAttribute) arguments[2]);
+	}
 	
 	public boolean evaluate(final Object node) {
 		if (condition.evaluate(node)) {
@@ -45,6 +45,18 @@ public final class BooleanEqual extends BooleanAttribute {
 	public String getDescription() {
 		return description;
 	}
+
+	public NodeAttribute[] getArguments() {
+		return new NodeAttribute[] {a, b};
+	}
+
+	public boolean canRebuild() {
+		return true;
+	}
+
+	public BooleanAttribute withArguments(final NodeAttribute[] arguments) {
+		return new BooleanEqual(name, description, (BooleanAttribute) arguments[0], (BooleanAttribute) arguments[1]);
+	}
 	
 	public final boolean evaluate(final Object node) {
 		return a.evaluate(node)==b.evaluate(node);
@@ -10,16 +10,43 @@
  */
 package ch.usi.inf.sape.trevis.model.attribute;
 
+import java.util.Arrays;
+
 /**
  * An operation on N boolean attributes.
  * 
+ * The arguments are evaluated from first to last, and the evaluation stops as soon as an argument's value decides the result
+ * (see isShortCircuit(), e.g. the first false argument of an AND).
+ * 
+ * In adaptive mode, the operation measures, for each argument, how long it takes to evaluate (on a sample of the evaluations)
+ * and how often it decides the result, and every REORDER_INTERVAL evaluations it reorders the arguments
+ * so that cheap and decisive arguments are evaluated first (by increasing cost divided by the probability of deciding).
+ * An argument that was not measured since the last reordering keeps its rank. To keep measuring arguments that end up
+ * behind a decisive one (and thus rarely get evaluated), one in 2^(SAMPLE_BITS+EXPLORE_BITS) evaluations
+ * evaluates a pseudo-randomly picked argument first.
+ * The result does not depend on the order, as long as the arguments have no side effects.
+ * The statistics are not synchronized: an adaptive operation evaluated by multiple threads still computes correct results,
+ * but may collect slightly inaccurate statistics.
+ * 
  * @author Matthias.Hauswirth@usi.ch
  */
 public abstract class BooleanNaryOperation extends BooleanAttribute {
 
+	/**
+	 * The number of evaluations between two reorderings of the arguments in adaptive mode.
+	 */
+	public static final int REORDER_INTERVAL = 1024;
+	// in adaptive mode, one in 2^SAMPLE_BITS evaluations (picked pseudo-randomly, so the samples
+	// don't correlate with patterns in the nodes) measures the cost of its arguments
+	private static final int SAMPLE_BITS = 4;
+	// one in 2^EXPLORE_BITS sampled evaluations evaluates a pseudo-randomly picked argument first
+	private static final int EXPLORE_BITS = 4;
+
 	private final BooleanAttribute[] arguments;
 	private final String name;
 	private final String description;
+	// null unless in adaptive mode
+	private volatile Statistics statistics;
 
 	
 	public BooleanNaryOperation(final String name, final String description, final BooleanAttribute[] arguments) {
@@ -35,19 +62,112 @@ public abstract class BooleanNaryOperation extends BooleanAttribute {
 	public String getDescription() {
 		return description;
 	}
+
+	public NodeAttribute[] getArguments() {
+		return arguments.clone();
+	}
 	
 	public final boolean evaluate(final Object node) {
+		final Statistics statistics = this.statistics;
+		if (statistics!=null) {
+			return evaluateAdaptively(node, statistics);
+		}
 		boolean result = neutralElement();
 		for (final BooleanAttribute argument : arguments) {
-			result = compute(result, argument.evaluate(node));
+			final boolean value = argument.evaluate(node);
+			result = compute(result, value);
+			if (isShortCircuit(value)) {
+				return result;
+			}
+		}
+		return result;
+	}
+
+	private boolean evaluateAdaptively(final Object node, final Statistics statistics) {
+		final long evaluation = statistics.evaluations++;
+		if (evaluation>0 && evaluation%REORDER_INTERVAL==0) {
+			statistics.reorder();
+		}
+		final int[] order = statistics.order;
+		final long random = statistics.nextRandom();
+		final boolean sample = random>>>(64-SAMPLE_BITS)==0;
+		final int explored = sample && (random>>>(64-SAMPLE_BITS-EXPLORE_BITS)&((1<<EXPLORE_BITS)-1))==0
+				? (int)(((random>>>24)&0xFFFFFFFFL)%order.length) : -1;
+		boolean result = neutralElement();
+		if (explored>=0) {
+			final boolean value = evaluateArgument(explored, node, true, statistics);
+			result = compute(result, value);
+			if (isShortCircuit(value)) {
+				statistics.decided[explored]++;
+				return result;
+			}
+		}
+		for (final int i : order) {
+			if (i==explored) {
+				continue;
+			}
+			final boolean value = evaluateArgument(i, node, sample, statistics);
+			result = compute(result, value);
+			if (isShortCircuit(value)) {
+				statistics.decided[i]++;
+				break;
+			}
 		}
 		return result;
 	}
+
+	private boolean evaluateArgument(final int i, final Object node, final boolean sample, final Statistics statistics) {
+		final long start = sample ? System.nanoTime() : 0L;
+		final boolean value = arguments[i].evaluate(node);
+		if (sample) {
+			statistics.nanos[i] += System.nanoTime()-start;
+			statistics.samples[i]++;
+		}
+		statistics.evaluated[i]++;
+		return value;
+	}
+
+	/**
+	 * Switch adaptive mode on or off.
+	 * Switching it on starts with the arguments in their original order and with no statistics.
+	 */
+	public final void setAdaptive(final boolean adaptive) {
+		statistics = adaptive ? new Statistics(arguments.length) : null;
+	}
+
+	public final boolean isAdaptive() {
+		return statistics!=null;
+	}
+
+	/**
+	 * @return the arguments in the order they currently are evaluated (in adaptive mode, this order changes over time)
+	 */
+	public final BooleanAttribute[] getEvaluationOrder() {
+		final Statistics statistics = this.statistics;
+		if (statistics==null) {
+			return arguments.clone();
+		}
+		final int[] order = statistics.order;
+		final BooleanAttribute[] ordered = new BooleanAttribute[order.length];
+		for (int i=0; i<order.length; i++) {
+			ordered[i] = arguments[order[i]];
+		}
+		return ordered;
+	}
 	
 	protected abstract boolean neutralElement();
 	
 	protected abstract boolean compute(final boolean a, final boolean b);
 
+	/**
+	 * @return true if an argument with the given value decides the result of the operation,
+	 * so the remaining arguments don't need to be evaluated
+	 * (false by default; subclasses like BooleanAnd and BooleanOr override this)
+	 */
+	protected boolean isShortCircuit(final boolean value) {
+		return false;
+	}
+
 	protected static final String buildDescription(final String operator, final BooleanAttribute[] arguments) {
 		final StringBuffer sb = new StringBuffer("(");
 		for (int i=0; i<arguments.length-1; i++) {
@@ -57,5 +177,80 @@ public abstract class BooleanNaryOperation extends BooleanAttribute {
 		sb.append(arguments[arguments.length-1].getName());
 		return sb.append(")").toString();
 	}
+
+
+	/**
+	 * The statistics of an operation in adaptive mode.
+	 */
+	private static final class Statistics {
+
+		// the order to evaluate the arguments in (replaced, never modified, by reorder())
+		private volatile int[] order;
+		private long evaluations;
+		private long random;
+		// per argument: how often it was evaluated, how often it decided the result,
+		// and the time spent in (and number of) sampled evaluations
+		private final long[] evaluated;
+		private final long[] decided;
+		private final long[] nanos;
+		private final long[] samples;
+		// per argument: its rank (cost divided by probability of deciding) at the last reordering it was measured for
+		private final double[] ranks;
+
+
+		private Statistics(final int argumentCount) {
+			order = new int[argumentCount];
+			for (int i=0; i<argumentCount; i++) {
+				order[i] = i;
+			}
+			evaluated = new long[argumentCount];
+			decided = new long[argumentCount];
+			nanos = new long[argumentCount];
+			samples = new long[argumentCount];
+			ranks = new double[argumentCount];
+			// nothing known: keep them behind the arguments we know about
+			Arrays.fill(ranks, Double.MAX_VALUE);
+		}
+
+		/**
+		 * A linear congruential generator (its high bits are random enough for sampling).
+		 */
+		private long nextRandom() {
+			random = random*6364136223846793005L+1442695040888963407L;
+			return random;
+		}
+
+		private void reorder() {
+			final int[] current = order;
+			for (int i=0; i<current.length; i++) {
+				// an argument without fresh measurements keeps its previous rank
+				if (samples[i]>0 && evaluated[i]>0) {
+					final double cost = (double)nanos[i]/samples[i];
+					final double probability = Math.max((double)decided[i]/evaluated[i], 1.0/(evaluated[i]+1));
+					ranks[i] = cost/probability;
+				}
+			}
+			// insertion sort (stable, and argument lists are short)
+			final int[] reordered = current.clone();
+			for (int i=1; i<reordered.length; i++) {
+				final int argument = reordered[i];
+				int j = i-1;
+				while (j>=0 && ranks[reordered[j]]>ranks[argument]) {
+					reordered[j+1] = reordered[j];
+					j--;
+				}
+				reordered[j+1] = argument;
+			}
+			order = reordered;
+			// decay, so the order follows changes in selectivity
+			for (int i=0; i<current.length; i++) {
+				evaluated[i] /= 2;
+				decided[i] /= 2;
+				nanos[i] /= 2;
+				samples[i] /= 2;
+			}
+		}
+
+	}
 	
 }
@@ -47,5 +47,17 @@ public final class BooleanNot extends BooleanAttribute {
 	public String getDescription() {
 		return description;
 	}
+
+	public NodeAttribute[] getArguments() {
+		return new NodeAttribute[] {argument};
+	}
+
+	public boolean canRebuild() {
+		return true;
+	}
+
+	public BooleanAttribute withArguments(final NodeAttribute[] arguments) {
+		return new BooleanNot(name, description, (BooleanAttribute) arguments[0]);
+	}
 	
 }
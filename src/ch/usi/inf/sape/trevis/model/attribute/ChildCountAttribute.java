@@ -20,8 +20,19 @@ import ch.usi.inf.sape.trevis.model.ContextTree;
  */
 public final class ChildCountAttribute extends ContextTreeLongAttribute {
 
+    private final StructuralStatistics statistics;
+
     public ChildCountAttribute(final ContextTree tree) {
         super(tree);
+        this.statistics = null;
+    }
+
+    /**
+     * Create an attribute that looks up its values in the given (precomputed) statistics.
+     */
+    public ChildCountAttribute(final StructuralStatistics statistics) {
+        super(statistics.getTree());
+        this.statistics = statistics;
     }
 
     public String getName() {
@@ -33,6 +44,12 @@ public final class ChildCountAttribute extends ContextTreeLongAttribute {
     }
 
     public long evaluate(final ContextTree tree, final Object node) {
+        if (statistics != null) {
+            final int index = statistics.indexOf(node);
+            if (index >= 0) {
+                return statistics.getChildCount(index);
+            }
+        }
         return tree.getChildCount(node);
     }
 
@@ -20,6 +20,12 @@ public abstract class ContextTreeLongAttribute extends LongAttribute {
         this.tree = tree;
     }
 
+    @SuppressWarnings("unchecked")
+    protected final ContextTree<Object> getTree() {
+        // the tree is raw, as the nodes of a ContextTreeLongAttribute are untyped
+        return tree;
+    }
+
     public long evaluate(final Object node) {
         return evaluate(tree, node);
     }
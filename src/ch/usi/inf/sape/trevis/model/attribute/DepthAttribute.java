@@ -16,12 +16,25 @@ import ch.usi.inf.sape.trevis.model.ContextTree;
  * This is a general attribute. It does not depend on a specific ContextTreeNode implementation. For any given node, it returns its depth
  * (the length of the path to the root).
  * 
+ * For evaluating it on many nodes, construct it with StructuralStatistics.
+ * 
  * @author Matthias.Hauswirth@usi.ch
  */
 public final class DepthAttribute extends ContextTreeLongAttribute {
 
+    private final StructuralStatistics statistics;
+
     public DepthAttribute(final ContextTree tree) {
         super(tree);
+        this.statistics = null;
+    }
+
+    /**
+     * Create an attribute that looks up its values in the given (precomputed) statistics.
+     */
+    public DepthAttribute(final StructuralStatistics statistics) {
+        super(statistics.getTree());
+        this.statistics = statistics;
     }
 
     public String getName() {
@@ -33,12 +46,17 @@ public final class DepthAttribute extends ContextTreeLongAttribute {
     }
 
     public long evaluate(final ContextTree tree, final Object node) {
-        long depth;
-        Object parent = tree.getParent(node);
-        if (parent == null) {
-            depth = 0;
-        } else {
-            depth = 1 + evaluate(tree, parent);
+        if (statistics != null) {
+            final int index = statistics.indexOf(node);
+            if (index >= 0) {
+                return statistics.getDepth(index);
+            }
+        }
+        @SuppressWarnings("unchecked")
+        final ContextTree<Object> objectTree = tree;
+        long depth = 0;
+        for (Object parent = objectTree.getParent(node); parent != null; parent = objectTree.getParent(parent)) {
+            depth++;
         }
         return depth;
     }
@@ -11,17 +11,32 @@
 package ch.usi.inf.sape.trevis.model.attribute;
 
 import ch.usi.inf.sape.trevis.model.ContextTree;
+import ch.usi.inf.sape.trevis.model.FrozenContextTree;
+import ch.usi.inf.sape.trevis.model.TreeCursor;
 
 /**
  * This is a general attribute. It does not depend on a specific ContextTreeNode implementation. For any given node, it returns the number
  * of descendants (note that a leaf node has 0 descendants).
  * 
+ * For evaluating it on many nodes, construct it with StructuralStatistics.
+ * 
  * @author Matthias.Hauswirth@usi.ch
  */
 public final class DescendantCountAttribute extends ContextTreeLongAttribute {
 
+    private final StructuralStatistics statistics;
+
     public DescendantCountAttribute(final ContextTree tree) {
         super(tree);
+        this.statistics = null;
+    }
+
+    /**
+     * Create an attribute that looks up its values in the given (precomputed) statistics.
+     */
+    public DescendantCountAttribute(final StructuralStatistics statistics) {
+        super(statistics.getTree());
+        this.statistics = statistics;
     }
 
     public String getName() {
@@ -33,11 +48,26 @@ public final class DescendantCountAttribute extends ContextTreeLongAttribute {
     }
 
     public long evaluate(final ContextTree tree, final Object node) {
-        long childrensDescendants = 0;
-        for (final Object child : tree.iterable(node)) {
-            childrensDescendants += evaluate(tree, child);
+        if (statistics != null) {
+            final int index = statistics.indexOf(node);
+            if (index >= 0) {
+                return statistics.getDescendantCount(index);
+            }
+        }
+        if (tree instanceof FrozenContextTree) {
+            @SuppressWarnings("unchecked")
+            final FrozenContextTree<Object> frozen = (FrozenContextTree<Object>) tree;
+            return frozen.getDescendantCount(node);
+        }
+        long descendants = -1;
+        @SuppressWarnings("unchecked")
+        final ContextTree<Object> objectTree = tree;
+        final TreeCursor<Object> cursor = new TreeCursor<Object>(objectTree);
+        cursor.reset(node, TreeCursor.Order.PRE_ORDER);
+        while (cursor.next()) {
+            descendants++;
         }
-        return tree.getChildCount(node) + childrensDescendants;
+        return descendants;
     }
 
 }
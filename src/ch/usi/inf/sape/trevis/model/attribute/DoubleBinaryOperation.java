@@ -37,6 +37,10 @@ public abstract class DoubleBinaryOperation extends DoubleAttribute {
 	public String getDescription() {
 		return description;
 	}
+
+	public NodeAttribute[] getArguments() {
+		return new NodeAttribute[] {a, b};
+	}
 	
 	public final double evaluate(final Object node) {
 		return compute(a.evaluate(node), b.evaluate(node));
@@ -41,6 +41,18 @@ public final class DoubleConditional extends DoubleAttribute {
 	public String getDescription() {
 		return "if ("+condition.getDescription()+") {"+ifArg.getDescription()+"} else {"+elseArg.getDescription()+"}";
 	}
+
+	public NodeAttribute[] getArguments() {
+		return new NodeAttribute[] {condition, ifArg, elseArg};
+	}
+
+	public boolean canRebuild() {
+		return true;
+	}
+
+	public DoubleAttribute withArguments(final NodeAttribute[] arguments) {
+		return new DoubleConditional(name, (BooleanAttribute) arguments[0], (DoubleAttribute) arguments[1], (DoubleAttribute) arguments[2]);
+	}
 	
 	public double evaluate(final Object node) {
 		if (condition.evaluate(node)) {
@@ -45,6 +45,18 @@ public final class DoubleGreaterThan extends BooleanAttribute {
 	public String getDescription() {
 		return description;
 	}
+
+	public NodeAttribute[] getArguments() {
+		return new NodeAttribute[] {a, b};
+	}
+
+	public boolean canRebuild() {
+		return true;
+	}
+
+	public BooleanAttribute withArguments(final NodeAttribute[] arguments) {
+		return new DoubleGreaterThan(name, description, (DoubleAttribute) arguments[0], (DoubleAttribute) arguments[1]);
+	}
 	
 	public final boolean evaluate(final Object node) {
 		return a.evaluate(node)>b.evaluate(node);
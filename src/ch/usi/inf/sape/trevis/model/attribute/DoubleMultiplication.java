@@ -34,4 +34,12 @@ public final class DoubleMultiplication extends DoubleBinaryOperation {
 		return a*b;
 	}
 	
+	public boolean canRebuild() {
+		return true;
+	}
+
+	public DoubleAttribute withArguments(final NodeAttribute[] arguments) {
+		return new DoubleMultiplication(getName(), getDescription(), (DoubleAttribute) arguments[0], (DoubleAttribute) arguments[1]);
+	}
+	
 }
@@ -47,5 +47,17 @@ public final class DoubleNegation extends DoubleAttribute {
 	public String getDescription() {
 		return description;
 	}
+
+	public NodeAttribute[] getArguments() {
+		return new NodeAttribute[] {argument};
+	}
+
+	public boolean canRebuild() {
+		return true;
+	}
+
+	public DoubleAttribute withArguments(final NodeAttribute[] arguments) {
+		return new DoubleNegation(name, description, (DoubleAttribute) arguments[0]);
+	}
 	
 }
@@ -34,4 +34,12 @@ public final class DoubleSubtraction extends DoubleBinaryOperation {
 		return a-b;
 	}
 	
+	public boolean canRebuild() {
+		return true;
+	}
+
+	public DoubleAttribute withArguments(final NodeAttribute[] arguments) {
+		return new DoubleSubtraction(getName(), getDescription(), (DoubleAttribute) arguments[0], (DoubleAttribute) arguments[1]);
+	}
+	
 }
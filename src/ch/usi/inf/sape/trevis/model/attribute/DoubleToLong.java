@@ -47,5 +47,17 @@ public final class DoubleToLong extends LongAttribute {
 	public String getDescription() {
 		return description;
 	}
+
+	public NodeAttribute[] getArguments() {
+		return new NodeAttribute[] {argument};
+	}
+
+	public boolean canRebuild() {
+		return true;
+	}
+
+	public LongAttribute withArguments(final NodeAttribute[] arguments) {
+		return new DoubleToLong(name, description, (DoubleAttribute) arguments[0]);
+	}
 	
 }
@@ -11,6 +11,7 @@
 package ch.usi.inf.sape.trevis.model.attribute;
 
 import ch.usi.inf.sape.trevis.model.ContextTree;
+import ch.usi.inf.sape.trevis.model.TreeCursor;
 
 
 /**
@@ -19,14 +20,28 @@ import ch.usi.inf.sape.trevis.model.ContextTree;
  * For any given node, it returns its height
  * (the length of the longest downward path from the node to a leaf).
  * 
+ * For evaluating it on many nodes, construct it with StructuralStatistics.
+ * 
  * @author Matthias.Hauswirth@usi.ch
  */
 public final class HeightAttribute extends ContextTreeLongAttribute {
 
+	private final StructuralStatistics statistics;
+	
+
 	public HeightAttribute(ContextTree tree) {
         super(tree);
+        this.statistics = null;
     }
 
+	/**
+	 * Create an attribute that looks up its values in the given (precomputed) statistics.
+	 */
+	public HeightAttribute(final StructuralStatistics statistics) {
+		super(statistics.getTree());
+		this.statistics = statistics;
+	}
+
     public String getName() {
 		return "Height";
 	}
@@ -36,11 +51,29 @@ public final class HeightAttribute extends ContextTreeLongAttribute {
 	}
 	
 	public long evaluate(final ContextTree tree, final Object node) {
-		long maxChildHeight = 0;
-		for (final Object child : tree.iterable(node)) {
-			maxChildHeight = Math.max(maxChildHeight, evaluate(tree, child));
+		if (statistics != null) {
+			final int index = statistics.indexOf(node);
+			if (index >= 0) {
+				return statistics.getHeight(index);
+			}
+		}
+		@SuppressWarnings("unchecked")
+		final ContextTree<Object> objectTree = tree;
+		return computeHeight(objectTree, node);
+	}
+	
+	/**
+	 * Compute the height of the given node with a single walk over its subtree
+	 * (using a TreeCursor, so it also works for very deep trees).
+	 */
+	public static <T> long computeHeight(final ContextTree<T> tree, final T node) {
+		int maxDepth = 0;
+		final TreeCursor<T> cursor = new TreeCursor<T>(tree);
+		cursor.reset(node, TreeCursor.Order.PRE_ORDER);
+		while (cursor.next()) {
+			maxDepth = Math.max(maxDepth, cursor.getDepth());
 		}
-		return 1+maxChildHeight;
+		return 1+maxDepth;
 	}
 	
 }
@@ -11,17 +11,24 @@
 package ch.usi.inf.sape.trevis.model.attribute;
 
 import ch.usi.inf.sape.trevis.model.ContextTree;
+import ch.usi.inf.sape.trevis.model.TreeCursor;
+import ch.usi.inf.sape.trevis.model.NodeIndex;
 
 /**
  * Given an exclusive (value only for the given node) DoubleAttribute, computes the inclusive value (value for the given node and all its
  * descendants).
  * 
+ * Like InclusiveLongAttribute, this attribute can be materialized, so that evaluate() becomes a simple lookup.
+ * 
+ * @see ch.usi.inf.sape.trevis.model.attribute.InclusiveLongAttribute
+ * 
  * @author Matthias.Hauswirth@usi.ch
  */
 public final class InclusiveDoubleAttribute extends DoubleAttribute {
 
     private final ContextTree tree;
     private final DoubleAttribute exclusiveAttribute;
+    private volatile Materialization materialization;
 
     public InclusiveDoubleAttribute(final ContextTree tree, final DoubleAttribute exclusiveAttribute) {
         this.tree = tree;
@@ -36,12 +43,82 @@ public final class InclusiveDoubleAttribute extends DoubleAttribute {
         return "Inclusive(" + exclusiveAttribute.getDescription() + ")";
     }
 
+    public NodeAttribute[] getArguments() {
+        return new NodeAttribute[] {exclusiveAttribute};
+    }
+
+    /**
+     * Compute the inclusive values of all nodes of the tree in a single pass.
+     */
+    public void materialize() {
+        @SuppressWarnings("unchecked")
+        final ContextTree<Object> objectTree = tree;
+        materialize(new NodeIndex<Object>(objectTree));
+    }
+
+    /**
+     * Compute the inclusive values of all nodes in the given index in a single pass. Use this to share one NodeIndex between several
+     * materialized attributes.
+     */
+    public void materialize(final NodeIndex<?> index) {
+        final double[] values = new double[index.size()];
+        // walk backwards, so each node is complete before it gets added to its parent
+        for (int i = values.length - 1; i >= 0; i--) {
+            values[i] += exclusiveAttribute.evaluate(index.getNode(i));
+            final int parent = index.getParentIndex(i);
+            if (parent >= 0) {
+                values[parent] += values[i];
+            }
+        }
+        materialization = new Materialization(index, values);
+    }
+
+    /**
+     * @return this attribute, if it is materialized, or else a materialized copy of it (leaving this attribute unchanged). Use this in
+     *         operations that want to evaluate an attribute for many nodes without changing the attribute they were given.
+     */
+    public InclusiveDoubleAttribute materialized() {
+        if (materialization != null) {
+            return this;
+        }
+        final InclusiveDoubleAttribute copy = new InclusiveDoubleAttribute(tree, exclusiveAttribute);
+        copy.materialize();
+        return copy;
+    }
+
+    public boolean isMaterialized() {
+        return materialization != null;
+    }
+
     public double evaluate(final Object node) {
-        double value = exclusiveAttribute.evaluate(node);
-        for (final Object child : this.tree.iterable(node)) {
-            value += evaluate(child);
+        final Materialization m = materialization;
+        if (m != null) {
+            final int index = m.index.indexOf(node);
+            if (index >= 0) {
+                return m.values[index];
+            }
+        }
+        double value = 0;
+        @SuppressWarnings("unchecked")
+        final ContextTree<Object> objectTree = tree;
+        final TreeCursor<Object> cursor = new TreeCursor<Object>(objectTree);
+        cursor.reset(node, TreeCursor.Order.PRE_ORDER);
+        while (cursor.next()) {
+            value += exclusiveAttribute.evaluate(cursor.getNode());
         }
         return value;
     }
 
+    private static final class Materialization {
+
+        private final NodeIndex<?> index;
+        private final double[] values;
+
+        private Materialization(final NodeIndex<?> index, final double[] values) {
+            this.index = index;
+            this.values = values;
+        }
+
+    }
+
 }
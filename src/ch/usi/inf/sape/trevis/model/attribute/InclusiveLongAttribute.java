@@ -11,16 +11,23 @@
 package ch.usi.inf.sape.trevis.model.attribute;
 
 import ch.usi.inf.sape.trevis.model.ContextTree;
+import ch.usi.inf.sape.trevis.model.TreeCursor;
+import ch.usi.inf.sape.trevis.model.NodeIndex;
 
 /**
  * Given an exclusive (value only for the given node) LongAttribute, computes the inclusive value (value for the given node and all its
  * descendants).
  * 
+ * By default, each evaluation walks the whole subtree of the given node. If the attribute is evaluated for many nodes (e.g. by a
+ * renderer), call materialize() first: it computes the inclusive values of all nodes in a single bottom-up pass, after which evaluate()
+ * is a simple lookup. The materialized values are a snapshot; call materialize() again after the tree has changed.
+ * 
  * @author Matthias.Hauswirth@usi.ch
  */
 public final class InclusiveLongAttribute extends ContextTreeLongAttribute {
 
     private final LongAttribute exclusiveAttribute;
+    private volatile Materialization materialization;
 
     public InclusiveLongAttribute(final ContextTree tree, final LongAttribute exclusiveAttribute) {
         super(tree);
@@ -35,12 +42,80 @@ public final class InclusiveLongAttribute extends ContextTreeLongAttribute {
         return "Inclusive(" + exclusiveAttribute.getDescription() + ")";
     }
 
+    public NodeAttribute[] getArguments() {
+        return new NodeAttribute[] {exclusiveAttribute};
+    }
+
+    /**
+     * Compute the inclusive values of all nodes of the tree in a single pass.
+     */
+    public void materialize() {
+        materialize(new NodeIndex<Object>(getTree()));
+    }
+
+    /**
+     * Compute the inclusive values of all nodes in the given index in a single pass. Use this to share one NodeIndex between several
+     * materialized attributes.
+     */
+    public void materialize(final NodeIndex<?> index) {
+        final long[] values = new long[index.size()];
+        // walk backwards, so each node is complete before it gets added to its parent
+        for (int i = values.length - 1; i >= 0; i--) {
+            values[i] += exclusiveAttribute.evaluate(index.getNode(i));
+            final int parent = index.getParentIndex(i);
+            if (parent >= 0) {
+                values[parent] += values[i];
+            }
+        }
+        materialization = new Materialization(index, values);
+    }
+
+    /**
+     * @return this attribute, if it is materialized, or else a materialized copy of it (leaving this attribute unchanged). Use this in
+     *         operations that want to evaluate an attribute for many nodes without changing the attribute they were given.
+     */
+    public InclusiveLongAttribute materialized() {
+        if (materialization != null) {
+            return this;
+        }
+        final InclusiveLongAttribute copy = new InclusiveLongAttribute(getTree(), exclusiveAttribute);
+        copy.materialize();
+        return copy;
+    }
+
+    public boolean isMaterialized() {
+        return materialization != null;
+    }
+
     public long evaluate(final ContextTree tree, final Object node) {
-        long value = exclusiveAttribute.evaluate(node);
-        for (final Object child : tree.iterable(node)) {
-            value += evaluate(child);
+        final Materialization m = materialization;
+        if (m != null) {
+            final int index = m.index.indexOf(node);
+            if (index >= 0) {
+                return m.values[index];
+            }
+        }
+        long value = 0;
+        @SuppressWarnings("unchecked")
+        final ContextTree<Object> objectTree = tree;
+        final TreeCursor<Object> cursor = new TreeCursor<Object>(objectTree);
+        cursor.reset(node, TreeCursor.Order.PRE_ORDER);
+        while (cursor.next()) {
+            value += exclusiveAttribute.evaluate(cursor.getNode());
         }
         return value;
     }
 
+    private static final class Materialization {
+
+        private final NodeIndex<?> index;
+        private final long[] values;
+
+        private Materialization(final NodeIndex<?> index, final long[] values) {
+            this.index = index;
+            this.values = values;
+        }
+
+    }
+
 }
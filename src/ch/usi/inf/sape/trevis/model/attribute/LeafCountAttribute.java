@@ -11,17 +11,31 @@
 package ch.usi.inf.sape.trevis.model.attribute;
 
 import ch.usi.inf.sape.trevis.model.ContextTree;
+import ch.usi.inf.sape.trevis.model.TreeCursor;
 
 /**
  * This is a general attribute. It does not depend on a specific ContextTreeNode implementation. For any given node, it returns the number
  * of leaf descendants (for a leaf, it returns 1).
  * 
+ * For evaluating it on many nodes, construct it with StructuralStatistics.
+ * 
  * @author Matthias.Hauswirth@usi.ch
  */
 public final class LeafCountAttribute extends ContextTreeLongAttribute {
 
-    public LeafCountAttribute(ContextTree tree) {
+    private final StructuralStatistics statistics;
+
+    public LeafCountAttribute(final ContextTree tree) {
         super(tree);
+        this.statistics = null;
+    }
+
+    /**
+     * Create an attribute that looks up its values in the given (precomputed) statistics.
+     */
+    public LeafCountAttribute(final StructuralStatistics statistics) {
+        super(statistics.getTree());
+        this.statistics = statistics;
     }
 
     public String getName() {
@@ -33,15 +47,23 @@ public final class LeafCountAttribute extends ContextTreeLongAttribute {
     }
 
     public long evaluate(final ContextTree tree, final Object node) {
-        if (tree.getChildCount(node) == 0) {
-            return 1;
-        } else {
-            long childrensLeafs = 0;
-            for (final Object child : tree.iterable(node)) {
-                childrensLeafs += evaluate(child);
+        if (statistics != null) {
+            final int index = statistics.indexOf(node);
+            if (index >= 0) {
+                return statistics.getLeafCount(index);
+            }
+        }
+        long leafs = 0;
+        @SuppressWarnings("unchecked")
+        final ContextTree<Object> objectTree = tree;
+        final TreeCursor<Object> cursor = new TreeCursor<Object>(objectTree);
+        cursor.reset(node, TreeCursor.Order.PRE_ORDER);
+        while (cursor.next()) {
+            if (objectTree.getChildCount(cursor.getNode()) == 0) {
+                leafs++;
             }
-            return childrensLeafs;
         }
+        return leafs;
     }
 
 }
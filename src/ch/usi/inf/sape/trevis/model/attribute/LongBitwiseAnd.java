@@ -34,4 +34,12 @@ public final class LongBitwiseAnd extends LongBinaryOperation {
 		return a&b;
 	}
 	
+	public boolean canRebuild() {
+		return true;
+	}
+
+	public LongAttribute withArguments(final NodeAttribute[] arguments) {
+		return new LongBitwiseAnd(getName(), getDescription(), (LongAttribute) arguments[0], (LongAttribute) arguments[1]);
+	}
+	
 }
@@ -47,5 +47,17 @@ public final class LongBitwiseNot extends LongAttribute {
 	public String getDescription() {
 		return description;
 	}
+
+	public NodeAttribute[] getArguments() {
+		return new NodeAttribute[] {argument};
+	}
+
+	public boolean canRebuild() {
+		return true;
+	}
+
+	public LongAttribute withArguments(final NodeAttribute[] arguments) {
+		return new LongBitwiseNot(name, description, (LongAttribute) arguments[0]);
+	}
 	
 }
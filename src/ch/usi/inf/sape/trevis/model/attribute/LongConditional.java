@@ -41,6 +41,18 @@ public final class LongConditional extends LongAttribute {
 	public String getDescription() {
 		return "if ("+condition.getDescription()+") {"+ifArg.getDescription()+"} else {"+elseArg.getDescription()+"}";
 	}
+
+	public NodeAttribute[] getArguments() {
+		return new NodeAttribute[] {condition, ifArg, elseArg};
+	}
+
+	public boolean canRebuild() {
+		return true;
+	}
+
+	public LongAttribute withArguments(final NodeAttribute[] arguments) {
+		return new LongConditional(name, (BooleanAttribute) arguments[0], (LongAttribute) arguments[1], (LongAttribute) arguments[2]);
+	}
 	
 	public long evaluate(final Object node) {
 		if (condition.evaluate(node)) {
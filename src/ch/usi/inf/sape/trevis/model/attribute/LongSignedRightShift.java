@@ -34,4 +34,12 @@ public final class LongSignedRightShift extends LongBinaryOperation {
 		return a>>b;
 	}
 	
+	public boolean canRebuild() {
+		return true;
+	}
+
+	public LongAttribute withArguments(final NodeAttribute[] arguments) {
+		return new LongSignedRightShift(getName(), getDescription(), (LongAttribute) arguments[0], (LongAttribute) arguments[1]);
+	}
+	
 }
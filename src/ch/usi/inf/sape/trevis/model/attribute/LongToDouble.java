@@ -47,5 +47,17 @@ public final class LongToDouble extends DoubleAttribute {
 	public String getDescription() {
 		return description;
 	}
+
+	public NodeAttribute[] getArguments() {
+		return new NodeAttribute[] {argument};
+	}
+
+	public boolean canRebuild() {
+		return true;
+	}
+
+	public DoubleAttribute withArguments(final NodeAttribute[] arguments) {
+		return new LongToDouble(name, description, (LongAttribute) arguments[0]);
+	}
 	
 }
@@ -75,5 +75,9 @@ public final class LongestPrefixLookup extends StringAttribute {
 	public String getDescription() {
 		return name;
 	}
+
+	public NodeAttribute[] getArguments() {
+		return new NodeAttribute[] {argument};
+	}
 	
 }
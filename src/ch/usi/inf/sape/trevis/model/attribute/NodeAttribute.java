@@ -21,9 +21,48 @@ package ch.usi.inf.sape.trevis.model.attribute;
  */
 public abstract class NodeAttribute {
 
+	private static final NodeAttribute[] NO_ARGUMENTS = new NodeAttribute[0];
+
 	public abstract String getName();
 	public abstract String getDescription();
 	public abstract Type getType();
 	public abstract Object getValue(Object node);
 
+	/**
+	 * Get the attributes this attribute is computed from (e.g. the two operands of an addition),
+	 * so that tools (like the AttributeCompiler) can walk attribute expressions.
+	 * Attributes that directly extract their value from a node have no arguments.
+	 * 
+	 * @return the arguments of this attribute (an empty array by default)
+	 */
+	public NodeAttribute[] getArguments() {
+		return NO_ARGUMENTS;
+	}
+
+	/**
+	 * Tell whether withArguments() can rebuild this attribute from new arguments.
+	 * Tools (like the AttributeOptimizer) treat attributes that can't be rebuilt as opaque leaves.
+	 * Subclasses that override withArguments() have to override this method too.
+	 * 
+	 * @return true if this attribute has no arguments (by default), or if it can be rebuilt with new arguments
+	 */
+	public boolean canRebuild() {
+		return getArguments().length==0;
+	}
+
+	/**
+	 * Create an attribute that computes the same function as this attribute, but from the given arguments
+	 * (used e.g. by the AttributeOptimizer to rebuild expressions).
+	 * Attributes without arguments return themselves.
+	 * 
+	 * @param arguments the new arguments, of the same number and types as the ones returned by getArguments()
+	 * @throws UnsupportedOperationException if this attribute can't be rebuilt (see canRebuild())
+	 */
+	public NodeAttribute withArguments(final NodeAttribute[] arguments) {
+		if (arguments.length==0 && getArguments().length==0) {
+			return this;
+		}
+		throw new UnsupportedOperationException(getClass().getName()+" can't be rebuilt with new arguments");
+	}
+
 }
@@ -0,0 +1,56 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model.attribute;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * A bounded cache of compiled regular expressions, shared by all StringMatch attributes whose regular expression is not a constant.
+ *
+ * It keeps the CAPACITY most recently used patterns (evicting the least recently used one), and can be used by multiple threads.
+ */
+final class PatternCache {
+
+    static final int CAPACITY = 256;
+
+    private static final LinkedHashMap<String, Pattern> PATTERNS = new LinkedHashMap<String, Pattern>(16, 0.75f, true) {
+        protected boolean removeEldestEntry(final Map.Entry<String, Pattern> eldest) {
+            return size() > CAPACITY;
+        }
+    };
+
+
+    private PatternCache() {
+    }
+
+    /**
+     * @return the compiled version of the given regular expression
+     * @throws java.util.regex.PatternSyntaxException
+     *             if the regular expression is invalid
+     */
+    static Pattern get(final String regex) {
+        synchronized (PATTERNS) {
+            final Pattern pattern = PATTERNS.get(regex);
+            if (pattern != null) {
+                return pattern;
+            }
+        }
+        // compile outside of the lock (two threads may compile the same pattern, which is harmless)
+        final Pattern pattern = Pattern.compile(regex);
+        synchronized (PATTERNS) {
+            PATTERNS.put(regex, pattern);
+        }
+        return pattern;
+    }
+
+}
@@ -10,6 +10,8 @@
  */
 package ch.usi.inf.sape.trevis.model.attribute;
 
+import java.util.Arrays;
+
 /**
  * Concatenate (+) the values of two or more string attributes.
  * 
@@ -39,6 +41,18 @@ public final class StringConcat extends StringAttribute {
 	public String getDescription() {
 		return description;
 	}
+
+	public NodeAttribute[] getArguments() {
+		return arguments.clone();
+	}
+
+	public boolean canRebuild() {
+		return true;
+	}
+
+	public StringAttribute withArguments(final NodeAttribute[] arguments) {
+		return new StringConcat(Arrays.copyOf(arguments, arguments.length, StringAttribute[].class));
+	}
 	
 	public String evaluate(final Object node) {
 		final StringBuffer sb = new StringBuffer();
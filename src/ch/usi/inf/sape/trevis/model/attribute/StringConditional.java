@@ -41,6 +41,18 @@ public final class StringConditional extends StringAttribute {
 	public String getDescription() {
 		return "if ("+condition.getDescription()+") {"+ifArg.getDescription()+"} else {"+elseArg.getDescription()+"}";
 	}
+
+	public NodeAttribute[] getArguments() {
+		return new NodeAttribute[] {condition, ifArg, elseArg};
+	}
+
+	public boolean canRebuild() {
+		return true;
+	}
+
+	public StringAttribute withArguments(final NodeAttribute[] arguments) {
+		return new StringConditional(name, (BooleanAttribute) arguments[0], (StringAttribute) arguments[1], (StringAttribute) arguments[2]);
+	}
 	
 	public String evaluate(final Object node) {
 		if (condition.evaluate(node)) {
@@ -22,11 +22,14 @@ public final class StringContains extends BooleanAttribute {
 
 	private final StringAttribute attribute;
 	private final StringAttribute substringAttribute;
+	// the substring, if substringAttribute is a constant (or null)
+	private final String substring;
 	
 	
 	public StringContains(final StringAttribute attribute, final StringAttribute substringAttribute) {
 		this.attribute = attribute;
 		this.substringAttribute = substringAttribute;
+		substring = Util.constantValue(substringAttribute);
 	}
 		
 	public String getName() {
@@ -36,9 +39,21 @@ public final class StringContains extends BooleanAttribute {
 	public String getDescription() {
 		return attribute.getName()+" contains "+substringAttribute.getName();
 	}
+
+	public NodeAttribute[] getArguments() {
+		return new NodeAttribute[] {attribute, substringAttribute};
+	}
+
+	public boolean canRebuild() {
+		return true;
+	}
+
+	public BooleanAttribute withArguments(final NodeAttribute[] arguments) {
+		return new StringContains((StringAttribute) arguments[0], (StringAttribute) arguments[1]);
+	}
 	
 	public boolean evaluate(final Object node) {
-		return attribute.evaluate(node).contains(substringAttribute.evaluate(node));
+		return attribute.evaluate(node).contains(substring!=null ? substring : substringAttribute.evaluate(node));
 	}
 	
 }
@@ -31,6 +31,18 @@ public final class StringLength extends LongAttribute {
 	public String getDescription() {
 		return "StringLength("+argument.getDescription()+")";
 	}
+
+	public NodeAttribute[] getArguments() {
+		return new NodeAttribute[] {argument};
+	}
+
+	public boolean canRebuild() {
+		return true;
+	}
+
+	public LongAttribute withArguments(final NodeAttribute[] arguments) {
+		return new StringLength((StringAttribute) arguments[0]);
+	}
 	
 	public long evaluate(final Object node) {
 		return argument.evaluate(node).length();
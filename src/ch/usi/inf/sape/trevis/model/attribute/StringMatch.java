@@ -10,14 +10,18 @@
  */
 package ch.usi.inf.sape.trevis.model.attribute;
 
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 
 /**
  * Comparison (=~) of two string attributes,
  * determining whether the left string matches the regular expression in the right string.
  * 
+ * If the regular expression is a StringConstant, it is compiled only once
+ * (and if it contains no special characters, matching it is a plain substring search).
+ * Otherwise, the compiled patterns come from a PatternCache.
+ * 
  * @author Matthias.Hauswirth@usi.ch
  */
 public final class StringMatch extends BooleanAttribute {
@@ -26,6 +30,9 @@ public final class StringMatch extends BooleanAttribute {
 	private final StringAttribute right;
 	private final String name;
 	private final String description;
+	// for a constant regular expression: the compiled pattern, or the literal to search for (or null)
+	private final Pattern pattern;
+	private final String literal;
 
 	
 	public StringMatch(final StringAttribute left, final StringAttribute right) {
@@ -41,6 +48,32 @@ public final class StringMatch extends BooleanAttribute {
 		this.description = description;
 		this.left = left;
 		this.right = right;
+		final String constant = Util.constantValue(right);
+		if (constant!=null && isLiteral(constant)) {
+			literal = constant;
+			pattern = null;
+		} else {
+			literal = null;
+			pattern = constant!=null ? compile(constant) : null;
+		}
+	}
+
+	private static boolean isLiteral(final String regex) {
+		for (int i=0; i<regex.length(); i++) {
+			if ("\\^$.|?*+()[]{}".indexOf(regex.charAt(i))>=0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static Pattern compile(final String regex) {
+		try {
+			return Pattern.compile(regex);
+		} catch (final PatternSyntaxException ex) {
+			// report it when evaluating, like for non-constant regular expressions
+			return null;
+		}
 	}
 
 	public String getName() {
@@ -50,13 +83,27 @@ public final class StringMatch extends BooleanAttribute {
 	public String getDescription() {
 		return description;
 	}
+
+	public NodeAttribute[] getArguments() {
+		return new NodeAttribute[] {left, right};
+	}
+
+	public boolean canRebuild() {
+		return true;
+	}
+
+	public BooleanAttribute withArguments(final NodeAttribute[] arguments) {
+		return new StringMatch(name, description, (StringAttribute) arguments[0], (StringAttribute) arguments[1]);
+	}
 	
 	public final boolean evaluate(final Object node) {
 		final String text = left.evaluate(node);
-		final String patternString = right.evaluate(node);
-		final Pattern pattern = Pattern.compile(patternString);
-		final Matcher matcher = pattern.matcher(text);
-		return matcher.find();
+		if (literal!=null) {
+			return text.contains(literal);
+		} else if (pattern!=null) {
+			return pattern.matcher(text).find();
+		}
+		return PatternCache.get(right.evaluate(node)).matcher(text).find();
 	}
 	
 }
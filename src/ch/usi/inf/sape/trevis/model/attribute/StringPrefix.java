@@ -23,18 +23,19 @@ public final class StringPrefix extends BooleanAttribute {
 	private final String name;
 	private final StringAttribute attribute;
 	private final StringAttribute prefixAttribute;
+	// the prefix, if prefixAttribute is a constant (or null)
+	private final String prefix;
 	
 	
 	public StringPrefix(final String name, final StringAttribute attribute, final StringAttribute prefixAttribute) {
 		this.name = name;
 		this.attribute = attribute;
 		this.prefixAttribute = prefixAttribute;
+		prefix = Util.constantValue(prefixAttribute);
 	}
 	
 	public StringPrefix(final StringAttribute attribute, final StringAttribute prefixAttribute) {
-		this.name = null;
-		this.attribute = attribute;
-		this.prefixAttribute = prefixAttribute;
+		this(null, attribute, prefixAttribute);
 	}
 	
 	public String getName() {
@@ -48,9 +49,21 @@ public final class StringPrefix extends BooleanAttribute {
 	public String getDescription() {
 		return attribute.getName()+" starts with "+prefixAttribute.getName();
 	}
+
+	public NodeAttribute[] getArguments() {
+		return new NodeAttribute[] {attribute, prefixAttribute};
+	}
+
+	public boolean canRebuild() {
+		return true;
+	}
+
+	public BooleanAttribute withArguments(final NodeAttribute[] arguments) {
+		return new StringPrefix(name, (StringAttribute) arguments[0], (StringAttribute) arguments[1]);
+	}
 	
 	public boolean evaluate(final Object node) {
-		return attribute.evaluate(node).startsWith(prefixAttribute.evaluate(node));
+		return attribute.evaluate(node).startsWith(prefix!=null ? prefix : prefixAttribute.evaluate(node));
 	}
 	
 }
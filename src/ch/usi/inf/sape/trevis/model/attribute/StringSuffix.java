@@ -22,11 +22,14 @@ public final class StringSuffix extends BooleanAttribute {
 
 	private final StringAttribute attribute;
 	private final StringAttribute suffixAttribute;
+	// the suffix, if suffixAttribute is a constant (or null)
+	private final String suffix;
 	
 	
 	public StringSuffix(final StringAttribute attribute, final StringAttribute suffixAttribute) {
 		this.attribute = attribute;
 		this.suffixAttribute = suffixAttribute;
+		suffix = Util.constantValue(suffixAttribute);
 	}
 	
 	public String getName() {
@@ -36,9 +39,21 @@ public final class StringSuffix extends BooleanAttribute {
 	public String getDescription() {
 		return attribute.getName()+" ends with "+suffixAttribute.getName();
 	}
+
+	public NodeAttribute[] getArguments() {
+		return new NodeAttribute[] {attribute, suffixAttribute};
+	}
+
+	public boolean canRebuild() {
+		return true;
+	}
+
+	public BooleanAttribute withArguments(final NodeAttribute[] arguments) {
+		return new StringSuffix((StringAttribute) arguments[0], (StringAttribute) arguments[1]);
+	}
 	
 	public boolean evaluate(final Object node) {
-		return attribute.evaluate(node).endsWith(suffixAttribute.evaluate(node));
+		return attribute.evaluate(node).endsWith(suffix!=null ? suffix : suffixAttribute.evaluate(node));
 	}
 	
 }
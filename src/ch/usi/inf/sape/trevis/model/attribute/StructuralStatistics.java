@@ -0,0 +1,114 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model.attribute;
+
+import ch.usi.inf.sape.trevis.model.ContextTree;
+import ch.usi.inf.sape.trevis.model.NodeIndex;
+
+/**
+ * The structural metrics of all nodes of a ContextTree (number of descendants, number of leafs, height, depth, and number of children),
+ * computed together in a single pass.
+ *
+ * Pass a StructuralStatistics to the constructors of DescendantCountAttribute, LeafCountAttribute, HeightAttribute, DepthAttribute, or
+ * ChildCountAttribute to make them look up their values instead of walking the tree on every evaluation. The statistics are a snapshot;
+ * create new statistics after the tree has changed.
+ */
+public final class StructuralStatistics {
+
+    private final ContextTree<?> tree;
+    private final NodeIndex<?> index;
+    private final int[] descendants;
+    private final int[] leafs;
+    private final int[] heights;
+    private final int[] depths;
+    private final int[] children;
+
+    public <T> StructuralStatistics(final ContextTree<T> tree) {
+        this(tree, new NodeIndex<T>(tree));
+    }
+
+    /**
+     * Compute the statistics for all nodes in the given index (which must have been built for the given tree).
+     */
+    public <T> StructuralStatistics(final ContextTree<T> tree, final NodeIndex<T> index) {
+        this.tree = tree;
+        this.index = index;
+        final int size = index.size();
+        descendants = new int[size];
+        leafs = new int[size];
+        heights = new int[size];
+        depths = new int[size];
+        children = new int[size];
+        if (size == 0) {
+            return;
+        }
+        // top-down: parents come before their children
+        depths[0] = computeDepth(tree, index.getNode(0));
+        for (int i = 1; i < size; i++) {
+            final int parent = index.getParentIndex(i);
+            depths[i] = depths[parent] + 1;
+            children[parent]++;
+        }
+        // bottom-up: children come after their parents
+        for (int i = size - 1; i >= 0; i--) {
+            if (children[i] == 0) {
+                leafs[i] = 1;
+                heights[i] = 1;
+            }
+            final int parent = index.getParentIndex(i);
+            if (parent >= 0) {
+                descendants[parent] += descendants[i] + 1;
+                leafs[parent] += leafs[i];
+                heights[parent] = Math.max(heights[parent], heights[i] + 1);
+            }
+        }
+    }
+
+    private static <T> int computeDepth(final ContextTree<T> tree, final T node) {
+        int depth = 0;
+        for (T parent = tree.getParent(node); parent != null; parent = tree.getParent(parent)) {
+            depth++;
+        }
+        return depth;
+    }
+
+    public ContextTree<?> getTree() {
+        return tree;
+    }
+
+    /**
+     * @return the index of the given node, or -1 if these statistics don't cover the node
+     */
+    public int indexOf(final Object node) {
+        return index.indexOf(node);
+    }
+
+    public int getDescendantCount(final int index) {
+        return descendants[index];
+    }
+
+    public int getLeafCount(final int index) {
+        return leafs[index];
+    }
+
+    public int getHeight(final int index) {
+        return heights[index];
+    }
+
+    public int getDepth(final int index) {
+        return depths[index];
+    }
+
+    public int getChildCount(final int index) {
+        return children[index];
+    }
+
+}
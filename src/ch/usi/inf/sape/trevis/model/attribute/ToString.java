@@ -31,6 +31,18 @@ public final class ToString extends StringAttribute {
 	public String getDescription() {
 		return "ToString("+attribute.getDescription()+")";
 	}
+
+	public NodeAttribute[] getArguments() {
+		return new NodeAttribute[] {attribute};
+	}
+
+	public boolean canRebuild() {
+		return true;
+	}
+
+	public StringAttribute withArguments(final NodeAttribute[] arguments) {
+		return new ToString(arguments[0]);
+	}
 	
 	public String evaluate(final Object node) {
 		return attribute.getValue(node).toString();
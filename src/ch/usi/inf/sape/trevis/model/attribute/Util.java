@@ -25,5 +25,14 @@ public final class Util {
 		sb.append(b.getName());
 		return sb.append(")").toString();
 	}
+
+	/**
+	 * Used by attributes that specialize their evaluation for constant arguments.
+	 * 
+	 * @return the value of the given attribute if it is a StringConstant, or null
+	 */
+	static String constantValue(final StringAttribute attribute) {
+		return attribute instanceof StringConstant ? ((StringConstant)attribute).evaluate(null) : null;
+	}
 	
 }
@@ -0,0 +1,78 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model.operations;
+
+
+/**
+ * A ContextTreeFactory for trees whose nodes can be modified after they were created.
+ *
+ * Only the ContextTreeOperations that update nodes in place need it (mergeInto, pruneAbsolute, pruneRelative, project and invert);
+ * all other operations work with any ContextTreeFactory.
+ *
+ * @see ch.usi.inf.sape.trevis.model.operations.ContextTreeOperations#mergeInto(ch.usi.inf.sape.trevis.model.ContextTree,
+ *      ch.usi.inf.sape.trevis.model.ContextTree, AccumulatingContextTreeFactory)
+ */
+public interface AccumulatingContextTreeFactory<T> extends ContextTreeFactory<T> {
+
+	/**
+	 * Accumulate just the contents of sourceNode (e.g. the relevant attributes) into targetNode,
+	 * modifying targetNode, but not the list of its children.
+	 * Used by ContextTreeOperations.mergeInto, to update a long-lived target tree in place.
+	 *
+	 * Accumulation of numeric attributes usually corresponds to v1 + v2 (like addNodes).
+	 *
+	 * The label of targetNode doesn't change (sourceNode may have a different label,
+	 * e.g. when pruning folds a dropped node into its parent).
+	 *
+	 * @param targetNode a node of the target tree, to be modified
+	 * @param sourceNode a node of the source tree
+	 */
+	public void accumulateInto(T targetNode, T sourceNode);
+
+	/**
+	 * Create a clone of the given node (like cloneNode), and make it the last child of parent,
+	 * which is a node of an existing (target) tree.
+	 * Used by ContextTreeOperations.mergeInto, to add nodes missing in the target tree.
+	 *
+	 * The default implementation calls cloneNode and connectParentAndChild;
+	 * factories that can't connect their clones to nodes of other trees should override it.
+	 *
+	 * @param parent a node of the target tree
+	 * @param node the node to be cloned
+	 * @return the new child of parent, without children
+	 */
+	public default T cloneChild(final T parent, final T node) {
+		final T child = cloneNode(node);
+		connectParentAndChild(parent, child);
+		return child;
+	}
+
+	/**
+	 * Create a new node with the given label and with empty contents (e.g. all numeric attributes 0), without children.
+	 * Used by ContextTreeOperations.pruneAbsolute and pruneRelative, for the synthetic node the pruned nodes are folded into
+	 * (the contents of the pruned nodes are then added to it with accumulateInto).
+	 *
+	 * @param label the label of the new node
+	 * @return a new ContextTreeNode, without children
+	 */
+	public T createNode(Object label);
+
+	/**
+	 * Give a node created by this factory (and not yet connected to a parent) a new label.
+	 * Used by operations that change labels (ContextTreeOperations.project and invert).
+	 *
+	 * @param node a node created by this factory
+	 * @param label the new label
+	 * @return the node with the new label (the given node, if it can be relabeled in place, or a replacement)
+	 */
+	public T relabelNode(T node, Object label);
+
+}
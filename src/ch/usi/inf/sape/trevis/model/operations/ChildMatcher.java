@@ -0,0 +1,154 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model.operations;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import ch.usi.inf.sape.trevis.model.ChildIndex;
+import ch.usi.inf.sape.trevis.model.ContextTree;
+
+/**
+ * Matches the children of two corresponding nodes (of two different trees) by their labels, for ContextTreeOperations.
+ *
+ * The matched children are returned as two aligned lists: at each position, either both lists contain a child (two children with equal
+ * labels), or one of them contains a child and the other one contains null (a child that exists below only one of the two nodes).
+ *
+ * For nodes with few children, or for trees whose children already are in canonical order, the children are matched with a sort-merge
+ * (using the factory's node comparator), which produces the matches in comparator order. If the factory declares that its comparator is
+ * consistent with the equality of labels (ContextTreeFactory.isComparatorConsistentWithLabels), nodes with at least HASH_JOIN_THRESHOLD
+ * children, whose children would have to be sorted, are matched with a hash-join on the labels (using their equals() and hashCode()
+ * methods), which avoids sorting: the matches are produced in the order of the children of the first node, followed by the unmatched
+ * children of the second node.
+ *
+ * A ChildMatcher keeps no state between calls, so it can be used by multiple threads at the same time.
+ */
+final class ChildMatcher<T> {
+
+    /**
+     * The number of children (of the wider of the two nodes) at and above which children are matched with a hash-join.
+     */
+    static final int HASH_JOIN_THRESHOLD = 256;
+
+    private final ContextTree<T> aTree;
+    private final ContextTree<T> bTree;
+    private final Comparator<T> comparator;
+    private final OrderedChildren<T> aOrderedChildren;
+    private final OrderedChildren<T> bOrderedChildren;
+    private final boolean canonical;
+    private final boolean hashJoin;
+
+    ChildMatcher(final ContextTree<T> aTree, final ContextTree<T> bTree, final ContextTreeFactory<T> factory) {
+        this.aTree = aTree;
+        this.bTree = bTree;
+        comparator = factory.getNodeComparator();
+        aOrderedChildren = new OrderedChildren<T>(aTree, factory);
+        bOrderedChildren = new OrderedChildren<T>(bTree, factory);
+        canonical = aOrderedChildren.isCanonical() && bOrderedChildren.isCanonical();
+        hashJoin = !canonical && factory.isComparatorConsistentWithLabels();
+    }
+
+    /**
+     * Match the children of aNode (of tree A) and bNode (of tree B), and append them, aligned, to aMatches and bMatches.
+     *
+     * @param withAOnly
+     *            whether to include the children that only exist below aNode
+     * @param withBOnly
+     *            whether to include the children that only exist below bNode
+     */
+    void match(final T aNode, final T bNode, final boolean withAOnly, final boolean withBOnly, final ArrayList<T> aMatches,
+            final ArrayList<T> bMatches) {
+        if (hashJoin && Math.max(aTree.getChildCount(aNode), bTree.getChildCount(bNode)) >= HASH_JOIN_THRESHOLD) {
+            hashJoin(aNode, bNode, withAOnly, withBOnly, aMatches, bMatches);
+        } else {
+            sortMerge(aNode, bNode, withAOnly, withBOnly, aMatches, bMatches);
+        }
+    }
+
+    private void sortMerge(final T aNode, final T bNode, final boolean withAOnly, final boolean withBOnly, final ArrayList<T> aMatches,
+            final ArrayList<T> bMatches) {
+        final List<T> aChildren = aOrderedChildren.get(aNode);
+        final List<T> bChildren = bOrderedChildren.get(bNode);
+        final int aSize = aChildren.size();
+        final int bSize = bChildren.size();
+        int a = 0;
+        int b = 0;
+        while (a < aSize && b < bSize) {
+            final T aChild = aChildren.get(a);
+            final T bChild = bChildren.get(b);
+            final int result = comparator.compare(aChild, bChild);
+            if (result == 0) {
+                // a==b
+                add(aChild, bChild, aMatches, bMatches);
+                a++;
+                b++;
+            } else if (result < 0) {
+                // a<b
+                if (withAOnly) {
+                    add(aChild, null, aMatches, bMatches);
+                }
+                a++;
+            } else {
+                // b<a
+                if (withBOnly) {
+                    add(null, bChild, aMatches, bMatches);
+                }
+                b++;
+            }
+        }
+        if (withAOnly) {
+            for (; a < aSize; a++) {
+                add(aChildren.get(a), null, aMatches, bMatches);
+            }
+        }
+        if (withBOnly) {
+            for (; b < bSize; b++) {
+                add(null, bChildren.get(b), aMatches, bMatches);
+            }
+        }
+    }
+
+    private void hashJoin(final T aNode, final T bNode, final boolean withAOnly, final boolean withBOnly, final ArrayList<T> aMatches,
+            final ArrayList<T> bMatches) {
+        // build the hash table on the children of bNode
+        final ArrayList<T> bChildren = new ArrayList<T>(bTree.getChildCount(bNode));
+        final ChildIndex bIndex = new ChildIndex(bTree.getChildCount(bNode));
+        for (final T bChild : bTree.iterable(bNode)) {
+            bIndex.put(bTree.getLabel(bChild), bChildren.size());
+            bChildren.add(bChild);
+        }
+        // probe it with the children of aNode
+        final boolean[] matched = new boolean[bChildren.size()];
+        for (final T aChild : aTree.iterable(aNode)) {
+            final int b = bIndex.get(aTree.getLabel(aChild));
+            if (b >= 0) {
+                matched[b] = true;
+                add(aChild, bChildren.get(b), aMatches, bMatches);
+            } else if (withAOnly) {
+                add(aChild, null, aMatches, bMatches);
+            }
+        }
+        if (withBOnly) {
+            for (int b = 0; b < bChildren.size(); b++) {
+                if (!matched[b]) {
+                    add(null, bChildren.get(b), aMatches, bMatches);
+                }
+            }
+        }
+    }
+
+    private static <T> void add(final T aChild, final T bChild, final ArrayList<T> aMatches, final ArrayList<T> bMatches) {
+        aMatches.add(aChild);
+        bMatches.add(bChild);
+    }
+
+}
@@ -12,6 +12,7 @@ package ch.usi.inf.sape.trevis.model.operations;
 
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.List;
 
 import ch.usi.inf.sape.trevis.model.ContextTree;
 
@@ -22,7 +23,11 @@ import ch.usi.inf.sape.trevis.model.ContextTree;
  * 
  * NOTE: If all you want to do is visualize trees, you don't need to implement this class.
  * 
+ * The operations that modify nodes after they were created (e.g. ContextTreeOperations.mergeInto)
+ * need an AccumulatingContextTreeFactory instead.
+ * 
  * @see ch.usi.inf.sape.trevis.model.operations.ContextTreeOperations
+ * @see ch.usi.inf.sape.trevis.model.operations.AccumulatingContextTreeFactory
  * 
  * @author Matthias.Hauswirth@usi.ch
  */
@@ -64,6 +69,32 @@ public interface ContextTreeFactory<T> {
 	 */
 	public T unionNodes(T node1, T node2);
 	
+	/**
+	 * Union just the contents of any number of nodes (e.g. the relevant attributes),
+	 * but not the list of their children.
+	 * Used by the n-ary ContextTreeOperations.union, which calls it once per output node.
+	 * 
+	 * Note that all given nodes have to have equal labels
+	 * (as determined by the Comparator returned by getNodeComparator).
+	 * 
+	 * The default implementation folds the nodes with unionNodes(node1, node2)
+	 * (and clones a single node with cloneNode);
+	 * override it to compute the union directly, without intermediate nodes.
+	 * 
+	 * @param nodes a non-empty list of nodes (which may be reused by the caller after the call)
+	 * @return a new ContextTreeNode, without children, representing the union of the given nodes
+	 */
+	public default T unionNodes(final List<T> nodes) {
+		if (nodes.size() == 1) {
+			return cloneNode(nodes.get(0));
+		}
+		T union = unionNodes(nodes.get(0), nodes.get(1));
+		for (int i = 2; i < nodes.size(); i++) {
+			union = unionNodes(union, nodes.get(i));
+		}
+		return union;
+	}
+	
 	/**
 	 * Intersect just the contents of the nodes (e.g. the relevant attributes),
 	 * but not the list of their children.
@@ -106,6 +137,9 @@ public interface ContextTreeFactory<T> {
 	/**
 	 * Return an ordered list of the children of the given node.
 	 * 
+	 * ContextTreeOperations don't call this for trees whose getChildComparator()
+	 * equals getNodeComparator(), because their children already are in order.
+	 * 
 	 * @param aNode
 	 * @return
 	 */
@@ -113,9 +147,53 @@ public interface ContextTreeFactory<T> {
 
 	/**
 	 * Return a comparator that produces the same order as used in getOrderedChildren().
+	 * Returning the same instance on every call allows trees to declare
+	 * that their children are in this order (see ContextTree.getChildComparator()).
 	 * 
 	 * @return
 	 */
 	public Comparator<T> getNodeComparator();
+
+	/**
+	 * Return whether the Comparator returned by getNodeComparator considers two nodes equal
+	 * exactly if their labels are equal (according to the labels' equals() and hashCode() methods).
+	 * If so, ContextTreeOperations match the children of very wide nodes with a hash-join on their labels,
+	 * instead of sorting them with getOrderedChildren.
+	 * 
+	 * The default implementation returns false, so children are always matched with the comparator.
+	 * 
+	 * @return true if the node comparator is consistent with the equality of labels
+	 */
+	public default boolean isComparatorConsistentWithLabels() {
+		return false;
+	}
+
+	/**
+	 * Return whether this factory supports concurrent calls from several threads,
+	 * as long as they involve different output parents
+	 * (which is usually the case for factories creating independent node objects).
+	 * Only then ParallelContextTreeOperations use several threads.
+	 * 
+	 * The default implementation returns false.
+	 * 
+	 * @return true if this factory can be used by several threads at the same time
+	 */
+	public default boolean isThreadSafe() {
+		return false;
+	}
+
+	/**
+	 * Return a factory creating nodes like this one, for nodes that are never passed to createTree
+	 * (e.g. the nodes of a LazyMergedContextTree, which creates nodes for as long as it is used).
+	 * 
+	 * Factories that keep track of the tree they are building (e.g. OffHeapContextTreeFactory)
+	 * return a new factory with its own state, so such nodes don't end up in the next tree this factory creates.
+	 * The default implementation returns this factory.
+	 * 
+	 * @return a factory to create nodes with, without ever calling createTree
+	 */
+	public default ContextTreeFactory<T> forDetachedNodes() {
+		return this;
+	}
 	
 }
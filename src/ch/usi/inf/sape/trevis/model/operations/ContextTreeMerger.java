@@ -0,0 +1,141 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model.operations;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import ch.usi.inf.sape.trevis.model.ContextTree;
+import ch.usi.inf.sape.trevis.model.TreeCursor;
+
+/**
+ * Merges the children of two corresponding nodes (and, transitively, their subtrees) for ContextTreeOperations.
+ *
+ * The merge keeps an explicit stack of frames (one per pair of matched nodes on the current path) instead of recursing, so it works for
+ * arbitrarily deep trees on threads with a normal stack size. Nodes are created and connected in the same order as a recursive
+ * depth-first merge would. Children are matched with a ChildMatcher, and subtrees present in only one of the trees are cloned with a
+ * SubtreeCloner.
+ *
+ * A ContextTreeMerger can be reused for several merges, but not by multiple threads at the same time.
+ */
+final class ContextTreeMerger<T> {
+
+    static enum Operation {
+        UNION, INTERSECTION, SUBTRACTION
+    }
+
+    private static final class Frame<T> {
+        // the matched children, aligned (see ChildMatcher)
+        private final ArrayList<T> aChildren = new ArrayList<T>();
+        private final ArrayList<T> bChildren = new ArrayList<T>();
+        private int next;
+        private T outNode;
+    }
+
+    private final Operation operation;
+    private final ContextTreeFactory<T> factory;
+    private final ChildMatcher<T> matcher;
+    private final TreeCursor<T> aCursor;
+    private final TreeCursor<T> bCursor;
+    private final SubtreeCloner<T> cloner;
+
+    private Frame<T>[] frames;
+
+    ContextTreeMerger(final Operation operation, final ContextTree<T> aTree, final ContextTree<T> bTree,
+            final ContextTreeFactory<T> factory) {
+        this.operation = operation;
+        this.factory = factory;
+        matcher = new ChildMatcher<T>(aTree, bTree, factory);
+        aCursor = new TreeCursor<T>(aTree);
+        bCursor = new TreeCursor<T>(bTree);
+        cloner = new SubtreeCloner<T>(factory);
+        @SuppressWarnings("unchecked")
+        final Frame<T>[] initialFrames = (Frame<T>[]) new Frame<?>[16];
+        frames = initialFrames;
+    }
+
+    /**
+     * Combine just the contents of two matched nodes.
+     */
+    T combineNodes(final T aNode, final T bNode) {
+        return combineNodes(operation, factory, aNode, bNode);
+    }
+
+    static <T> T combineNodes(final Operation operation, final ContextTreeFactory<T> factory, final T aNode, final T bNode) {
+        switch (operation) {
+        case UNION:
+            return factory.unionNodes(aNode, bNode);
+        case INTERSECTION:
+            return factory.intersectNodes(aNode, bNode);
+        default:
+            return factory.subtractNodes(aNode, bNode);
+        }
+    }
+
+    /**
+     * Merge the subtrees below the matched nodes aNode and bNode, and connect the resulting nodes below outNode.
+     */
+    void mergeChildren(final T aNode, final T bNode, final T outNode) {
+        int top = 0;
+        push(top, aNode, bNode, outNode);
+        while (top >= 0) {
+            final Frame<T> frame = frames[top];
+            final ArrayList<T> aChildren = frame.aChildren;
+            final ArrayList<T> bChildren = frame.bChildren;
+            final int size = aChildren.size();
+            boolean descend = false;
+            while (!descend && frame.next < size) {
+                final T aChild = aChildren.get(frame.next);
+                final T bChild = bChildren.get(frame.next);
+                frame.next++;
+                if (aChild == null) {
+                    cloner.cloneSubtree(bCursor, bChild, frame.outNode);
+                } else if (bChild == null) {
+                    cloner.cloneSubtree(aCursor, aChild, frame.outNode);
+                } else {
+                    final T outChild = combineNodes(aChild, bChild);
+                    factory.connectParentAndChild(frame.outNode, outChild);
+                    top++;
+                    push(top, aChild, bChild, outChild);
+                    descend = true;
+                }
+            }
+            if (!descend) {
+                aChildren.clear();
+                bChildren.clear();
+                frame.outNode = null;
+                top--;
+            }
+        }
+    }
+
+    private void push(final int top, final T aNode, final T bNode, final T outNode) {
+        if (top == frames.length) {
+            frames = Arrays.copyOf(frames, 2 * top);
+        }
+        Frame<T> frame = frames[top];
+        if (frame == null) {
+            frame = new Frame<T>();
+            frames[top] = frame;
+        }
+        matcher.match(aNode, bNode, operation != Operation.INTERSECTION, operation == Operation.UNION, frame.aChildren, frame.bChildren);
+        frame.next = 0;
+        frame.outNode = outNode;
+    }
+
+    /**
+     * Clone the subtrees below inNode (a node of tree A if fromA, otherwise of tree B), and connect the clones below outNode.
+     */
+    void cloneChildren(final boolean fromA, final T inNode, final T outNode) {
+        cloner.cloneChildren(fromA ? aCursor : bCursor, inNode, outNode);
+    }
+
+}
@@ -10,10 +10,16 @@
  */
 package ch.usi.inf.sape.trevis.model.operations;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.List;
 
 import ch.usi.inf.sape.trevis.model.ContextTree;
+import ch.usi.inf.sape.trevis.model.FrozenContextTree;
+import ch.usi.inf.sape.trevis.model.TreeCursor;
+import ch.usi.inf.sape.trevis.model.attribute.InclusiveLongAttribute;
+import ch.usi.inf.sape.trevis.model.attribute.LongAttribute;
+import ch.usi.inf.sape.trevis.model.attribute.StringAttribute;
 
 /**
  * ContextTreeOperations allows you to clone a ContexTree, or to compute the union, intersection, or difference of two ContextTrees.
@@ -22,7 +28,7 @@ import ch.usi.inf.sape.trevis.model.ContextTree;
  * between trees (for highlighting the common nodes).
  * 
  * This also is useful as a means of computing certain similarity metrics, or to highlight all nodes in two trees that are part of their
- * intersection.
+ * intersection. (ContextTreeSimilarity computes such metrics without creating the union or intersection.)
  * 
  * @see http://www.google.com/url?sa=t&source=web&ct=res&cd=5&ved=0CCQQFjAE&url=http%3A%2F%2Feprints.pascal-network.org%2Farchive%2F00002510%2F01%2F01.pdf&ei=I1M2S6PtHceC_Qb84ISLCQ&usg=AFQjCNGUmvpL6sVtJ-zGMDCOTt1eJgE4iA&sig2=bc5-78GECwZjP9NQyq3a2Q
  */
@@ -33,58 +39,22 @@ public final class ContextTreeOperations {
      * corresponding node in B, nb.
      */
     public static <T> ContextTree<T> union(final ContextTree<T> a, final ContextTree<T> b, final ContextTreeFactory<T> factory) {
-        final T root = factory.unionNodes(a.getRoot(), b.getRoot());
-        unionChildren(a, b, a.getRoot(), b.getRoot(), root, factory);
-        final ContextTree<T> tree = factory.createTree(root);
-        return tree;
+        return merge(ContextTreeMerger.Operation.UNION, a, b, factory);
     }
 
-    private static <T> void unionChildren(final ContextTree<T> aTree, final ContextTree<T> bTree, final T aNode, final T bNode,
-            final T outNode, final ContextTreeFactory<T> factory) {
-        final ArrayList<T> aChildren = factory.getOrderedChildren(aNode);
-        final ArrayList<T> bChildren = factory.getOrderedChildren(bNode);
-        final Comparator<T> comparator = factory.getNodeComparator();
-        int a = 0;
-        int b = 0;
-        while (a < aChildren.size() || b < bChildren.size()) {
-            if (a < aChildren.size() && b < bChildren.size()) {
-                final T aChild = aChildren.get(a);
-                final T bChild = bChildren.get(b);
-                final int result = comparator.compare(aChild, bChild);
-                if (result == 0) {
-                    // a==b
-                    final T outChild = factory.unionNodes(aChild, bChild);
-                    factory.connectParentAndChild(outNode, outChild);
-                    unionChildren(aTree, bTree, aChild, bChild, outChild, factory);
-                    a++;
-                    b++;
-                } else if (result < 0) {
-                    // a<b
-                    final T outChild = factory.cloneNode(aChild);
-                    factory.connectParentAndChild(outNode, outChild);
-                    cloneChildren(aTree, aChild, outChild, factory);
-                    a++;
-                } else {
-                    // b<a
-                    final T outChild = factory.cloneNode(bChild);
-                    factory.connectParentAndChild(outNode, outChild);
-                    cloneChildren(bTree, bChild, outChild, factory);
-                    b++;
-                }
-            } else if (a < aChildren.size()) {
-                final T aChild = aChildren.get(a);
-                final T outChild = factory.cloneNode(aChild);
-                factory.connectParentAndChild(outNode, outChild);
-                cloneChildren(aTree, aChild, outChild, factory);
-                a++;
-            } else {
-                final T bChild = bChildren.get(b);
-                final T outChild = factory.cloneNode(bChild);
-                factory.connectParentAndChild(outNode, outChild);
-                cloneChildren(bTree, bChild, outChild, factory);
-                b++;
-            }
+    /**
+     * Create a ContextTree<T>C, which is the union of all the given trees. Each node of C is created with a single call to
+     * factory.unionNodes(List), with the corresponding nodes of all the trees that contain it. This is equivalent to (but much faster
+     * than) folding the trees with union(a, b, factory).
+     * 
+     * @param trees
+     *            A non-empty list of ContextTrees
+     */
+    public static <T> ContextTree<T> union(final List<ContextTree<T>> trees, final ContextTreeFactory<T> factory) {
+        if (trees.isEmpty()) {
+            throw new IllegalArgumentException("Need at least one tree");
         }
+        return new KWayUnion<T>(trees, factory).union();
     }
 
     /**
@@ -92,93 +62,321 @@ public final class ContextTreeOperations {
      * corresponding node in B, nb.
      */
     public static <T> ContextTree<T> intersection(final ContextTree<T> a, final ContextTree<T> b, final ContextTreeFactory<T> factory) {
-        final T root = factory.intersectNodes(a.getRoot(), b.getRoot());
-        intersectChildren(a, b, a.getRoot(), b.getRoot(), root, factory);
+        return merge(ContextTreeMerger.Operation.INTERSECTION, a, b, factory);
+    }
+
+    /**
+     * Create a ContextTree<T>C, where each node nc, contains the difference of the children of the corresponding node in A, na, and the
+     * corresponding node in B, nb.
+     */
+    public static <T> ContextTree<T> subtract(final ContextTree<T> a, final ContextTree<T> b, final ContextTreeFactory<T> factory) {
+        return merge(ContextTreeMerger.Operation.SUBTRACTION, a, b, factory);
+    }
+
+    /**
+     * Create a view of the union of A and B, which computes the children of a node only when they are first asked for.
+     * 
+     * @see LazyMergedContextTree
+     */
+    public static <T> LazyMergedContextTree<T> unionView(final ContextTree<T> a, final ContextTree<T> b,
+            final ContextTreeFactory<T> factory) {
+        return new LazyMergedContextTree<T>(ContextTreeMerger.Operation.UNION, a, b, factory);
+    }
+
+    /**
+     * Create a view of the intersection of A and B, which computes the children of a node only when they are first asked for.
+     * 
+     * @see LazyMergedContextTree
+     */
+    public static <T> LazyMergedContextTree<T> intersectionView(final ContextTree<T> a, final ContextTree<T> b,
+            final ContextTreeFactory<T> factory) {
+        return new LazyMergedContextTree<T>(ContextTreeMerger.Operation.INTERSECTION, a, b, factory);
+    }
+
+    /**
+     * Create a view of the difference of A and B, which computes the children of a node only when they are first asked for.
+     * 
+     * @see LazyMergedContextTree
+     */
+    public static <T> LazyMergedContextTree<T> subtractView(final ContextTree<T> a, final ContextTree<T> b,
+            final ContextTreeFactory<T> factory) {
+        return new LazyMergedContextTree<T>(ContextTreeMerger.Operation.SUBTRACTION, a, b, factory);
+    }
+
+    static <T> ContextTree<T> merge(final ContextTreeMerger.Operation operation, final ContextTree<T> a, final ContextTree<T> b,
+            final ContextTreeFactory<T> factory) {
+        final ContextTreeMerger<T> merger = new ContextTreeMerger<T>(operation, a, b, factory);
+        final T root = merger.combineNodes(a.getRoot(), b.getRoot());
+        merger.mergeChildren(a.getRoot(), b.getRoot(), root);
         final ContextTree<T> tree = factory.createTree(root);
         return tree;
     }
 
-    private static <T> void intersectChildren(final ContextTree<T> aTree, final ContextTree<T> bTree, final T aNode, final T bNode,
-            final T outNode, final ContextTreeFactory<T> factory) {
-        final ArrayList<T> aChildren = factory.getOrderedChildren(aNode);
-        final ArrayList<T> bChildren = factory.getOrderedChildren(bNode);
-        final Comparator<T> comparator = factory.getNodeComparator();
-        int a = 0;
-        int b = 0;
-        while (a < aChildren.size() && b < bChildren.size()) {
-            final T aChild = aChildren.get(a);
-            final T bChild = bChildren.get(b);
-            final int result = comparator.compare(aChild, bChild);
-            if (result == 0) {
-                // a==b
-                final T outChild = factory.intersectNodes(aChild, bChild);
-                factory.connectParentAndChild(outNode, outChild);
-                intersectChildren(aTree, bTree, aChild, bChild, outChild, factory);
-                a++;
-                b++;
-            } else if (result < 0) {
-                // a<b
-//                final T outChild = factory.cloneNode(aChild);
-//                factory.connectParentAndChild(outNode, outChild);
-//                cloneChildren(aTree, aChild, outChild, factory);
-                a++;
+    /**
+     * Merge the source tree into the target tree, in place. Each node of the source tree whose path of labels also exists in the target
+     * tree is accumulated into the corresponding target node with factory.accumulateInto. Each subtree of the source that is missing in
+     * the target is cloned into the target with factory.cloneChild. Thus only the missing paths allocate new nodes.
+     * 
+     * Children are looked up with target.getChild(node, label), so the target should be a tree with fast label lookups.
+     * 
+     * @param target
+     *            A mutable ContextTree (e.g. a running total), which is modified
+     * @param source
+     *            A ContextTree, which is not modified
+     * @param factory
+     *            An AccumulatingContextTreeFactory<T>
+     */
+    public static <T> void mergeInto(final ContextTree<T> target, final ContextTree<T> source,
+            final AccumulatingContextTreeFactory<T> factory) {
+        // targetNodes[d] is the target node corresponding to the source node at depth d on the current path
+        Object[] targetNodes = new Object[16];
+        // the depth of the first node on the current path that was missing in the target (and was cloned), or MAX_VALUE
+        int clonedDepth = Integer.MAX_VALUE;
+        final TreeCursor<T> cursor = new TreeCursor<T>(source);
+        cursor.reset(source.getRoot(), TreeCursor.Order.PRE_ORDER);
+        while (cursor.next()) {
+            final int depth = cursor.getDepth();
+            final T sourceNode = cursor.getNode();
+            final T targetNode;
+            if (depth == 0) {
+                targetNode = target.getRoot();
+                factory.accumulateInto(targetNode, sourceNode);
             } else {
-                // b<a
-                b++;
+                if (depth <= clonedDepth) {
+                    clonedDepth = Integer.MAX_VALUE;
+                }
+                @SuppressWarnings("unchecked")
+                final T targetParent = (T) targetNodes[depth - 1];
+                final T existing = depth > clonedDepth ? null : target.getChild(targetParent, source.getLabel(sourceNode));
+                if (existing != null) {
+                    targetNode = existing;
+                    factory.accumulateInto(targetNode, sourceNode);
+                } else {
+                    targetNode = factory.cloneChild(targetParent, sourceNode);
+                    clonedDepth = Math.min(clonedDepth, depth);
+                }
+            }
+            if (depth == targetNodes.length) {
+                targetNodes = Arrays.copyOf(targetNodes, 2 * depth);
             }
+            targetNodes[depth] = targetNode;
         }
     }
 
     /**
-     * Create a ContextTree<T>C, where each node nc, contains the difference of the children of the corresponding node in A, na, and the
-     * corresponding node in B, nb.
+     * Create a pruned copy of a ContextTree, without the subtrees whose inclusive value is below the given (absolute) threshold. The
+     * contents of the nodes of each dropped subtree are added (with factory.accumulateInto) to the copy of the subtree's parent, so the
+     * parent's exclusive value grows by the weight of its dropped children, and inclusive values don't change.
+     * 
+     * The root is always kept. If inclusive is an InclusiveLongAttribute that isn't materialized, a materialized copy of it is used (the
+     * given attribute is not changed), so the whole operation takes time linear in the size of the tree.
+     * 
+     * @param inclusive
+     *            An inclusive LongAttribute of the tree (e.g. inclusive sample counts)
+     * @param threshold
+     *            The minimum inclusive value of a node to be kept
+     * @param factory
+     *            An AccumulatingContextTreeFactory<T>
+     * @return A pruned copy of the tree
      */
-    public static <T> ContextTree<T> subtract(final ContextTree<T> a, final ContextTree<T> b, final ContextTreeFactory<T> factory) {
-        final T root = factory.subtractNodes(a.getRoot(), b.getRoot());
-        subtractChildren(a, b, a.getRoot(), b.getRoot(), root, factory);
-        final ContextTree<T> tree = factory.createTree(root);
-        return tree;
+    public static <T> ContextTree<T> pruneAbsolute(final ContextTree<T> tree, final LongAttribute inclusive, final long threshold,
+            final AccumulatingContextTreeFactory<T> factory) {
+        return pruneAbsolute(tree, inclusive, threshold, null, factory);
+    }
+
+    /**
+     * Create a pruned copy of a ContextTree, without the subtrees whose inclusive value is below the given fraction of the inclusive
+     * value of the root.
+     * 
+     * @param fraction
+     *            The minimum inclusive value of a node to be kept, relative to the inclusive value of the root (e.g. 0.0001 for 0.01%)
+     * @see #pruneAbsolute(ContextTree, LongAttribute, long, AccumulatingContextTreeFactory)
+     */
+    public static <T> ContextTree<T> pruneRelative(final ContextTree<T> tree, final LongAttribute inclusive, final double fraction,
+            final AccumulatingContextTreeFactory<T> factory) {
+        return pruneRelative(tree, inclusive, fraction, null, factory);
     }
 
-    private static <T> void subtractChildren(final ContextTree<T> aTree, final ContextTree<T> bTree, final T aNode, final T bNode,
-            final T outNode, final ContextTreeFactory<T> factory) {
-        final ArrayList<T> aChildren = factory.getOrderedChildren(aNode);
-        final ArrayList<T> bChildren = factory.getOrderedChildren(bNode);
-        final Comparator<T> comparator = factory.getNodeComparator();
-        int a = 0;
-        int b = 0;
-        while (a < aChildren.size() || b < bChildren.size()) {
-            if (a < aChildren.size() && b < bChildren.size()) {
-                final T aChild = aChildren.get(a);
-                final T bChild = bChildren.get(b);
-                final int result = comparator.compare(aChild, bChild);
-                if (result == 0) {
-                    // a==b
-                    final T outChild = factory.subtractNodes(aChild, bChild);
-                    factory.connectParentAndChild(outNode, outChild);
-                    subtractChildren(aTree, bTree, aChild, bChild, outChild, factory);
-                    a++;
-                    b++;
-                } else if (result < 0) {
-                    // a<b
-                    final T outChild = factory.cloneNode(aChild);
-                    factory.connectParentAndChild(outNode, outChild);
-                    cloneChildren(aTree, aChild, outChild, factory);
-                    a++;
+    /**
+     * Create a pruned copy of a ContextTree, without the subtrees whose inclusive value is below the given fraction of the inclusive
+     * value of the root.
+     * 
+     * @param fraction
+     *            The minimum inclusive value of a node to be kept, relative to the inclusive value of the root (e.g. 0.0001 for 0.01%)
+     * @see #pruneAbsolute(ContextTree, LongAttribute, long, Object, AccumulatingContextTreeFactory)
+     */
+    public static <T> ContextTree<T> pruneRelative(final ContextTree<T> tree, final LongAttribute inclusive, final double fraction,
+            final Object otherLabel, final AccumulatingContextTreeFactory<T> factory) {
+        final LongAttribute materialized = materialized(inclusive);
+        final long threshold = (long) Math.ceil(fraction * materialized.evaluate(tree.getRoot()));
+        return pruneAbsolute(tree, materialized, threshold, otherLabel, factory);
+    }
+
+    /**
+     * Create a pruned copy of a ContextTree, without the subtrees whose inclusive value is below the given (absolute) threshold. The
+     * contents of the nodes of the dropped subtrees below a node are added (with factory.accumulateInto) to a synthetic child of the
+     * node's copy, created with factory.createNode(otherLabel), so inclusive values don't change. If otherLabel is null, they are added
+     * to the copy of the node itself instead.
+     * 
+     * @param otherLabel
+     *            The label of the synthetic nodes (which must not be the label of any node of the tree), or null
+     * @see #pruneAbsolute(ContextTree, LongAttribute, long, AccumulatingContextTreeFactory)
+     */
+    public static <T> ContextTree<T> pruneAbsolute(final ContextTree<T> tree, final LongAttribute inclusive, final long threshold,
+            final Object otherLabel, final AccumulatingContextTreeFactory<T> factory) {
+        final LongAttribute materialized = materialized(inclusive);
+        // outNodes[d] is the copy of the node at depth d on the current path, otherNodes[d] its synthetic child (or null)
+        Object[] outNodes = new Object[16];
+        Object[] otherNodes = new Object[16];
+        final TreeCursor<T> cursor = new TreeCursor<T>(tree);
+        final TreeCursor<T> droppedCursor = new TreeCursor<T>(tree);
+        T outRoot = null;
+        cursor.reset(tree.getRoot(), TreeCursor.Order.PRE_ORDER);
+        while (cursor.next()) {
+            final int depth = cursor.getDepth();
+            final T node = cursor.getNode();
+            if (depth == 0 || materialized.evaluate(node) >= threshold) {
+                final T outNode = factory.cloneNode(node);
+                if (depth == 0) {
+                    outRoot = outNode;
                 } else {
-                    // b<a
-                    b++;
+                    @SuppressWarnings("unchecked")
+                    final T outParent = (T) outNodes[depth - 1];
+                    factory.connectParentAndChild(outParent, outNode);
+                }
+                if (depth == outNodes.length) {
+                    outNodes = Arrays.copyOf(outNodes, 2 * depth);
+                    otherNodes = Arrays.copyOf(otherNodes, 2 * depth);
+                }
+                outNodes[depth] = outNode;
+                otherNodes[depth] = null;
+            } else {
+                @SuppressWarnings("unchecked")
+                final T outParent = (T) outNodes[depth - 1];
+                T target = outParent;
+                if (otherLabel != null) {
+                    if (otherNodes[depth - 1] == null) {
+                        final T otherNode = factory.createNode(otherLabel);
+                        factory.connectParentAndChild(outParent, otherNode);
+                        otherNodes[depth - 1] = otherNode;
+                    }
+                    @SuppressWarnings("unchecked")
+                    final T otherNode = (T) otherNodes[depth - 1];
+                    target = otherNode;
                 }
-            } else if (a < aChildren.size()) {
-                final T aChild = aChildren.get(a);
-                final T outChild = factory.cloneNode(aChild);
-                factory.connectParentAndChild(outNode, outChild);
-                cloneChildren(aTree, aChild, outChild, factory);
-                a++;
+                droppedCursor.reset(node, TreeCursor.Order.PRE_ORDER);
+                while (droppedCursor.next()) {
+                    factory.accumulateInto(target, droppedCursor.getNode());
+                }
+                cursor.skipChildren();
+            }
+        }
+        return factory.createTree(outRoot);
+    }
+
+    /**
+     * Create a ContextTree at a coarser granularity (e.g. packages or components instead of methods), by mapping the label of each node
+     * through the given StringAttribute (e.g. a LongestPrefixLookup).
+     * 
+     * A node that maps to the same label as its (projected) parent is merged into its parent, so a chain of nodes mapping to the same
+     * label becomes a single node. A node that maps to null is merged into its parent as well. Nodes that end up as siblings with the same
+     * label are merged too. The output node is a clone of the first input node merged into it (with the new label, set with
+     * factory.relabelNode), and the contents of the other input nodes are added to it with factory.accumulateInto.
+     * 
+     * The tree is read in a single pass, which creates the output nodes as it goes (keeping only the groups of labels and their output
+     * nodes, not the input nodes merged into them).
+     * 
+     * @param mapping
+     *            A StringAttribute, evaluated on the nodes of the given tree, producing the new labels
+     * @param factory
+     *            An AccumulatingContextTreeFactory<T>
+     * @return A new ContextTree with the mapped labels
+     */
+    public static <T> ContextTree<T> project(final ContextTree<T> tree, final StringAttribute mapping,
+            final AccumulatingContextTreeFactory<T> factory) {
+        final String rootLabel = mapping.evaluate(tree.getRoot());
+        final GroupTrie<T> trie = new GroupTrie<T>(tree, factory, rootLabel != null ? rootLabel : tree.getLabel(tree.getRoot()));
+        // groups[d] is the group of the node at depth d on the current path
+        @SuppressWarnings("unchecked")
+        GroupTrie.Group<T>[] groups = (GroupTrie.Group<T>[]) new GroupTrie.Group<?>[16];
+        final TreeCursor<T> cursor = new TreeCursor<T>(tree);
+        cursor.reset(tree.getRoot(), TreeCursor.Order.PRE_ORDER);
+        while (cursor.next()) {
+            final int depth = cursor.getDepth();
+            final T node = cursor.getNode();
+            final GroupTrie.Group<T> group;
+            if (depth == 0) {
+                group = trie.getRoot();
             } else {
-                b++;
+                final GroupTrie.Group<T> parentGroup = groups[depth - 1];
+                final String label = mapping.evaluate(node);
+                if (label == null || label.equals(parentGroup.getLabel())) {
+                    group = parentGroup;
+                } else {
+                    group = parentGroup.getOrAddChild(label);
+                }
+            }
+            trie.addMember(group, node);
+            if (depth == groups.length) {
+                groups = Arrays.copyOf(groups, 2 * depth);
             }
+            groups[depth] = group;
         }
+        return factory.createTree(trie.getRootNode());
+    }
+
+    /**
+     * Create the inverted (bottom-up, or "reverse call tree") view of a ContextTree. The children of the root of the inverted tree are
+     * the labels of the nodes with a positive exclusive value, their children are the labels of the parents of those nodes, and so on,
+     * up to the label of the root. Thus each path from a node to the root of the given tree is a path from the root of the inverted tree.
+     * 
+     * Each node of the inverted tree represents the set of nodes of the given tree whose reversed path starts with the node's path, and its
+     * contents are the sum (computed with factory.accumulateInto) of the contents of those nodes, so it is weighted by their exclusive
+     * cost. The root of the inverted tree has the label of the given root, and the sum of all nodes with a positive exclusive value.
+     * 
+     * The tree is read in a single pass, keeping the labels of the current path in a buffer, and accumulating each node with a positive
+     * exclusive value into the output nodes along its reversed path.
+     * 
+     * @param exclusive
+     *            An exclusive LongAttribute of the tree (e.g. sample counts); nodes where it is not positive are not inverted
+     * @param factory
+     *            An AccumulatingContextTreeFactory<T>
+     * @return The inverted tree
+     */
+    public static <T> ContextTree<T> invert(final ContextTree<T> tree, final LongAttribute exclusive,
+            final AccumulatingContextTreeFactory<T> factory) {
+        final GroupTrie<T> trie = new GroupTrie<T>(tree, factory, tree.getLabel(tree.getRoot()));
+        // labels[d] is the label of the node at depth d on the current path
+        Object[] labels = new Object[16];
+        final TreeCursor<T> cursor = new TreeCursor<T>(tree);
+        cursor.reset(tree.getRoot(), TreeCursor.Order.PRE_ORDER);
+        while (cursor.next()) {
+            final int depth = cursor.getDepth();
+            final T node = cursor.getNode();
+            if (depth == labels.length) {
+                labels = Arrays.copyOf(labels, 2 * depth);
+            }
+            labels[depth] = tree.getLabel(node);
+            if (exclusive.evaluate(node) > 0) {
+                GroupTrie.Group<T> group = trie.getRoot();
+                trie.addMember(group, node);
+                for (int d = depth; d >= 0; d--) {
+                    group = group.getOrAddChild(labels[d]);
+                    trie.addMember(group, node);
+                }
+            }
+        }
+        if (trie.getRootNode() == null) {
+            trie.addMember(trie.getRoot(), tree.getRoot());
+        }
+        return factory.createTree(trie.getRootNode());
+    }
+
+    /**
+     * @return the given attribute, or a materialized copy of it (so the caller's attribute doesn't change)
+     */
+    private static LongAttribute materialized(final LongAttribute inclusive) {
+        return inclusive instanceof InclusiveLongAttribute ? ((InclusiveLongAttribute) inclusive).materialized() : inclusive;
     }
 
     /**
@@ -212,11 +410,49 @@ public final class ContextTreeOperations {
     }
 
     private static <T> void cloneChildren(final ContextTree<T> tree, final T inNode, final T outNode, final ContextTreeFactory<T> factory) {
-        for (final T inChild : tree.iterable(inNode)) {
-            final T outChild = factory.cloneNode(inChild);
-            factory.connectParentAndChild(outNode, outChild);
-            cloneChildren(tree, inChild, outChild, factory);
+        // in pre-order, the parent of a node at depth d is the last node cloned at depth d-1
+        Object[] outNodes = new Object[16];
+        outNodes[0] = outNode;
+        final TreeCursor<T> cursor = new TreeCursor<T>(tree);
+        cursor.reset(inNode, TreeCursor.Order.PRE_ORDER);
+        cursor.next();
+        while (cursor.next()) {
+            final int depth = cursor.getDepth();
+            final T outChild = factory.cloneNode(cursor.getNode());
+            @SuppressWarnings("unchecked")
+            final T outParent = (T) outNodes[depth - 1];
+            factory.connectParentAndChild(outParent, outChild);
+            if (depth == outNodes.length) {
+                outNodes = Arrays.copyOf(outNodes, 2 * depth);
+            }
+            outNodes[depth] = outChild;
         }
     }
 
+    /**
+     * Freeze a ContextTree into an immutable pre-order array layout, in which each subtree is a contiguous range of positions.
+     * 
+     * @param tree
+     *            A ContextTree
+     * @return A FrozenContextTree with the same nodes and structure as the given tree
+     */
+    public static <T> FrozenContextTree<T> freeze(final ContextTree<T> tree) {
+        return new FrozenContextTree<T>(tree);
+    }
+
+    /**
+     * Freeze a ContextTree, and sort the children of each node by the given comparator (usually factory.getNodeComparator()). Operations
+     * using a factory with the same comparator then use the children of the frozen tree without copying and sorting them, which pays off
+     * when several operations are applied to the same tree.
+     * 
+     * @param tree
+     *            A ContextTree
+     * @param comparator
+     *            A Comparator defining the canonical order of children
+     * @return A FrozenContextTree with the same nodes and structure as the given tree, but with ordered children
+     */
+    public static <T> FrozenContextTree<T> freeze(final ContextTree<T> tree, final Comparator<T> comparator) {
+        return new FrozenContextTree<T>(tree, comparator);
+    }
+
 }
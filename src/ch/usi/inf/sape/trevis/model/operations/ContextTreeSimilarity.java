@@ -0,0 +1,160 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model.operations;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import ch.usi.inf.sape.trevis.model.ContextTree;
+import ch.usi.inf.sape.trevis.model.TreeCursor;
+import ch.usi.inf.sape.trevis.model.attribute.LongAttribute;
+
+/**
+ * ContextTreeSimilarity computes similarity metrics between two ContextTrees, based on the nodes they have in common (the nodes of their
+ * intersection) and the nodes of their union.
+ *
+ * The metrics are computed in a single walk over both trees, matching children the same way ContextTreeOperations does, but without
+ * creating any output nodes: the ContextTreeFactory is only used for its node comparator and ordered children. (As for the operations,
+ * the roots of the two trees always correspond to each other.)
+ *
+ * @see ContextTreeOperations#intersection(ContextTree, ContextTree, ContextTreeFactory)
+ * @see ContextTreeOperations#union(ContextTree, ContextTree, ContextTreeFactory)
+ */
+public final class ContextTreeSimilarity {
+
+    /**
+     * @return the Jaccard index of the nodes of A and B: |A intersect B| / |A union B|
+     */
+    public static <T> double jaccard(final ContextTree<T> a, final ContextTree<T> b, final ContextTreeFactory<T> factory) {
+        final Counts counts = count(a, null, b, null, factory);
+        return (double) counts.common / (counts.aOnly + counts.bOnly + counts.common);
+    }
+
+    /**
+     * @return the overlap coefficient of the nodes of A and B: |A intersect B| / min(|A|, |B|)
+     */
+    public static <T> double overlap(final ContextTree<T> a, final ContextTree<T> b, final ContextTreeFactory<T> factory) {
+        final Counts counts = count(a, null, b, null, factory);
+        return (double) counts.common / (counts.common + Math.min(counts.aOnly, counts.bOnly));
+    }
+
+    /**
+     * @return the weighted Jaccard index of A and B, where each node has the (non-negative) value of the given attribute as its weight
+     */
+    public static <T> double weightedJaccard(final ContextTree<T> a, final ContextTree<T> b, final LongAttribute weight,
+            final ContextTreeFactory<T> factory) {
+        return weightedJaccard(a, weight, b, weight, factory);
+    }
+
+    /**
+     * The weighted Jaccard index of A and B is the sum, over the nodes of their union, of the smaller of the two weights of a node,
+     * divided by the sum of the larger of the two weights (where a node missing in one of the trees has weight 0 there). It is 1 if the
+     * trees have the same nodes with the same weights, and 0 if they have no weight in common.
+     *
+     * @param aWeight
+     *            the attribute providing the (non-negative) weights of the nodes of A (e.g. their exclusive sample counts)
+     * @param bWeight
+     *            the attribute providing the (non-negative) weights of the nodes of B
+     * @return the weighted Jaccard index of A and B (or 1 if both trees have weight 0)
+     * @throws IllegalArgumentException
+     *             if one of the weight attributes is null
+     */
+    public static <T> double weightedJaccard(final ContextTree<T> a, final LongAttribute aWeight, final ContextTree<T> b,
+            final LongAttribute bWeight, final ContextTreeFactory<T> factory) {
+        if (aWeight == null || bWeight == null) {
+            throw new IllegalArgumentException("Weight attributes must not be null");
+        }
+        final Counts counts = count(a, aWeight, b, bWeight, factory);
+        return counts.maxWeight == 0 ? 1.0 : (double) counts.minWeight / counts.maxWeight;
+    }
+
+    private static final class Counts {
+        private long common;
+        private long aOnly;
+        private long bOnly;
+        private long minWeight;
+        private long maxWeight;
+    }
+
+    /**
+     * Walk A and B together, counting the common nodes and the nodes of only one of the trees, and (if the weight attributes are not
+     * null) summing the smaller and larger weights of the nodes. The weight attributes have to be both null or both non-null.
+     */
+    private static <T> Counts count(final ContextTree<T> a, final LongAttribute aWeight, final ContextTree<T> b,
+            final LongAttribute bWeight, final ContextTreeFactory<T> factory) {
+        if ((aWeight == null) != (bWeight == null)) {
+            throw new IllegalArgumentException("Either both or none of the weight attributes must be null");
+        }
+        final boolean weighted = aWeight != null;
+        final Counts counts = new Counts();
+        final ChildMatcher<T> matcher = new ChildMatcher<T>(a, b, factory);
+        final TreeCursor<T> aCursor = new TreeCursor<T>(a);
+        final TreeCursor<T> bCursor = new TreeCursor<T>(b);
+        final ArrayList<T> aMatches = new ArrayList<T>();
+        final ArrayList<T> bMatches = new ArrayList<T>();
+        // a stack of pairs of corresponding nodes whose children have not been matched yet
+        Object[] stack = new Object[32];
+        int size = 0;
+        stack[size++] = a.getRoot();
+        stack[size++] = b.getRoot();
+        while (size > 0) {
+            @SuppressWarnings("unchecked")
+            final T bNode = (T) stack[--size];
+            @SuppressWarnings("unchecked")
+            final T aNode = (T) stack[--size];
+            stack[size] = null;
+            stack[size + 1] = null;
+            counts.common++;
+            if (weighted) {
+                final long aValue = aWeight.evaluate(aNode);
+                final long bValue = bWeight.evaluate(bNode);
+                counts.minWeight += Math.min(aValue, bValue);
+                counts.maxWeight += Math.max(aValue, bValue);
+            }
+            aMatches.clear();
+            bMatches.clear();
+            matcher.match(aNode, bNode, true, true, aMatches, bMatches);
+            for (int i = 0; i < aMatches.size(); i++) {
+                final T aChild = aMatches.get(i);
+                final T bChild = bMatches.get(i);
+                if (bChild == null) {
+                    counts.aOnly += countSubtree(aCursor, aChild, aWeight, counts);
+                } else if (aChild == null) {
+                    counts.bOnly += countSubtree(bCursor, bChild, bWeight, counts);
+                } else {
+                    if (size + 2 > stack.length) {
+                        stack = Arrays.copyOf(stack, 2 * stack.length);
+                    }
+                    stack[size++] = aChild;
+                    stack[size++] = bChild;
+                }
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * @return the number of nodes in the subtree rooted at node (whose weights, if the attribute is not null, are added to the sum of the
+     *         larger weights)
+     */
+    private static <T> long countSubtree(final TreeCursor<T> cursor, final T node, final LongAttribute weight, final Counts counts) {
+        long count = 0;
+        cursor.reset(node, TreeCursor.Order.PRE_ORDER);
+        while (cursor.next()) {
+            count++;
+            if (weight != null) {
+                counts.maxWeight += weight.evaluate(cursor.getNode());
+            }
+        }
+        return count;
+    }
+
+}
@@ -0,0 +1,123 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model.operations;
+
+import java.util.ArrayList;
+
+import ch.usi.inf.sape.trevis.model.ChildIndex;
+import ch.usi.inf.sape.trevis.model.ContextTree;
+
+/**
+ * The groups of an operation that builds a tree with new labels out of the nodes of an input tree (like projection and inversion).
+ *
+ * Each group has a label, and an output node whose contents are made up of the contents of the input nodes (members) added to the
+ * group. The output node is created (with cloneNode, and relabelNode if the label changed) when the first member is added, and
+ * connected to the output node of the parent group; the contents of the following members are accumulated into it (with
+ * accumulateInto). So the members themselves are not kept. Children are kept in the order they were added, and looked up by label
+ * (with a ChildIndex for groups with many children).
+ */
+final class GroupTrie<T> {
+
+    static final class Group<T> {
+
+        private final Object label;
+        private final Group<T> parent;
+        private T node;
+        private ArrayList<Group<T>> children;
+        private ChildIndex childIndex;
+
+        private Group(final Object label, final Group<T> parent) {
+            this.label = label;
+            this.parent = parent;
+        }
+
+        Object getLabel() {
+            return label;
+        }
+
+        /**
+         * @return the child with the given label, which is created if it doesn't exist yet
+         */
+        Group<T> getOrAddChild(final Object label) {
+            if (children == null) {
+                children = new ArrayList<Group<T>>(2);
+            }
+            if (childIndex != null) {
+                final int position = childIndex.get(label);
+                if (position >= 0) {
+                    return children.get(position);
+                }
+            } else {
+                for (final Group<T> child : children) {
+                    if (child.label.equals(label)) {
+                        return child;
+                    }
+                }
+            }
+            final Group<T> child = new Group<T>(label, this);
+            children.add(child);
+            if (childIndex != null) {
+                childIndex.put(label, children.size() - 1);
+            } else if (children.size() > ChildIndex.THRESHOLD) {
+                childIndex = new ChildIndex(children.size());
+                for (int i = 0; i < children.size(); i++) {
+                    childIndex.put(children.get(i).label, i);
+                }
+            }
+            return child;
+        }
+
+    }
+
+    private final ContextTree<T> tree;
+    private final AccumulatingContextTreeFactory<T> factory;
+    private final Group<T> root;
+
+    /**
+     * @param tree
+     *            the input tree (the tree of the members), used to avoid relabeling nodes that already have the right label
+     */
+    GroupTrie(final ContextTree<T> tree, final AccumulatingContextTreeFactory<T> factory, final Object rootLabel) {
+        this.tree = tree;
+        this.factory = factory;
+        root = new Group<T>(rootLabel, null);
+    }
+
+    Group<T> getRoot() {
+        return root;
+    }
+
+    /**
+     * Add a member to a group. The first member of a group has to be added after the first member of its parent.
+     */
+    void addMember(final Group<T> group, final T member) {
+        if (group.node != null) {
+            factory.accumulateInto(group.node, member);
+            return;
+        }
+        T node = factory.cloneNode(member);
+        if (!group.label.equals(tree.getLabel(member))) {
+            node = factory.relabelNode(node, group.label);
+        }
+        if (group.parent != null) {
+            factory.connectParentAndChild(group.parent.node, node);
+        }
+        group.node = node;
+    }
+
+    /**
+     * @return the output node of the root group (not yet passed to factory.createTree), or null if no member has been added
+     */
+    T getRootNode() {
+        return root.node;
+    }
+
+}
@@ -0,0 +1,77 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model.operations;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import ch.usi.inf.sape.trevis.model.ContextTree;
+
+/**
+ * A path from the root of a ContextTree to one of its nodes, with the value of the node, as found by HotPaths.
+ *
+ * @see HotPaths
+ */
+public final class HotPath<T> {
+
+    private final ContextTree<T> tree;
+    private final T node;
+    private final double value;
+
+    HotPath(final ContextTree<T> tree, final T node, final double value) {
+        this.tree = tree;
+        this.node = node;
+        this.value = value;
+    }
+
+    /**
+     * @return the last node of the path
+     */
+    public T getNode() {
+        return node;
+    }
+
+    /**
+     * @return the value of the last node of the path
+     */
+    public double getValue() {
+        return value;
+    }
+
+    /**
+     * @return the nodes of the path, from the root to getNode()
+     */
+    public List<T> getNodes() {
+        final ArrayList<T> nodes = new ArrayList<T>();
+        for (T n = node; n != null; n = tree.getParent(n)) {
+            nodes.add(n);
+        }
+        Collections.reverse(nodes);
+        return nodes;
+    }
+
+    /**
+     * @return the labels of the nodes of the path, from the root to getNode()
+     */
+    public List<Object> getLabels() {
+        final ArrayList<Object> labels = new ArrayList<Object>();
+        for (final T n : getNodes()) {
+            labels.add(tree.getLabel(n));
+        }
+        return labels;
+    }
+
+    public String toString() {
+        return getLabels() + "=" + value;
+    }
+
+}
@@ -0,0 +1,147 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model.operations;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import ch.usi.inf.sape.trevis.model.ContextTree;
+import ch.usi.inf.sape.trevis.model.attribute.DoubleAttribute;
+import ch.usi.inf.sape.trevis.model.attribute.InclusiveDoubleAttribute;
+import ch.usi.inf.sape.trevis.model.attribute.InclusiveLongAttribute;
+import ch.usi.inf.sape.trevis.model.attribute.LongAttribute;
+import ch.usi.inf.sape.trevis.model.attribute.LongToDouble;
+
+/**
+ * HotPaths finds the K paths (from the root to some node) of a ContextTree whose last nodes have the highest values of an attribute.
+ *
+ * The search is best-first: it visits the nodes in the order of an upper bound of the values in their subtrees, and keeps the best K
+ * nodes found so far in a bounded heap. It stops as soon as the bound of the next node can't beat the K-th best value, so subtrees that
+ * can't contain a hot path are never visited.
+ *
+ * For an inclusive attribute (whose value for a parent is at least the value of each child), the attribute is its own bound. For an
+ * exclusive attribute with non-negative values, the corresponding inclusive attribute is a bound.
+ */
+public final class HotPaths {
+
+    /**
+     * Find the K nodes with the highest values of an inclusive attribute.
+     */
+    public static <T> List<HotPath<T>> find(final ContextTree<T> tree, final LongAttribute inclusive, final int k) {
+        return find(tree, inclusive, inclusive, k);
+    }
+
+    /**
+     * Find the K nodes with the highest values of the given attribute.
+     *
+     * @param value
+     *            the attribute to rank the nodes by
+     * @param bound
+     *            an attribute whose value for a node is at least the value of each node in its subtree (e.g. the inclusive version of an
+     *            exclusive value attribute)
+     */
+    public static <T> List<HotPath<T>> find(final ContextTree<T> tree, final LongAttribute value, final LongAttribute bound,
+            final int k) {
+        // materialize a private copy, instead of changing the caller's attribute
+        final LongAttribute materializedBound = bound instanceof InclusiveLongAttribute
+                ? ((InclusiveLongAttribute) bound).materialized() : bound;
+        if (bound == value) {
+            return find(tree, new LongToDouble(materializedBound), null, k);
+        }
+        return find(tree, new LongToDouble(value), new LongToDouble(materializedBound), k);
+    }
+
+    /**
+     * Find the K nodes with the highest values of an inclusive attribute.
+     */
+    public static <T> List<HotPath<T>> find(final ContextTree<T> tree, final DoubleAttribute inclusive, final int k) {
+        return find(tree, inclusive, inclusive, k);
+    }
+
+    /**
+     * Find the K nodes with the highest values of the given attribute.
+     *
+     * @param value
+     *            the attribute to rank the nodes by
+     * @param bound
+     *            an attribute whose value for a node is at least the value of each node in its subtree (e.g. the inclusive version of an
+     *            exclusive value attribute), or null if value is inclusive
+     * @return the hot paths, hottest first
+     */
+    public static <T> List<HotPath<T>> find(final ContextTree<T> tree, final DoubleAttribute value, final DoubleAttribute bound,
+            final int k) {
+        if (k <= 0) {
+            return Collections.emptyList();
+        }
+        final boolean inclusive = bound == null || bound == value;
+        // materialize a private copy, instead of changing the caller's attribute
+        final DoubleAttribute materializedBound = materialized(inclusive ? value : bound);
+        final DoubleAttribute materializedValue = inclusive ? materializedBound : value;
+        // the nodes to visit, highest bound first
+        final PriorityQueue<Candidate<T>> frontier = new PriorityQueue<Candidate<T>>(16, Collections.reverseOrder());
+        // the best nodes found so far, lowest value first (so the K-th best is at the head)
+        final PriorityQueue<Candidate<T>> best = new PriorityQueue<Candidate<T>>(k + 1);
+        final T root = tree.getRoot();
+        frontier.add(new Candidate<T>(root, inclusive ? materializedValue.evaluate(root) : materializedBound.evaluate(root)));
+        while (!frontier.isEmpty()) {
+            final Candidate<T> candidate = frontier.poll();
+            if (best.size() == k && candidate.value <= best.peek().value) {
+                // no remaining node can beat the K-th best
+                break;
+            }
+            final T node = candidate.node;
+            final double nodeValue = inclusive ? candidate.value : materializedValue.evaluate(node);
+            if (best.size() < k) {
+                best.add(new Candidate<T>(node, nodeValue));
+            } else if (nodeValue > best.peek().value) {
+                best.poll();
+                best.add(new Candidate<T>(node, nodeValue));
+            }
+            final double threshold = best.size() == k ? best.peek().value : Double.NEGATIVE_INFINITY;
+            for (final T child : tree.iterable(node)) {
+                final double childBound = inclusive ? materializedValue.evaluate(child) : materializedBound.evaluate(child);
+                if (childBound > threshold) {
+                    frontier.add(new Candidate<T>(child, childBound));
+                }
+            }
+        }
+        final ArrayList<HotPath<T>> paths = new ArrayList<HotPath<T>>(best.size());
+        while (!best.isEmpty()) {
+            final Candidate<T> candidate = best.poll();
+            paths.add(new HotPath<T>(tree, candidate.node, candidate.value));
+        }
+        Collections.reverse(paths);
+        return paths;
+    }
+
+    private static DoubleAttribute materialized(final DoubleAttribute attribute) {
+        return attribute instanceof InclusiveDoubleAttribute ? ((InclusiveDoubleAttribute) attribute).materialized() : attribute;
+    }
+
+    private static final class Candidate<T> implements Comparable<Candidate<T>> {
+
+        private final T node;
+        private final double value;
+
+        private Candidate(final T node, final double value) {
+            this.node = node;
+            this.value = value;
+        }
+
+        public int compareTo(final Candidate<T> other) {
+            return Double.compare(value, other.value);
+        }
+
+    }
+
+}
@@ -0,0 +1,172 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model.operations;
+
+import java.util.Arrays;
+
+import ch.usi.inf.sape.trevis.model.ArrayIntContextTree;
+import ch.usi.inf.sape.trevis.model.IntContextTree;
+import ch.usi.inf.sape.trevis.model.LabelDictionary;
+
+/**
+ * IntContextTreeOperations computes the union or intersection of the structure of two IntContextTrees, as a new ArrayIntContextTree.
+ *
+ * The operations work on int handles and label ids only: they create no object per node, and don't box handles (as using
+ * ContextTreeOperations on IntContextTreeAdapters would). Like in ContextTreeOperations, the roots of the two trees always correspond to
+ * each other, and the children of corresponding nodes are matched by their labels.
+ *
+ * The labels of the result are interned in the LabelDictionary of the first tree (if the second tree uses a different dictionary, the
+ * labels of its nodes in the result are interned there first). The children of each node of the result are ordered by the ids of their
+ * labels, like the children created by an OffHeapContextTreeFactory.
+ *
+ * IntContextTrees have no node contents, so there is no difference operation (the structure of A minus B is the structure of A).
+ *
+ * @see ContextTreeOperations
+ */
+public final class IntContextTreeOperations {
+
+    /**
+     * Create an ArrayIntContextTree containing the nodes of A and the nodes of B.
+     */
+    public static ArrayIntContextTree union(final IntContextTree a, final IntContextTree b) {
+        return new Merge(a, b, true).merge();
+    }
+
+    /**
+     * Create an ArrayIntContextTree containing the nodes that exist in both A and B.
+     */
+    public static ArrayIntContextTree intersection(final IntContextTree a, final IntContextTree b) {
+        return new Merge(a, b, false).merge();
+    }
+
+
+    /**
+     * The state of one operation.
+     */
+    private static final class Merge {
+
+        private final IntContextTree aTree;
+        private final IntContextTree bTree;
+        private final boolean union;
+        private final LabelDictionary labels;
+        private final boolean sameLabels;
+        private final ArrayIntContextTree out;
+        // the children of the current pair of nodes, each as (label id << 32) | handle, so sorting them sorts them by label id
+        private long[] aChildren;
+        private long[] bChildren;
+        // a stack of (A node, B node, output node) triples whose children have not been merged yet (A or B node may be NONE)
+        private int[] stack;
+        private int size;
+
+        private Merge(final IntContextTree aTree, final IntContextTree bTree, final boolean union) {
+            this.aTree = aTree;
+            this.bTree = bTree;
+            this.union = union;
+            labels = aTree.getLabelDictionary();
+            sameLabels = bTree.getLabelDictionary() == labels;
+            out = new ArrayIntContextTree(aTree.getName(), aTree.getLabel(aTree.getRoot()), Math.max(aTree.size(), bTree.size()),
+                    labels);
+            aChildren = new long[16];
+            bChildren = new long[16];
+            stack = new int[48];
+        }
+
+        private ArrayIntContextTree merge() {
+            push(aTree.getRoot(), bTree.getRoot(), out.getRoot());
+            while (size > 0) {
+                final int outNode = stack[--size];
+                final int bNode = stack[--size];
+                final int aNode = stack[--size];
+                mergeChildren(aNode, bNode, outNode);
+            }
+            return out;
+        }
+
+        private void mergeChildren(final int aNode, final int bNode, final int outNode) {
+            final int aCount = aNode == IntContextTree.NONE ? 0 : collectChildren(aTree, aNode, true);
+            final int bCount = bNode == IntContextTree.NONE ? 0 : collectChildren(bTree, bNode, false);
+            int a = 0;
+            int b = 0;
+            while (a < aCount && b < bCount) {
+                final int aId = (int) (aChildren[a] >>> 32);
+                final int bId = (int) (bChildren[b] >>> 32);
+                if (aId == bId) {
+                    push((int) aChildren[a], (int) bChildren[b], out.addNodeWithLabelId(outNode, aId));
+                    a++;
+                    b++;
+                } else if (aId < bId) {
+                    if (union) {
+                        push((int) aChildren[a], IntContextTree.NONE, out.addNodeWithLabelId(outNode, aId));
+                    }
+                    a++;
+                } else {
+                    if (union) {
+                        push(IntContextTree.NONE, (int) bChildren[b], out.addNodeWithLabelId(outNode, bId));
+                    }
+                    b++;
+                }
+            }
+            if (union) {
+                for (; a < aCount; a++) {
+                    push((int) aChildren[a], IntContextTree.NONE, out.addNodeWithLabelId(outNode, (int) (aChildren[a] >>> 32)));
+                }
+                for (; b < bCount; b++) {
+                    push(IntContextTree.NONE, (int) bChildren[b], out.addNodeWithLabelId(outNode, (int) (bChildren[b] >>> 32)));
+                }
+            }
+        }
+
+        /**
+         * Put the children of the given node, sorted by label id, into aChildren (if fromA) or bChildren.
+         *
+         * @return the number of children
+         */
+        private int collectChildren(final IntContextTree tree, final int node, final boolean fromA) {
+            final int count = tree.getChildCount(node);
+            long[] children = fromA ? aChildren : bChildren;
+            if (count > children.length) {
+                children = new long[Math.max(count, 2 * children.length)];
+                if (fromA) {
+                    aChildren = children;
+                } else {
+                    bChildren = children;
+                }
+            }
+            final boolean translate = !fromA && !sameLabels;
+            int i = 0;
+            for (int child = tree.getFirstChild(node); child != IntContextTree.NONE; child = tree.getNextSibling(child)) {
+                final int labelId;
+                if (!translate) {
+                    labelId = tree.getLabelId(child);
+                } else if (union) {
+                    labelId = labels.intern(tree.getLabel(child));
+                } else {
+                    // a label missing in the dictionary can't match (its id is -1, which matches no child of A)
+                    labelId = labels.getId(tree.getLabel(child));
+                }
+                children[i++] = ((long) labelId << 32) | child;
+            }
+            Arrays.sort(children, 0, count);
+            return count;
+        }
+
+        private void push(final int aNode, final int bNode, final int outNode) {
+            if (size + 3 > stack.length) {
+                stack = Arrays.copyOf(stack, 2 * stack.length);
+            }
+            stack[size++] = aNode;
+            stack[size++] = bNode;
+            stack[size++] = outNode;
+        }
+
+    }
+
+}
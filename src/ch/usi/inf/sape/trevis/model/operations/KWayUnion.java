@@ -0,0 +1,237 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model.operations;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import ch.usi.inf.sape.trevis.model.ContextTree;
+import ch.usi.inf.sape.trevis.model.TreeCursor;
+
+/**
+ * Computes the union of any number of ContextTrees in a single pass, for ContextTreeOperations.
+ *
+ * At each level, the ordered children of all corresponding nodes are merged with a heap (a k-way merge), and each group of children
+ * with equal labels becomes one output node, created with a single call to factory.unionNodes(List). Children that occur in only one
+ * input are cloned with a SubtreeCloner. Like ContextTreeMerger, it keeps an explicit stack of frames instead of recursing.
+ */
+final class KWayUnion<T> {
+
+    /**
+     * The state of the merge of the children of one group of corresponding nodes.
+     */
+    private static final class Frame<T> {
+        private T outNode;
+        private int sourceCount;
+        // per source: the tree it comes from, its ordered children, and the position of its next child
+        private int[] trees = new int[4];
+        private List<?>[] children = new List<?>[4];
+        private int[] positions = new int[4];
+        // a binary min-heap of the sources that still have children
+        private int[] heap = new int[4];
+        private int heapSize;
+
+        private void ensureCapacity(final int capacity) {
+            if (capacity > trees.length) {
+                final int length = Math.max(capacity, 2 * trees.length);
+                trees = Arrays.copyOf(trees, length);
+                children = Arrays.copyOf(children, length);
+                positions = Arrays.copyOf(positions, length);
+                heap = Arrays.copyOf(heap, length);
+            }
+        }
+
+        private void clear() {
+            Arrays.fill(children, 0, sourceCount, null);
+            outNode = null;
+            sourceCount = 0;
+            heapSize = 0;
+        }
+    }
+
+    private final List<ContextTree<T>> inTrees;
+    private final ContextTreeFactory<T> factory;
+    private final Comparator<T> comparator;
+    private final TreeCursor<T>[] cursors;
+    private final OrderedChildren<T>[] orderedChildren;
+    private final SubtreeCloner<T> cloner;
+
+    private Frame<T>[] frames;
+
+    // the group of children with equal labels being merged, and the trees they come from
+    private final ArrayList<T> group;
+    private int[] groupTrees;
+
+    KWayUnion(final List<ContextTree<T>> inTrees, final ContextTreeFactory<T> factory) {
+        this.inTrees = inTrees;
+        this.factory = factory;
+        comparator = factory.getNodeComparator();
+        @SuppressWarnings("unchecked")
+        final TreeCursor<T>[] initialCursors = (TreeCursor<T>[]) new TreeCursor<?>[inTrees.size()];
+        cursors = initialCursors;
+        @SuppressWarnings("unchecked")
+        final OrderedChildren<T>[] initialOrderedChildren = (OrderedChildren<T>[]) new OrderedChildren<?>[inTrees.size()];
+        orderedChildren = initialOrderedChildren;
+        for (int t = 0; t < inTrees.size(); t++) {
+            orderedChildren[t] = new OrderedChildren<T>(inTrees.get(t), factory);
+        }
+        cloner = new SubtreeCloner<T>(factory);
+        @SuppressWarnings("unchecked")
+        final Frame<T>[] initialFrames = (Frame<T>[]) new Frame<?>[16];
+        frames = initialFrames;
+        group = new ArrayList<T>();
+        groupTrees = new int[16];
+    }
+
+    ContextTree<T> union() {
+        group.clear();
+        for (int t = 0; t < inTrees.size(); t++) {
+            addToGroup(inTrees.get(t).getRoot(), t);
+        }
+        final T root = factory.unionNodes(group);
+        mergeGroupChildren(root);
+        return factory.createTree(root);
+    }
+
+    private void addToGroup(final T node, final int tree) {
+        if (group.size() == groupTrees.length) {
+            groupTrees = Arrays.copyOf(groupTrees, 2 * group.size());
+        }
+        groupTrees[group.size()] = tree;
+        group.add(node);
+    }
+
+    /**
+     * Merge the subtrees below the nodes of the current group, and connect the resulting nodes below outNode.
+     */
+    private void mergeGroupChildren(final T outNode) {
+        int top = 0;
+        push(top, outNode);
+        while (top >= 0) {
+            final Frame<T> frame = frames[top];
+            if (frame.heapSize == 0) {
+                frame.clear();
+                top--;
+                continue;
+            }
+            // pop all sources whose next child is equal to the smallest one
+            group.clear();
+            final T first = next(frame, frame.heap[0]);
+            do {
+                final int source = frame.heap[0];
+                addToGroup(next(frame, source), frame.trees[source]);
+                frame.positions[source]++;
+                if (frame.positions[source] < frame.children[source].size()) {
+                    siftDown(frame, 0);
+                } else {
+                    frame.heap[0] = frame.heap[--frame.heapSize];
+                    siftDown(frame, 0);
+                }
+            } while (frame.heapSize > 0 && comparator.compare(next(frame, frame.heap[0]), first) == 0);
+            if (group.size() == 1) {
+                cloner.cloneSubtree(cursor(groupTrees[0]), group.get(0), frame.outNode);
+            } else {
+                final T outChild = factory.unionNodes(group);
+                factory.connectParentAndChild(frame.outNode, outChild);
+                top++;
+                push(top, outChild);
+            }
+        }
+    }
+
+    /**
+     * Push a frame for merging the children of the nodes of the current group.
+     */
+    private void push(final int top, final T outNode) {
+        if (top == frames.length) {
+            frames = Arrays.copyOf(frames, 2 * top);
+        }
+        Frame<T> frame = frames[top];
+        if (frame == null) {
+            frame = new Frame<T>();
+            frames[top] = frame;
+        }
+        frame.outNode = outNode;
+        frame.ensureCapacity(group.size());
+        for (int g = 0; g < group.size(); g++) {
+            final List<T> children = orderedChildren[groupTrees[g]].get(group.get(g));
+            if (!children.isEmpty()) {
+                final int source = frame.sourceCount++;
+                frame.trees[source] = groupTrees[g];
+                frame.children[source] = children;
+                frame.positions[source] = 0;
+                frame.heap[frame.heapSize] = source;
+                siftUp(frame, frame.heapSize++);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private T next(final Frame<T> frame, final int source) {
+        return ((List<T>) frame.children[source]).get(frame.positions[source]);
+    }
+
+    /**
+     * Compare the next children of two sources; ties are broken by source, so equal children are grouped in the order of the trees.
+     */
+    private int compare(final Frame<T> frame, final int source1, final int source2) {
+        final int result = comparator.compare(next(frame, source1), next(frame, source2));
+        return result != 0 ? result : source1 - source2;
+    }
+
+    private void siftUp(final Frame<T> frame, int i) {
+        final int[] heap = frame.heap;
+        final int source = heap[i];
+        while (i > 0) {
+            final int parent = (i - 1) >>> 1;
+            if (compare(frame, heap[parent], source) <= 0) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = source;
+    }
+
+    private void siftDown(final Frame<T> frame, int i) {
+        final int[] heap = frame.heap;
+        final int size = frame.heapSize;
+        if (size == 0) {
+            return;
+        }
+        final int source = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && compare(frame, heap[child + 1], heap[child]) < 0) {
+                child++;
+            }
+            if (compare(frame, source, heap[child]) <= 0) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = source;
+    }
+
+    private TreeCursor<T> cursor(final int tree) {
+        if (cursors[tree] == null) {
+            cursors[tree] = new TreeCursor<T>(inTrees.get(tree));
+        }
+        return cursors[tree];
+    }
+
+}
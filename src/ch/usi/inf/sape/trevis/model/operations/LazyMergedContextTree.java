@@ -0,0 +1,210 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model.operations;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import ch.usi.inf.sape.trevis.model.ChildIndex;
+import ch.usi.inf.sape.trevis.model.ContextTree;
+import ch.usi.inf.sape.trevis.model.RandomAccessContextTree;
+
+/**
+ * A ContextTree representing the union, intersection, or difference of two ContextTrees, computed lazily.
+ *
+ * The tree initially consists of just its root. The children of a node are computed (by matching the children of the corresponding
+ * nodes of the two input trees) when they are first asked for, through iterable(), getChildCount(), or one of the getChild() methods,
+ * and are then kept. Thus looking at the top levels of the result of an operation only costs as much as those levels.
+ *
+ * The nodes are created by the factory returned by the given ContextTreeFactory's forDetachedNodes() (with unionNodes, intersectNodes,
+ * subtractNodes, or cloneNode, as ContextTreeOperations would), so all NodeAttributes working on the nodes of an operation's result also
+ * work on the nodes of this tree. They are not connected with connectParentAndChild (this tree keeps track of the structure itself), and
+ * createTree is never called. Thus the given factory can still be used for other operations while this tree is used.
+ *
+ * The input trees must not change while this tree is used. A LazyMergedContextTree must not be used by multiple threads at the same
+ * time (even just reading it can compute children).
+ *
+ * @see ContextTreeOperations#unionView(ContextTree, ContextTree, ContextTreeFactory)
+ * @see ContextTreeOperations#intersectionView(ContextTree, ContextTree, ContextTreeFactory)
+ * @see ContextTreeOperations#subtractView(ContextTree, ContextTree, ContextTreeFactory)
+ */
+public final class LazyMergedContextTree<T> implements ContextTree<T>, RandomAccessContextTree {
+
+    /**
+     * What is known about a node of this tree.
+     */
+    private static final class Entry<T> {
+        // the corresponding nodes in the two input trees (one of them may be null)
+        private final T aNode;
+        private final T bNode;
+        private final T parent;
+        // null until the children have been computed
+        private ArrayList<T> children;
+        private ChildIndex childIndex;
+
+        private Entry(final T aNode, final T bNode, final T parent) {
+            this.aNode = aNode;
+            this.bNode = bNode;
+            this.parent = parent;
+        }
+    }
+
+    private final String name;
+    private final ContextTreeMerger.Operation operation;
+    private final ContextTree<T> aTree;
+    private final ContextTree<T> bTree;
+    // the factory creating the nodes of this tree (not the one given to the constructor, which is only used for matching children)
+    private final ContextTreeFactory<T> nodeFactory;
+    private final ChildMatcher<T> matcher;
+    private final HashMap<T, Entry<T>> entries;
+    private final T root;
+
+    LazyMergedContextTree(final ContextTreeMerger.Operation operation, final ContextTree<T> aTree, final ContextTree<T> bTree,
+            final ContextTreeFactory<T> factory) {
+        this.operation = operation;
+        this.aTree = aTree;
+        this.bTree = bTree;
+        nodeFactory = factory.forDetachedNodes();
+        name = aTree.getName();
+        matcher = new ChildMatcher<T>(aTree, bTree, factory);
+        entries = new HashMap<T, Entry<T>>();
+        root = ContextTreeMerger.combineNodes(operation, nodeFactory, aTree.getRoot(), bTree.getRoot());
+        entries.put(root, new Entry<T>(aTree.getRoot(), bTree.getRoot(), null));
+    }
+
+    private Entry<T> entry(final T node) {
+        final Entry<T> entry = entries.get(node);
+        if (entry == null) {
+            throw new IllegalArgumentException("Node is not part of this tree: " + node);
+        }
+        return entry;
+    }
+
+    /**
+     * @return the children of the given node, computing them if this hasn't happened yet
+     */
+    private ArrayList<T> children(final T node) {
+        final Entry<T> entry = entry(node);
+        if (entry.children == null) {
+            entry.children = computeChildren(node, entry);
+        }
+        return entry.children;
+    }
+
+    private ArrayList<T> computeChildren(final T node, final Entry<T> entry) {
+        final ArrayList<T> children;
+        if (entry.aNode != null && entry.bNode != null) {
+            final ArrayList<T> aChildren = new ArrayList<T>();
+            final ArrayList<T> bChildren = new ArrayList<T>();
+            matcher.match(entry.aNode, entry.bNode, operation != ContextTreeMerger.Operation.INTERSECTION,
+                    operation == ContextTreeMerger.Operation.UNION, aChildren, bChildren);
+            children = new ArrayList<T>(aChildren.size());
+            for (int i = 0; i < aChildren.size(); i++) {
+                final T aChild = aChildren.get(i);
+                final T bChild = bChildren.get(i);
+                final T child;
+                if (aChild == null) {
+                    child = nodeFactory.cloneNode(bChild);
+                } else if (bChild == null) {
+                    child = nodeFactory.cloneNode(aChild);
+                } else {
+                    child = ContextTreeMerger.combineNodes(operation, nodeFactory, aChild, bChild);
+                }
+                entries.put(child, new Entry<T>(aChild, bChild, node));
+                children.add(child);
+            }
+        } else {
+            // a subtree that only exists in one of the input trees
+            final boolean fromA = entry.aNode != null;
+            final ContextTree<T> tree = fromA ? aTree : bTree;
+            final T inNode = fromA ? entry.aNode : entry.bNode;
+            children = new ArrayList<T>(tree.getChildCount(inNode));
+            for (final T inChild : tree.iterable(inNode)) {
+                final T child = nodeFactory.cloneNode(inChild);
+                entries.put(child, fromA ? new Entry<T>(inChild, null, node) : new Entry<T>(null, inChild, node));
+                children.add(child);
+            }
+        }
+        if (children.size() > ChildIndex.THRESHOLD) {
+            entry.childIndex = new ChildIndex(children.size());
+            for (int i = 0; i < children.size(); i++) {
+                entry.childIndex.put(getLabel(children.get(i)), i);
+            }
+        }
+        return children;
+    }
+
+    /**
+     * @return true if the children of the given node have already been computed
+     */
+    public boolean isExpanded(final T node) {
+        return entry(node).children != null;
+    }
+
+    public T getRoot() {
+        return root;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Object getLabel(final T node) {
+        final Entry<T> entry = entry(node);
+        return entry.aNode != null ? aTree.getLabel(entry.aNode) : bTree.getLabel(entry.bNode);
+    }
+
+    public T getParent(final T node) {
+        return entry(node).parent;
+    }
+
+    public Iterable<T> iterable(final T node) {
+        return Collections.unmodifiableList(children(node));
+    }
+
+    public int getChildCount(final T node) {
+        return children(node).size();
+    }
+
+    public T getChild(final T node, final int index) {
+        return children(node).get(index);
+    }
+
+    public T getChild(final T node, final Object label) {
+        final List<T> children = children(node);
+        final ChildIndex childIndex = entry(node).childIndex;
+        if (childIndex != null) {
+            final int position = childIndex.get(label);
+            return position < 0 ? null : children.get(position);
+        }
+        for (final T child : children) {
+            if (getLabel(child).equals(label)) {
+                return child;
+            }
+        }
+        return null;
+    }
+
+    public int indexOfChild(final T node, final T child) {
+        final Entry<T> childEntry = entries.get(child);
+        if (childEntry == null || childEntry.parent == null || !childEntry.parent.equals(node)) {
+            return -1;
+        }
+        return children(node).indexOf(child);
+    }
+
+    public boolean isRoot(final T node) {
+        return entry(node).parent == null;
+    }
+
+}
@@ -0,0 +1,229 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model.operations;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import ch.usi.inf.sape.trevis.model.ContextTree;
+import ch.usi.inf.sape.trevis.model.LabelDictionary;
+import ch.usi.inf.sape.trevis.model.OffHeapContextTree;
+import ch.usi.inf.sape.trevis.model.OffHeapContextTree.Node;
+
+/**
+ * A ContextTreeFactory for OffHeapContextTrees, so they can be used with ContextTreeOperations.
+ * 
+ * The nodes created by this factory are allocated in a new OffHeapContextTree (with the same long columns as the input trees), which is
+ * returned by createTree(). The first node created after createTree() (or after constructing the factory) becomes the root of the next
+ * tree, which is how ContextTreeOperations create their results.
+ * 
+ * The long columns are combined like this: union is MAX(v1, v2), intersection is MIN(v1, v2), addition is v1 + v2, and subtraction is
+ * MAX(0, v1 - v2). ContextTreeOperations.mergeInto adds the columns of the source nodes to the ones of the target nodes.
+ * 
+ * Sibling nodes are ordered by the ids of their labels in the LabelDictionary of the factory, so merging trees compares ints instead of
+ * labels. This order is not alphabetical, but it is consistent across all trees that share the dictionary. Labels of trees with a
+ * different dictionary are interned into the factory's dictionary first.
+ * 
+ * All nodes are appended to one tree, so this factory is not thread-safe (ParallelContextTreeOperations falls back to a sequential
+ * merge with it).
+ */
+public final class OffHeapContextTreeFactory implements AccumulatingContextTreeFactory<Node> {
+
+    private final String name;
+    private final LabelDictionary labels;
+    private final Comparator<Node> comparator;
+    private OffHeapContextTree target;
+
+    /**
+     * Create a factory using the shared LabelDictionary.
+     * 
+     * @param name
+     *            the name of the trees created by this factory
+     */
+    public OffHeapContextTreeFactory(final String name) {
+        this(name, LabelDictionary.getShared());
+    }
+
+    /**
+     * @param name
+     *            the name of the trees created by this factory
+     * @param labels
+     *            the dictionary used to order labels, and to intern the labels of created trees
+     */
+    public OffHeapContextTreeFactory(final String name, final LabelDictionary labels) {
+        this.name = name;
+        this.labels = labels;
+        comparator = new Comparator<Node>() {
+            public int compare(final Node node1, final Node node2) {
+                return Integer.compare(getLabelId(node1), getLabelId(node2));
+            }
+        };
+    }
+
+    private int getLabelId(final Node node) {
+        final OffHeapContextTree tree = node.getTree();
+        if (tree.getLabelDictionary() == labels) {
+            return tree.getLabelId(node);
+        } else {
+            return labels.intern(tree.getLabel(node));
+        }
+    }
+
+    public ContextTree<Node> createTree(final Node root) {
+        final OffHeapContextTree tree = root.getTree();
+        if (tree != target || root.getIndex() != 0) {
+            throw new IllegalArgumentException("Root was not the first node created by this factory");
+        }
+        target = null;
+        return tree;
+    }
+
+    private Node createNode(final Node template) {
+        if (target == null) {
+            target = new OffHeapContextTree(name, template.getTree().getLongColumnNames(), labels);
+        }
+        return target.createNode(template.getTree().getLabel(template));
+    }
+
+    public Node cloneNode(final Node node) {
+        final Node clone = createNode(node);
+        final OffHeapContextTree tree = node.getTree();
+        for (int c = 0; c < target.getLongColumnCount(); c++) {
+            target.setLong(c, clone, tree.getLong(c, node));
+        }
+        return clone;
+    }
+
+    public void connectParentAndChild(final Node parent, final Node child) {
+        parent.getTree().connect(parent, child);
+    }
+
+    public Node unionNodes(final Node node1, final Node node2) {
+        final Node result = createNode(node1);
+        for (int c = 0; c < target.getLongColumnCount(); c++) {
+            target.setLong(c, result, Math.max(node1.getTree().getLong(c, node1), node2.getTree().getLong(c, node2)));
+        }
+        return result;
+    }
+
+    /**
+     * Create just one node (the default implementation would allocate intermediate nodes in the target tree).
+     */
+    public Node unionNodes(final List<Node> nodes) {
+        final Node result = createNode(nodes.get(0));
+        for (int c = 0; c < target.getLongColumnCount(); c++) {
+            long max = Long.MIN_VALUE;
+            for (final Node node : nodes) {
+                max = Math.max(max, node.getTree().getLong(c, node));
+            }
+            target.setLong(c, result, max);
+        }
+        return result;
+    }
+
+    public Node intersectNodes(final Node node1, final Node node2) {
+        final Node result = createNode(node1);
+        for (int c = 0; c < target.getLongColumnCount(); c++) {
+            target.setLong(c, result, Math.min(node1.getTree().getLong(c, node1), node2.getTree().getLong(c, node2)));
+        }
+        return result;
+    }
+
+    public Node addNodes(final Node node1, final Node node2) {
+        final Node result = createNode(node1);
+        for (int c = 0; c < target.getLongColumnCount(); c++) {
+            target.setLong(c, result, node1.getTree().getLong(c, node1) + node2.getTree().getLong(c, node2));
+        }
+        return result;
+    }
+
+    public Node subtractNodes(final Node node1, final Node node2) {
+        final Node result = createNode(node1);
+        for (int c = 0; c < target.getLongColumnCount(); c++) {
+            target.setLong(c, result, Math.max(0, node1.getTree().getLong(c, node1) - node2.getTree().getLong(c, node2)));
+        }
+        return result;
+    }
+
+    /**
+     * Add the long columns of sourceNode to the ones of targetNode.
+     */
+    public void accumulateInto(final Node targetNode, final Node sourceNode) {
+        final OffHeapContextTree targetTree = targetNode.getTree();
+        final OffHeapContextTree sourceTree = sourceNode.getTree();
+        for (int c = 0; c < targetTree.getLongColumnCount(); c++) {
+            targetTree.addToLong(c, targetNode, sourceTree.getLong(c, sourceNode));
+        }
+    }
+
+    /**
+     * Create the clone directly in the tree of parent (cloneNode would create it in the tree this factory is building).
+     */
+    public Node cloneChild(final Node parent, final Node node) {
+        final OffHeapContextTree targetTree = parent.getTree();
+        final OffHeapContextTree sourceTree = node.getTree();
+        final Node child = targetTree.addNode(parent, sourceTree.getLabel(node));
+        for (int c = 0; c < targetTree.getLongColumnCount(); c++) {
+            targetTree.setLong(c, child, sourceTree.getLong(c, node));
+        }
+        return child;
+    }
+
+    /**
+     * Relabel the node in place.
+     */
+    public Node relabelNode(final Node node, final Object label) {
+        node.getTree().setLabel(node, label);
+        return node;
+    }
+
+    /**
+     * Create a node in the tree this factory is building. It can't be the first node (the root), because the long columns of the
+     * tree are taken from the first node.
+     */
+    public Node createNode(final Object label) {
+        if (target == null) {
+            throw new IllegalStateException("The root has to be created first");
+        }
+        return target.createNode(label);
+    }
+
+    /**
+     * Return a new factory (with the same name and dictionary), so the detached nodes are allocated in a tree of their own, and not in
+     * the tree this factory is building.
+     */
+    public ContextTreeFactory<Node> forDetachedNodes() {
+        return new OffHeapContextTreeFactory(name, labels);
+    }
+
+    public ArrayList<Node> getOrderedChildren(final Node node) {
+        final ArrayList<Node> children = new ArrayList<Node>(node.getTree().getChildCount(node));
+        for (final Node child : node.getTree().iterable(node)) {
+            children.add(child);
+        }
+        Collections.sort(children, getNodeComparator());
+        return children;
+    }
+
+    public Comparator<Node> getNodeComparator() {
+        return comparator;
+    }
+
+    /**
+     * Labels are compared by their ids in the dictionary, which are equal exactly if the labels are equal.
+     */
+    public boolean isComparatorConsistentWithLabels() {
+        return true;
+    }
+
+}
@@ -0,0 +1,84 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model.operations;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+import ch.usi.inf.sape.trevis.model.ContextTree;
+import ch.usi.inf.sape.trevis.model.FrozenContextTree;
+import ch.usi.inf.sape.trevis.model.RandomAccessContextTree;
+
+/**
+ * Provides the children of the nodes of one tree in the order of a factory's node comparator.
+ *
+ * If the tree declares (with getChildComparator()) that its children already are in that order, and if it provides fast access to
+ * children by position, the children are returned as a view of the tree, without copying or sorting. Otherwise they are obtained from
+ * factory.getOrderedChildren().
+ */
+final class OrderedChildren<T> {
+
+    private final ContextTree<T> tree;
+    private final ContextTreeFactory<T> factory;
+    private final boolean canonical;
+
+    OrderedChildren(final ContextTree<T> tree, final ContextTreeFactory<T> factory) {
+        this.tree = tree;
+        this.factory = factory;
+        canonical = tree instanceof RandomAccessContextTree && tree.getChildComparator() != null
+                && tree.getChildComparator().equals(factory.getNodeComparator());
+    }
+
+    /**
+     * @return true if the children are used as they are, without sorting
+     */
+    boolean isCanonical() {
+        return canonical;
+    }
+
+    /**
+     * @return the children of the given node, ordered by the factory's node comparator (the list must not be modified)
+     */
+    List<T> get(final T node) {
+        if (!canonical) {
+            return factory.getOrderedChildren(node);
+        } else if (tree instanceof FrozenContextTree) {
+            return ((FrozenContextTree<T>) tree).getChildren(node);
+        } else {
+            return new ChildList<T>(tree, node);
+        }
+    }
+
+
+    private static final class ChildList<T> extends AbstractList<T> implements RandomAccess {
+
+        private final ContextTree<T> tree;
+        private final T parent;
+        private final int size;
+
+        private ChildList(final ContextTree<T> tree, final T parent) {
+            this.tree = tree;
+            this.parent = parent;
+            size = tree.getChildCount(parent);
+        }
+
+        public T get(final int index) {
+            return tree.getChild(parent, index);
+        }
+
+        public int size() {
+            return size;
+        }
+
+    }
+
+}
@@ -0,0 +1,293 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model.operations;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import ch.usi.inf.sape.trevis.model.ContextTree;
+import ch.usi.inf.sape.trevis.model.FrozenContextTree;
+import ch.usi.inf.sape.trevis.model.attribute.StructuralStatistics;
+
+/**
+ * ParallelContextTreeOperations computes the same union, intersection, and difference of two ContextTrees as ContextTreeOperations,
+ * but merges the subtrees below different children in parallel, using a ForkJoinPool.
+ *
+ * A node's children are created and connected to it by a single task, in the same order as in ContextTreeOperations, so the resulting
+ * tree is identical to the one computed sequentially. The subtrees below the children are then merged by separate tasks. Pairs of
+ * subtrees with fewer than threshold nodes (together) are merged sequentially within one task.
+ *
+ * The given ContextTreeFactory is used from several threads at the same time, so it has to support concurrent calls, as long as they
+ * involve different output parents, and declare this with isThreadSafe(). This is usually the case for factories creating independent
+ * node objects, but not e.g. for the OffHeapContextTreeFactory, which appends to one shared tree. With a factory that is not
+ * thread-safe, the operations fall back to the sequential ones of ContextTreeOperations.
+ *
+ * The input trees must not change during an operation. To decide how to split the work, the operations need the size of each subtree.
+ * A FrozenContextTree provides them directly, for any other tree they are computed first, sequentially, in a pass over the whole tree
+ * (building a NodeIndex). So freeze the input trees (ContextTreeOperations.freeze) if they are used for several operations.
+ *
+ * The tasks wait for the tasks they forked, so they need a ForkJoinPool, whose threads run other pending tasks while they wait. With a
+ * plain Executor, the waiting tasks would block their threads, so a bounded thread pool could deadlock with all threads waiting for
+ * queued tasks. Thus only a ForkJoinPool (by default the common pool) can be supplied.
+ *
+ * @see ContextTreeOperations
+ */
+public final class ParallelContextTreeOperations {
+
+    /**
+     * The default minimum number of nodes in a pair of subtrees to be merged, for the merge to be split into parallel tasks.
+     */
+    public static final int DEFAULT_THRESHOLD = 1 << 14;
+
+    public static <T> ContextTree<T> union(final ContextTree<T> a, final ContextTree<T> b, final ContextTreeFactory<T> factory) {
+        return union(a, b, factory, ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+    }
+
+    public static <T> ContextTree<T> union(final ContextTree<T> a, final ContextTree<T> b, final ContextTreeFactory<T> factory,
+            final ForkJoinPool pool, final int threshold) {
+        return merge(ContextTreeMerger.Operation.UNION, a, b, factory, pool, threshold);
+    }
+
+    public static <T> ContextTree<T> intersection(final ContextTree<T> a, final ContextTree<T> b, final ContextTreeFactory<T> factory) {
+        return intersection(a, b, factory, ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+    }
+
+    public static <T> ContextTree<T> intersection(final ContextTree<T> a, final ContextTree<T> b, final ContextTreeFactory<T> factory,
+            final ForkJoinPool pool, final int threshold) {
+        return merge(ContextTreeMerger.Operation.INTERSECTION, a, b, factory, pool, threshold);
+    }
+
+    public static <T> ContextTree<T> subtract(final ContextTree<T> a, final ContextTree<T> b, final ContextTreeFactory<T> factory) {
+        return subtract(a, b, factory, ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+    }
+
+    public static <T> ContextTree<T> subtract(final ContextTree<T> a, final ContextTree<T> b, final ContextTreeFactory<T> factory,
+            final ForkJoinPool pool, final int threshold) {
+        return merge(ContextTreeMerger.Operation.SUBTRACTION, a, b, factory, pool, threshold);
+    }
+
+    private static <T> ContextTree<T> merge(final ContextTreeMerger.Operation operation, final ContextTree<T> a, final ContextTree<T> b,
+            final ContextTreeFactory<T> factory, final ForkJoinPool pool, final int threshold) {
+        if (!factory.isThreadSafe()) {
+            return ContextTreeOperations.merge(operation, a, b, factory);
+        }
+        final Merge<T> merge = new Merge<T>(operation, a, b, factory, threshold);
+        final T root = ContextTreeMerger.combineNodes(operation, factory, a.getRoot(), b.getRoot());
+        pool.invoke(merge.new MergeStep(a.getRoot(), b.getRoot(), root));
+        final ContextTree<T> tree = factory.createTree(root);
+        return tree;
+    }
+
+
+    /**
+     * The number of nodes in each subtree of a tree, used to decide whether a merge is worth splitting.
+     */
+    private static final class SubtreeSizes {
+
+        private final FrozenContextTree<Object> frozen;
+        private final StructuralStatistics statistics;
+
+        @SuppressWarnings("unchecked")
+        private SubtreeSizes(final ContextTree<?> tree) {
+            if (tree instanceof FrozenContextTree) {
+                frozen = (FrozenContextTree<Object>) tree;
+                statistics = null;
+            } else {
+                frozen = null;
+                statistics = new StructuralStatistics(tree);
+            }
+        }
+
+        private int get(final Object node) {
+            return frozen != null ? frozen.getSubtreeSize(node) : statistics.getDescendantCount(statistics.indexOf(node)) + 1;
+        }
+
+    }
+
+
+    /**
+     * The state shared by all tasks of one operation.
+     */
+    private static final class Merge<T> {
+
+        private final ContextTreeMerger.Operation operation;
+        private final ContextTree<T> aTree;
+        private final ContextTree<T> bTree;
+        private final ContextTreeFactory<T> factory;
+        private final int threshold;
+        private final SubtreeSizes aSizes;
+        private final SubtreeSizes bSizes;
+        private final ChildMatcher<T> matcher;
+
+        private Merge(final ContextTreeMerger.Operation operation, final ContextTree<T> aTree, final ContextTree<T> bTree,
+                final ContextTreeFactory<T> factory, final int threshold) {
+            this.operation = operation;
+            this.aTree = aTree;
+            this.bTree = bTree;
+            this.factory = factory;
+            this.threshold = threshold;
+            aSizes = new SubtreeSizes(aTree);
+            bSizes = new SubtreeSizes(bTree);
+            matcher = new ChildMatcher<T>(aTree, bTree, factory);
+        }
+
+        private ContextTreeMerger<T> newMerger() {
+            return new ContextTreeMerger<T>(operation, aTree, bTree, factory);
+        }
+
+
+        /**
+         * A part of the merge. A step that is too large to be done sequentially creates the children of its output node, forks steps
+         * for all children but the largest one, and then continues with the largest one itself. Thus a step only waits for forked steps
+         * of at most half its size, and the nesting of steps (and thus the stack depth) is logarithmic in the size of the trees, even
+         * for deep trees.
+         */
+        private abstract class Step extends RecursiveAction {
+
+            private static final long serialVersionUID = 202610171L;
+
+            protected final int size;
+
+            protected Step(final int size) {
+                this.size = size;
+            }
+
+            protected final void compute() {
+                final ArrayList<Step> forked = new ArrayList<Step>();
+                Step step = this;
+                while (step != null) {
+                    step = step.split(forked);
+                }
+                for (int i = forked.size() - 1; i >= 0; i--) {
+                    forked.get(i).join();
+                }
+            }
+
+            /**
+             * Do this step sequentially and return null, or create the children, fork all child steps but the largest one (adding them
+             * to forked), and return the largest one.
+             */
+            protected abstract Step split(ArrayList<Step> forked);
+
+            protected final Step forkAllButLargest(final ArrayList<Step> steps, final ArrayList<Step> forked) {
+                if (steps.isEmpty()) {
+                    return null;
+                }
+                int largest = 0;
+                for (int i = 1; i < steps.size(); i++) {
+                    if (steps.get(i).size > steps.get(largest).size) {
+                        largest = i;
+                    }
+                }
+                for (int i = 0; i < steps.size(); i++) {
+                    if (i != largest) {
+                        final Step step = steps.get(i);
+                        step.fork();
+                        forked.add(step);
+                    }
+                }
+                return steps.get(largest);
+            }
+
+        }
+
+
+        /**
+         * Merge the subtrees below the matched nodes aNode and bNode into outNode.
+         */
+        private final class MergeStep extends Step {
+
+            private static final long serialVersionUID = 202610171L;
+
+            private final T aNode;
+            private final T bNode;
+            private final T outNode;
+
+            private MergeStep(final T aNode, final T bNode, final T outNode) {
+                super(aSizes.get(aNode) + bSizes.get(bNode));
+                this.aNode = aNode;
+                this.bNode = bNode;
+                this.outNode = outNode;
+            }
+
+            protected Step split(final ArrayList<Step> forked) {
+                if (size < threshold) {
+                    newMerger().mergeChildren(aNode, bNode, outNode);
+                    return null;
+                }
+                final ArrayList<T> aChildren = new ArrayList<T>();
+                final ArrayList<T> bChildren = new ArrayList<T>();
+                matcher.match(aNode, bNode, operation != ContextTreeMerger.Operation.INTERSECTION,
+                        operation == ContextTreeMerger.Operation.UNION, aChildren, bChildren);
+                final ArrayList<Step> steps = new ArrayList<Step>(aChildren.size());
+                for (int i = 0; i < aChildren.size(); i++) {
+                    final T aChild = aChildren.get(i);
+                    final T bChild = bChildren.get(i);
+                    if (aChild == null) {
+                        steps.add(cloneChild(false, bChild));
+                    } else if (bChild == null) {
+                        steps.add(cloneChild(true, aChild));
+                    } else {
+                        final T outChild = ContextTreeMerger.combineNodes(operation, factory, aChild, bChild);
+                        factory.connectParentAndChild(outNode, outChild);
+                        steps.add(new MergeStep(aChild, bChild, outChild));
+                    }
+                }
+                return forkAllButLargest(steps, forked);
+            }
+
+            private CloneStep cloneChild(final boolean fromA, final T inChild) {
+                final T outChild = factory.cloneNode(inChild);
+                factory.connectParentAndChild(outNode, outChild);
+                return new CloneStep(fromA, inChild, outChild);
+            }
+
+        }
+
+
+        /**
+         * Clone the subtrees below inNode (of tree A if fromA, otherwise of tree B) into outNode.
+         */
+        private final class CloneStep extends Step {
+
+            private static final long serialVersionUID = 202610171L;
+
+            private final boolean fromA;
+            private final T inNode;
+            private final T outNode;
+
+            private CloneStep(final boolean fromA, final T inNode, final T outNode) {
+                super((fromA ? aSizes : bSizes).get(inNode));
+                this.fromA = fromA;
+                this.inNode = inNode;
+                this.outNode = outNode;
+            }
+
+            protected Step split(final ArrayList<Step> forked) {
+                if (size < threshold) {
+                    newMerger().cloneChildren(fromA, inNode, outNode);
+                    return null;
+                }
+                final ArrayList<Step> steps = new ArrayList<Step>();
+                for (final T inChild : (fromA ? aTree : bTree).iterable(inNode)) {
+                    final T outChild = factory.cloneNode(inChild);
+                    factory.connectParentAndChild(outNode, outChild);
+                    steps.add(new CloneStep(fromA, inChild, outChild));
+                }
+                return forkAllButLargest(steps, forked);
+            }
+
+        }
+
+    }
+
+}
@@ -0,0 +1,208 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model.operations;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A SignatureIndex finds the pairs of trees that are likely to be similar, using locality-sensitive hashing on their TreeSignatures.
+ *
+ * Each signature is cut into a number of bands of a number of rows (values) each, and each tree is put into one bucket per band, keyed by
+ * the values of the band. Two trees are candidates if they share at least one bucket, which happens with a probability of
+ * 1 - (1 - s^rows)^bands for trees with similarity s: few rows and many bands find more (and less similar) candidates. Finding all
+ * candidate pairs takes time linear in the number of trees (plus the number of pairs found), instead of comparing all pairs.
+ *
+ * The candidates then can be compared exactly (with ContextTreeSimilarity or ContextTreeOperations.intersection).
+ *
+ * @param <K>
+ *            the type of the keys identifying the trees (e.g. the trees themselves, or their names)
+ * @see TreeSignature
+ */
+public final class SignatureIndex<K> {
+
+    /**
+     * A pair of keys whose trees share at least one bucket.
+     */
+    public static final class Pair<K> {
+
+        private final K first;
+        private final K second;
+
+        private Pair(final K first, final K second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        /**
+         * @return the key that was added first
+         */
+        public K getFirst() {
+            return first;
+        }
+
+        /**
+         * @return the key that was added second
+         */
+        public K getSecond() {
+            return second;
+        }
+
+        public String toString() {
+            return "(" + first + ", " + second + ")";
+        }
+
+    }
+
+    private final int bands;
+    private final int rows;
+    private final ArrayList<K> keys;
+    private final ArrayList<TreeSignature> signatures;
+    private final HashMap<K, Integer> positions;
+    // one map per band, from the hash of the band's values to the positions (in keys) of the trees in that bucket
+    private final ArrayList<HashMap<Long, ArrayList<Integer>>> buckets;
+
+    /**
+     * Create an empty SignatureIndex for signatures of size bands * rows.
+     */
+    public SignatureIndex(final int bands, final int rows) {
+        if (bands <= 0 || rows <= 0) {
+            throw new IllegalArgumentException("Bands and rows must be positive: " + bands + ", " + rows);
+        }
+        this.bands = bands;
+        this.rows = rows;
+        keys = new ArrayList<K>();
+        signatures = new ArrayList<TreeSignature>();
+        positions = new HashMap<K, Integer>();
+        buckets = new ArrayList<HashMap<Long, ArrayList<Integer>>>(bands);
+        for (int band = 0; band < bands; band++) {
+            buckets.add(new HashMap<Long, ArrayList<Integer>>());
+        }
+    }
+
+    public int getBands() {
+        return bands;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * @return the number of trees in this index
+     */
+    public int size() {
+        return keys.size();
+    }
+
+    /**
+     * Add the tree with the given key and signature.
+     */
+    public void add(final K key, final TreeSignature signature) {
+        checkSize(signature);
+        if (positions.containsKey(key)) {
+            throw new IllegalArgumentException("Key already added: " + key);
+        }
+        final Integer position = keys.size();
+        positions.put(key, position);
+        keys.add(key);
+        signatures.add(signature);
+        for (int band = 0; band < bands; band++) {
+            final Long bandHash = bandHash(signature, band);
+            ArrayList<Integer> bucket = buckets.get(band).get(bandHash);
+            if (bucket == null) {
+                bucket = new ArrayList<Integer>(2);
+                buckets.get(band).put(bandHash, bucket);
+            }
+            bucket.add(position);
+        }
+    }
+
+    /**
+     * @return the signature of the tree with the given key, or null if there is no such tree
+     */
+    public TreeSignature getSignature(final K key) {
+        final Integer position = positions.get(key);
+        return position == null ? null : signatures.get(position);
+    }
+
+    /**
+     * @return the keys of the trees sharing at least one bucket with the given signature, in the order they were added
+     */
+    public Set<K> getCandidates(final TreeSignature signature) {
+        checkSize(signature);
+        final HashSet<Integer> found = new HashSet<Integer>();
+        for (int band = 0; band < bands; band++) {
+            final ArrayList<Integer> bucket = buckets.get(band).get(bandHash(signature, band));
+            if (bucket != null) {
+                found.addAll(bucket);
+            }
+        }
+        final ArrayList<Integer> sorted = new ArrayList<Integer>(found);
+        Collections.sort(sorted);
+        final LinkedHashSet<K> candidates = new LinkedHashSet<K>();
+        for (final int position : sorted) {
+            candidates.add(keys.get(position));
+        }
+        return candidates;
+    }
+
+    /**
+     * @return all pairs of trees sharing at least one bucket, each pair once
+     */
+    public List<Pair<K>> getCandidatePairs() {
+        return getSimilarPairs(Double.NEGATIVE_INFINITY);
+    }
+
+    /**
+     * @return the candidate pairs whose estimated similarity is at least the given threshold, each pair once
+     */
+    public List<Pair<K>> getSimilarPairs(final double threshold) {
+        final HashSet<Long> seen = new HashSet<Long>();
+        final ArrayList<Pair<K>> pairs = new ArrayList<Pair<K>>();
+        for (final HashMap<Long, ArrayList<Integer>> band : buckets) {
+            for (final ArrayList<Integer> bucket : band.values()) {
+                for (int i = 0; i < bucket.size(); i++) {
+                    for (int j = i + 1; j < bucket.size(); j++) {
+                        final int first = bucket.get(i);
+                        final int second = bucket.get(j);
+                        if (seen.add(((long) first << 32) | second)
+                                && signatures.get(first).similarity(signatures.get(second)) >= threshold) {
+                            pairs.add(new Pair<K>(keys.get(first), keys.get(second)));
+                        }
+                    }
+                }
+            }
+        }
+        return pairs;
+    }
+
+    private void checkSize(final TreeSignature signature) {
+        if (signature.getSize() != bands * rows) {
+            throw new IllegalArgumentException("Signature size " + signature.getSize() + " does not match " + bands + " bands of "
+                    + rows + " rows");
+        }
+    }
+
+    private long bandHash(final TreeSignature signature, final int band) {
+        long hash = band;
+        for (int row = band * rows; row < (band + 1) * rows; row++) {
+            hash = TreeSignature.mix(hash * 31 + signature.getValue(row));
+        }
+        return hash;
+    }
+
+}
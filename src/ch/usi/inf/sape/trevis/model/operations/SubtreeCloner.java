@@ -0,0 +1,64 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model.operations;
+
+import java.util.Arrays;
+
+import ch.usi.inf.sape.trevis.model.TreeCursor;
+
+/**
+ * Clones subtrees with a ContextTreeFactory, walking them with a TreeCursor (no recursion).
+ *
+ * A SubtreeCloner can be reused for any number of subtrees, but not by multiple threads at the same time.
+ */
+final class SubtreeCloner<T> {
+
+    private final ContextTreeFactory<T> factory;
+    private Object[] outNodes;
+
+    SubtreeCloner(final ContextTreeFactory<T> factory) {
+        this.factory = factory;
+        outNodes = new Object[16];
+    }
+
+    /**
+     * Clone the subtree rooted at inNode (a node of the cursor's tree), and connect the clone below outParent.
+     */
+    void cloneSubtree(final TreeCursor<T> cursor, final T inNode, final T outParent) {
+        // in pre-order, the parent of a node at depth d is the last node cloned at depth d-1
+        outNodes[0] = outParent;
+        int maxDepth = 0;
+        cursor.reset(inNode, TreeCursor.Order.PRE_ORDER);
+        while (cursor.next()) {
+            final int depth = cursor.getDepth() + 1;
+            final T outChild = factory.cloneNode(cursor.getNode());
+            @SuppressWarnings("unchecked")
+            final T parent = (T) outNodes[depth - 1];
+            factory.connectParentAndChild(parent, outChild);
+            if (depth == outNodes.length) {
+                outNodes = Arrays.copyOf(outNodes, 2 * depth);
+            }
+            outNodes[depth] = outChild;
+            maxDepth = Math.max(maxDepth, depth);
+        }
+        Arrays.fill(outNodes, 0, maxDepth + 1, null);
+    }
+
+    /**
+     * Clone the subtrees below inNode (a node of the cursor's tree), and connect the clones below outNode.
+     */
+    void cloneChildren(final TreeCursor<T> cursor, final T inNode, final T outNode) {
+        for (final T child : cursor.getTree().iterable(inNode)) {
+            cloneSubtree(cursor, child, outNode);
+        }
+    }
+
+}
@@ -0,0 +1,203 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model.operations;
+
+import java.util.Arrays;
+
+import ch.usi.inf.sape.trevis.model.ContextTree;
+import ch.usi.inf.sape.trevis.model.TreeCursor;
+import ch.usi.inf.sape.trevis.model.attribute.LongAttribute;
+
+/**
+ * A TreeSignature is a fixed-size MinHash sketch of a ContextTree, used to estimate the similarity of two trees without walking them.
+ *
+ * Each node is identified by the hash of its path (the labels from the root's child down to the node; like in ContextTreeOperations,
+ * the roots of all trees correspond to each other). An unweighted signature estimates the Jaccard index of the nodes of two trees
+ * (ContextTreeSimilarity.jaccard), a weighted signature (using Ioffe's consistent weighted sampling) estimates the weighted Jaccard index
+ * (ContextTreeSimilarity.weightedJaccard). The more values a signature has, the more precise the estimate: its standard error is about
+ * 1/sqrt(size).
+ *
+ * Signatures are computed in one walk over the tree. Labels are hashed with hashCode(), so signatures can only be compared if the
+ * labels' hash codes are stable (as they are for Strings), and if they were computed with the same size and the same weightedness.
+ *
+ * @see SignatureIndex
+ * @see ContextTreeSimilarity
+ */
+public final class TreeSignature {
+
+    private static final long ROOT_PATH_HASH = 0x2545F4914F6CDD1DL;
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private final long[] values;
+    private final boolean weighted;
+
+    private TreeSignature(final long[] values, final boolean weighted) {
+        this.values = values;
+        this.weighted = weighted;
+    }
+
+    /**
+     * Compute the unweighted signature of the given tree.
+     *
+     * @param size
+     *            the number of values of the signature
+     */
+    public static <T> TreeSignature compute(final ContextTree<T> tree, final int size) {
+        return compute(tree, null, size);
+    }
+
+    /**
+     * Compute the signature of the given tree.
+     *
+     * @param weight
+     *            the attribute providing the (non-negative) weight of each node (nodes with weight 0 are ignored), or null for an
+     *            unweighted signature
+     * @param size
+     *            the number of values of the signature
+     */
+    public static <T> TreeSignature compute(final ContextTree<T> tree, final LongAttribute weight, final int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Signature size must be positive: " + size);
+        }
+        final long[] values = new long[size];
+        Arrays.fill(values, Long.MAX_VALUE);
+        // for weighted signatures, the logarithm of the smallest sample found so far for each value
+        final double[] minima = weight == null ? null : new double[size];
+        if (minima != null) {
+            Arrays.fill(minima, Double.POSITIVE_INFINITY);
+        }
+        // in pre-order, the parent of a node at depth d is the last node visited at depth d-1
+        long[] pathHashes = new long[16];
+        final TreeCursor<T> cursor = new TreeCursor<T>(tree);
+        cursor.reset(tree.getRoot(), TreeCursor.Order.PRE_ORDER);
+        while (cursor.next()) {
+            final int depth = cursor.getDepth();
+            final T node = cursor.getNode();
+            final long pathHash;
+            if (depth == 0) {
+                pathHash = ROOT_PATH_HASH;
+            } else {
+                pathHash = mix(pathHashes[depth - 1] * 31 + tree.getLabel(node).hashCode());
+            }
+            if (depth == pathHashes.length) {
+                pathHashes = Arrays.copyOf(pathHashes, 2 * depth);
+            }
+            pathHashes[depth] = pathHash;
+            if (weight == null) {
+                addElement(pathHash, values);
+            } else {
+                final long w = weight.evaluate(node);
+                if (w > 0) {
+                    addWeightedElement(pathHash, w, values, minima);
+                }
+            }
+        }
+        return new TreeSignature(values, weight != null);
+    }
+
+    private static void addElement(final long element, final long[] values) {
+        for (int i = 0; i < values.length; i++) {
+            final long hash = mix(element + (i + 1) * GOLDEN_GAMMA);
+            if (hash < values[i]) {
+                values[i] = hash;
+            }
+        }
+    }
+
+    /**
+     * Improved consistent weighted sampling (Ioffe 2010): for each value, the element with the smallest sample c / (y * e^r) wins, and
+     * the value identifies the element together with its quantized weight t.
+     */
+    private static void addWeightedElement(final long element, final long weight, final long[] values, final double[] minima) {
+        final double logWeight = Math.log(weight);
+        for (int i = 0; i < values.length; i++) {
+            long state = mix(element + (i + 1) * GOLDEN_GAMMA);
+            // r and c are Gamma(2,1), beta is Uniform(0,1)
+            final double u1 = uniform(state);
+            final double u2 = uniform(state = mix(state + GOLDEN_GAMMA));
+            final double u3 = uniform(state = mix(state + GOLDEN_GAMMA));
+            final double u4 = uniform(state = mix(state + GOLDEN_GAMMA));
+            final double beta = uniform(mix(state + GOLDEN_GAMMA));
+            final double r = -Math.log(u1 * u2);
+            final double logC = Math.log(-Math.log(u3 * u4));
+            final double t = Math.floor(logWeight / r + beta);
+            // log(c / (y * e^r)), with y = e^(r * (t - beta))
+            final double logA = logC - r * (t - beta) - r;
+            if (logA < minima[i]) {
+                minima[i] = logA;
+                values[i] = mix(element ^ mix((long) t + GOLDEN_GAMMA));
+            }
+        }
+    }
+
+    /**
+     * @return a uniform double in (0,1) derived from the given random bits
+     */
+    private static double uniform(final long bits) {
+        return ((bits >>> 11) + 0.5) * 0x1.0p-53;
+    }
+
+    /**
+     * The SplitMix64 finalizer.
+     */
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * @return the number of values of this signature
+     */
+    public int getSize() {
+        return values.length;
+    }
+
+    /**
+     * @return whether this signature was computed with weights
+     */
+    public boolean isWeighted() {
+        return weighted;
+    }
+
+    long getValue(final int index) {
+        return values[index];
+    }
+
+    /**
+     * Estimate the (weighted, if the signatures are weighted) Jaccard index of the trees of this signature and the other signature.
+     *
+     * @return the fraction of values the two signatures have in common
+     */
+    public double similarity(final TreeSignature other) {
+        if (other.values.length != values.length || other.weighted != weighted) {
+            throw new IllegalArgumentException("Signatures are not comparable: sizes " + values.length + " and " + other.values.length
+                    + (weighted ? ", weighted" : ", unweighted") + " and " + (other.weighted ? "weighted" : "unweighted"));
+        }
+        int equal = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == other.values[i]) {
+                equal++;
+            }
+        }
+        return (double) equal / values.length;
+    }
+
+    public boolean equals(final Object other) {
+        return other instanceof TreeSignature && ((TreeSignature) other).weighted == weighted
+                && Arrays.equals(((TreeSignature) other).values, values);
+    }
+
+    public int hashCode() {
+        return Arrays.hashCode(values);
+    }
+
+}
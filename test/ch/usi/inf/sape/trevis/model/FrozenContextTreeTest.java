@@ -0,0 +1,96 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import ch.usi.inf.sape.trevis.model.attribute.DescendantCountAttribute;
+import ch.usi.inf.sape.trevis.model.operations.ContextTreeOperations;
+import ch.usi.inf.sape.trevis.model.operations.SampleNodeFactory;
+
+public class FrozenContextTreeTest {
+
+    private final NodeContextTree<SampleNode> tree = SampleTrees.random(new Random(7), 4000, 10);
+
+    @Test
+    public void hasTheStructureOfTheOriginalTree() {
+        final FrozenContextTree<SampleNode> frozen = ContextTreeOperations.freeze(tree);
+        final List<SampleNode> nodes = SampleTrees.nodes(tree);
+        assertEquals(nodes, SampleTrees.nodes(frozen));
+        assertEquals(nodes.size(), frozen.size());
+        final DescendantCountAttribute descendants = new DescendantCountAttribute(tree);
+        for (int position = 0; position < nodes.size(); position++) {
+            final SampleNode node = nodes.get(position);
+            assertEquals(position, frozen.getPosition(node));
+            assertSame(node, frozen.getNode(position));
+            assertEquals(descendants.evaluate(node), frozen.getDescendantCount(node));
+            assertEquals(tree.getHeight(node), frozen.getHeight(node));
+            assertSame(tree.getParent(node), frozen.getParent(node));
+            assertEquals(tree.getChildCount(node), frozen.getChildCount(node));
+            for (int i = 0; i < tree.getChildCount(node); i++) {
+                final SampleNode child = tree.getChild(node, i);
+                assertSame(child, frozen.getChild(node, i));
+                assertSame(child, frozen.getChild(node, child.getLabel()));
+                assertEquals(i, frozen.indexOfChild(node, child));
+            }
+            if (tree.getParent(node) != null) {
+                assertTrue(frozen.isAncestor(tree.getParent(node), node));
+                assertFalse(frozen.isAncestor(node, tree.getParent(node)));
+            }
+        }
+    }
+
+    @Test
+    public void subtreesAreContiguous() {
+        final FrozenContextTree<SampleNode> frozen = ContextTreeOperations.freeze(tree);
+        for (final SampleNode node : SampleTrees.nodes(tree)) {
+            final ArrayList<SampleNode> subtree = new ArrayList<SampleNode>();
+            for (final SampleNode descendant : frozen.subtree(node)) {
+                subtree.add(descendant);
+            }
+            assertEquals(frozen.getSubtreeSize(node), subtree.size());
+            for (int i = 0; i < subtree.size(); i++) {
+                assertSame(frozen.getNode(frozen.getPosition(node) + i), subtree.get(i));
+                assertTrue(frozen.isAncestor(node, subtree.get(i)) || subtree.get(i) == node);
+            }
+        }
+    }
+
+    @Test
+    public void sortedChildrenKeepTheirPositions() {
+        final SampleNodeFactory factory = new SampleNodeFactory();
+        final FrozenContextTree<SampleNode> frozen = ContextTreeOperations.freeze(tree, factory.getNodeComparator());
+        assertSame(factory.getNodeComparator(), frozen.getChildComparator());
+        for (final SampleNode node : SampleTrees.nodes(tree)) {
+            assertEquals(factory.getOrderedChildren(node), frozen.getChildren(node));
+        }
+        assertEquals(SampleTrees.paths(tree, SampleTrees.SAMPLES), SampleTrees.paths(frozen, SampleTrees.SAMPLES));
+    }
+
+    @Test
+    public void isASnapshot() {
+        final FrozenContextTree<SampleNode> frozen = ContextTreeOperations.freeze(tree);
+        final int size = frozen.size();
+        tree.getRoot().addChild(new SampleNode("added", 1));
+        assertEquals(size, frozen.size());
+        assertEquals(size, SampleTrees.nodes(frozen).size());
+    }
+
+}
@@ -0,0 +1,90 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import ch.usi.inf.sape.trevis.model.attribute.DescendantCountAttribute;
+import ch.usi.inf.sape.trevis.model.attribute.HeightAttribute;
+
+public class IntContextTreeTest {
+
+    @Test
+    public void adapterHandlesNavigateLikeTheNodes() {
+        for (int seed = 0; seed < 20; seed++) {
+            final Random random = new Random(seed);
+            final NodeContextTree<SampleNode> tree = SampleTrees.random(random, 1 + random.nextInt(3000), 2 + random.nextInt(8));
+            final ContextTreeIntAdapter<SampleNode> adapter = new ContextTreeIntAdapter<SampleNode>(tree);
+            assertEquals(SampleTrees.nodes(tree).size(), adapter.size());
+            assertSame(tree.getRoot(), adapter.getNode(adapter.getRoot()));
+            for (int node = 0; node < adapter.size(); node++) {
+                final SampleNode sampleNode = adapter.getNode(node);
+                assertEquals(tree.getChildCount(sampleNode), adapter.getChildCount(node));
+                int index = 0;
+                for (int child = adapter.getFirstChild(node); child != IntContextTree.NONE; child = adapter.getNextSibling(child)) {
+                    assertSame(tree.getChild(sampleNode, index), adapter.getNode(child));
+                    assertEquals(child, adapter.getChild(node, index));
+                    assertEquals(index, adapter.indexOfChild(node, child));
+                    assertEquals(node, adapter.getParent(child));
+                    index++;
+                }
+                assertEquals(adapter.getChildCount(node), index);
+                if (node > 0) {
+                    assertEquals(-1, adapter.indexOfChild(node, adapter.getRoot()));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void arrayTreeHasTheStructureItWasBuiltWith() {
+        final NodeContextTree<SampleNode> tree = SampleTrees.random(new Random(3), 2000, 10);
+        final ContextTreeIntAdapter<SampleNode> adapter = new ContextTreeIntAdapter<SampleNode>(tree);
+        final ArrayIntContextTree array = new ArrayIntContextTree("copy", "root");
+        // adapter handles are in pre-order, so each parent is copied before its children
+        final int[] copies = new int[adapter.size()];
+        for (int node = 1; node < adapter.size(); node++) {
+            copies[node] = array.addNode(copies[adapter.getParent(node)], adapter.getLabel(node));
+        }
+        assertEquals(adapter.size(), array.size());
+        for (int node = 0; node < adapter.size(); node++) {
+            assertEquals(adapter.getLabel(node), array.getLabel(copies[node]));
+            assertEquals(adapter.getChildCount(node), array.getChildCount(copies[node]));
+            for (int index = 0; index < adapter.getChildCount(node); index++) {
+                final int child = adapter.getChild(node, index);
+                assertEquals(copies[child], array.getChild(copies[node], adapter.getLabel(child)));
+                assertEquals(copies[child], array.getChild(copies[node], index));
+                assertEquals(index, array.indexOfChild(copies[node], copies[child]));
+            }
+        }
+        assertEquals(IntContextTree.NONE, array.getChild(array.getRoot(), "missing"));
+        final int added = array.getOrAddChild(array.getRoot(), "added");
+        assertEquals(added, array.getOrAddChild(array.getRoot(), "added"));
+        assertEquals(added, array.getChild(array.getRoot(), "added"));
+    }
+
+    @Test
+    public void boxedAdapterWorksWithAttributes() {
+        final NodeContextTree<SampleNode> tree = SampleTrees.random(new Random(4), 2000, 10);
+        final ContextTreeIntAdapter<SampleNode> adapter = new ContextTreeIntAdapter<SampleNode>(tree);
+        final IntContextTreeAdapter boxed = new IntContextTreeAdapter(adapter);
+        assertEquals(adapter.size() - 1, new DescendantCountAttribute(boxed).evaluate(boxed.getRoot()));
+        assertEquals(tree.getHeight(tree.getRoot()), new HeightAttribute(boxed).evaluate(boxed.getRoot()));
+        assertEquals(SampleTrees.paths(tree, new DescendantCountAttribute(tree)),
+                SampleTrees.paths(boxed, new DescendantCountAttribute(boxed)));
+    }
+
+}
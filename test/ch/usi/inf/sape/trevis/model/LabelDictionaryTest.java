@@ -0,0 +1,101 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import ch.usi.inf.sape.trevis.model.operations.ContextTreeOperations;
+import ch.usi.inf.sape.trevis.model.operations.OffHeapContextTreeFactory;
+import ch.usi.inf.sape.trevis.model.operations.SampleNodeFactory;
+
+public class LabelDictionaryTest {
+
+    @Test
+    public void assignsDenseIdsToEqualLabels() {
+        final LabelDictionary dictionary = new LabelDictionary();
+        assertEquals(-1, dictionary.getId("a"));
+        assertEquals(0, dictionary.intern("a"));
+        assertEquals(1, dictionary.intern("b"));
+        assertEquals(0, dictionary.intern(new String("a")));
+        assertEquals(1, dictionary.getId("b"));
+        assertEquals("b", dictionary.getLabel(1));
+        assertEquals(2, dictionary.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i + 2, dictionary.intern(Integer.valueOf(i)));
+        }
+        assertEquals(Integer.valueOf(999), dictionary.getLabel(1001));
+    }
+
+    @Test
+    public void concurrentInterningAgreesOnIds() throws Exception {
+        final LabelDictionary dictionary = new LabelDictionary();
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final ArrayList<Future<int[]>> results = new ArrayList<Future<int[]>>();
+            for (int t = 0; t < 4; t++) {
+                final int seed = t;
+                results.add(executor.submit(new Callable<int[]>() {
+                    public int[] call() {
+                        // intern all labels, starting at a different label in each thread
+                        final int[] ids = new int[5000];
+                        final int start = new Random(seed).nextInt(ids.length);
+                        for (int i = 0; i < ids.length; i++) {
+                            final int label = (start + i) % ids.length;
+                            ids[label] = dictionary.intern("label" + label);
+                        }
+                        return ids;
+                    }
+                }));
+            }
+            final int[] ids = results.get(0).get();
+            for (final Future<int[]> result : results) {
+                assertArrayEquals(ids, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(5000, dictionary.size());
+        for (int id = 0; id < dictionary.size(); id++) {
+            assertEquals(id, dictionary.getId(dictionary.getLabel(id)));
+        }
+    }
+
+    @Test
+    public void treesWithDifferentDictionariesCanBeMerged() {
+        final Random random = new Random(8);
+        final NodeContextTree<SampleNode> a = SampleTrees.random(random, 2000, 6);
+        final NodeContextTree<SampleNode> b = SampleTrees.random(random, 2000, 6);
+        final OffHeapContextTree offHeapA = SampleTrees.offHeap(a);
+        assertSame(LabelDictionary.getShared(), offHeapA.getLabelDictionary());
+        final LabelDictionary own = new LabelDictionary();
+        final OffHeapContextTreeFactory factory = new OffHeapContextTreeFactory("result", own);
+        final OffHeapContextTree union = (OffHeapContextTree) ContextTreeOperations.union(offHeapA, SampleTrees.offHeap(b),
+                factory);
+        assertSame(own, union.getLabelDictionary());
+        for (final OffHeapContextTree.Node node : SampleTrees.nodes(union)) {
+            assertEquals(own.getId(union.getLabel(node)), union.getLabelId(node));
+        }
+        assertEquals(SampleTrees.paths(ContextTreeOperations.union(a, b, new SampleNodeFactory()), SampleTrees.SAMPLES),
+                SampleTrees.paths(union, union.getLongAttribute(0)));
+    }
+
+}
@@ -0,0 +1,132 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+public class NodeContextTreeTest {
+
+    @Test
+    public void findsChildrenBelowAndAboveTheIndexThreshold() {
+        final ContextTreeNode root = new ContextTreeNode("root");
+        final NodeContextTree<ContextTreeNode> tree = new NodeContextTree<ContextTreeNode>("tree", root);
+        for (int i = 0; i < 5000; i++) {
+            // look up children before adding each one, so the index is built early and then has to be kept up to date
+            assertNull(tree.getChild(root, "c" + i));
+            root.addChild(new ContextTreeNode("c" + i));
+        }
+        for (int i = 0; i < 5000; i++) {
+            final ContextTreeNode child = tree.getChild(root, "c" + i);
+            assertEquals("c" + i, child.getLabel());
+            assertEquals(i, tree.indexOfChild(root, child));
+            assertSame(root, tree.getParent(child));
+        }
+        assertEquals(-1, tree.indexOfChild(root, root));
+        assertEquals(2, tree.getHeight(root));
+    }
+
+    @Test
+    public void findsChildrenFromSeveralThreads() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int round = 0; round < 200; round++) {
+                // a new wide node per round, whose children are only looked up concurrently
+                final ContextTreeNode root = new ContextTreeNode("root");
+                for (int i = 0; i < 100; i++) {
+                    root.addChild(new ContextTreeNode("c" + i));
+                }
+                final ArrayList<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+                for (int t = 0; t < 8; t++) {
+                    results.add(executor.submit(new Callable<Boolean>() {
+                        public Boolean call() {
+                            for (int i = 99; i >= 0; i--) {
+                                final ContextTreeNode child = root.getChild("c" + i);
+                                if (child == null || root.indexOfChild(child) != i) {
+                                    return false;
+                                }
+                            }
+                            return true;
+                        }
+                    }));
+                }
+                for (final Future<Boolean> result : results) {
+                    assertTrue(result.get());
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void findsChildrenOfDeserializedNodes() throws Exception {
+        final ContextTreeNode root = new ContextTreeNode("root");
+        for (int i = 0; i < 100; i++) {
+            root.addChild(new ContextTreeNode("c" + i));
+        }
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(root);
+        out.close();
+        final ContextTreeNode copy = (ContextTreeNode) new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, copy.indexOfChild(copy.getChild("c" + i)));
+        }
+        copy.addChild(new ContextTreeNode("c100"));
+        assertEquals(100, copy.indexOfChild(copy.getChild("c100")));
+        assertNull(copy.getChild("missing"));
+    }
+
+    @Test
+    public void childIndexMapsLabelsToPositions() {
+        final ChildIndex index = new ChildIndex(ChildIndex.THRESHOLD);
+        for (int i = 0; i < 1000; i++) {
+            index.put(Integer.valueOf(i), i);
+        }
+        assertEquals(1000, index.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, index.get(Integer.valueOf(i)));
+        }
+        assertEquals(-1, index.get("missing"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsDuplicateLabels() {
+        final ContextTreeNode root = new ContextTreeNode("root");
+        for (int i = 0; i < 2 * ChildIndex.THRESHOLD; i++) {
+            root.addChild(new ContextTreeNode("c" + i));
+        }
+        root.addChild(new ContextTreeNode("c7"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsChildrenThatHaveAParent() {
+        final ContextTreeNode child = new ContextTreeNode("child");
+        new ContextTreeNode("a").addChild(child);
+        new ContextTreeNode("b").addChild(child);
+    }
+
+}
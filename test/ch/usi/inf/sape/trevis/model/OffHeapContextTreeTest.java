@@ -0,0 +1,75 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import ch.usi.inf.sape.trevis.model.attribute.DescendantCountAttribute;
+import ch.usi.inf.sape.trevis.model.attribute.InclusiveLongAttribute;
+import ch.usi.inf.sape.trevis.model.operations.ContextTreeOperations;
+import ch.usi.inf.sape.trevis.model.operations.OffHeapContextTreeFactory;
+import ch.usi.inf.sape.trevis.model.operations.SampleNodeFactory;
+
+public class OffHeapContextTreeTest {
+
+    @Test
+    public void storesStructureLabelsAndValues() {
+        final NodeContextTree<SampleNode> tree = SampleTrees.random(new Random(5), 3000, 8);
+        final OffHeapContextTree copy = SampleTrees.offHeap(tree);
+        assertEquals(SampleTrees.nodes(tree).size(), copy.size());
+        assertEquals(SampleTrees.paths(tree, SampleTrees.SAMPLES), SampleTrees.paths(copy, copy.getLongAttribute(0)));
+        assertEquals(0, copy.indexOfLongColumn("samples"));
+        assertNull(copy.getChild(copy.getRoot(), "missing"));
+        final OffHeapContextTree.Node child = copy.getChild(copy.getRoot(), 0);
+        copy.addToLong(0, child, 5);
+        assertEquals(tree.getChild(tree.getRoot(), 0).getSamples() + 5, copy.getLong(0, child));
+        assertEquals(copy.getRoot(), copy.getParent(child));
+        assertEquals(0, copy.indexOfChild(copy.getRoot(), child));
+    }
+
+    @Test
+    public void operationsMatchTheOnHeapTrees() {
+        final Random random = new Random(4);
+        final NodeContextTree<SampleNode> a = SampleTrees.random(random, 3000, 6);
+        final NodeContextTree<SampleNode> b = SampleTrees.random(random, 3000, 6);
+        final OffHeapContextTree offHeapA = SampleTrees.offHeap(a);
+        final OffHeapContextTree offHeapB = SampleTrees.offHeap(b);
+        final SampleNodeFactory factory = new SampleNodeFactory();
+        final OffHeapContextTreeFactory offHeapFactory = new OffHeapContextTreeFactory("result");
+
+        final OffHeapContextTree union = (OffHeapContextTree) ContextTreeOperations.union(offHeapA, offHeapB, offHeapFactory);
+        assertEquals(SampleTrees.paths(ContextTreeOperations.union(a, b, factory), SampleTrees.SAMPLES),
+                SampleTrees.paths(union, union.getLongAttribute(0)));
+        final OffHeapContextTree intersection = (OffHeapContextTree) ContextTreeOperations.intersection(offHeapA, offHeapB,
+                offHeapFactory);
+        assertEquals(SampleTrees.paths(ContextTreeOperations.intersection(a, b, factory), SampleTrees.SAMPLES),
+                SampleTrees.paths(intersection, intersection.getLongAttribute(0)));
+        final OffHeapContextTree difference = (OffHeapContextTree) ContextTreeOperations.subtract(offHeapA, offHeapB, offHeapFactory);
+        assertEquals(SampleTrees.paths(ContextTreeOperations.subtract(a, b, factory), SampleTrees.SAMPLES),
+                SampleTrees.paths(difference, difference.getLongAttribute(0)));
+    }
+
+    @Test
+    public void worksWithAttributes() {
+        final OffHeapContextTree tree = SampleTrees.offHeap(SampleTrees.random(new Random(6), 3000, 8));
+        final InclusiveLongAttribute inclusive = new InclusiveLongAttribute(tree, tree.getLongAttribute(0));
+        final long total = inclusive.evaluate(tree.getRoot());
+        inclusive.materialize();
+        assertEquals(total, inclusive.evaluate(tree.getRoot()));
+        assertEquals(tree.size() - 1, new DescendantCountAttribute(tree).evaluate(tree.getRoot()));
+    }
+
+}
@@ -0,0 +1,39 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model;
+
+/**
+ * A ContextTreeNode with a sample count, the node type of the trees the tests use.
+ */
+public final class SampleNode extends ContextTreeNode {
+
+    private static final long serialVersionUID = 202610171L;
+
+    private long samples;
+
+    public SampleNode(final Object label, final long samples) {
+        super(label);
+        this.samples = samples;
+    }
+
+    public long getSamples() {
+        return samples;
+    }
+
+    public void setSamples(final long samples) {
+        this.samples = samples;
+    }
+
+    public String toString() {
+        return getLabel() + "=" + samples;
+    }
+
+}
@@ -0,0 +1,144 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import ch.usi.inf.sape.trevis.model.attribute.LongAttribute;
+
+/**
+ * Trees of SampleNodes for the tests, and simple (obviously correct) ways to look at any tree: as the list of its nodes, and as a map
+ * from the label paths of its nodes to their values.
+ */
+public final class SampleTrees {
+
+    /**
+     * The samples of a SampleNode.
+     */
+    public static final LongAttribute SAMPLES = new LongAttribute() {
+
+        public String getName() {
+            return "Samples";
+        }
+
+        public String getDescription() {
+            return "Samples";
+        }
+
+        public long evaluate(final Object node) {
+            return ((SampleNode) node).getSamples();
+        }
+
+    };
+
+    private SampleTrees() {
+    }
+
+    /**
+     * @return a tree of (at most) the given number of nodes, whose labels are "root" and "m0" to "m(labels-1)", and whose samples are
+     *         between 0 and 9
+     */
+    public static NodeContextTree<SampleNode> random(final Random random, final int size, final int labels) {
+        final SampleNode root = new SampleNode("root", random.nextInt(10));
+        final ArrayList<SampleNode> nodes = new ArrayList<SampleNode>();
+        nodes.add(root);
+        for (int i = 1; i < size; i++) {
+            final SampleNode parent = nodes.get(random.nextInt(nodes.size()));
+            final String label = "m" + random.nextInt(labels);
+            if (parent.getChild(label) == null) {
+                final SampleNode child = new SampleNode(label, random.nextInt(10));
+                parent.addChild(child);
+                nodes.add(child);
+            }
+        }
+        return new NodeContextTree<SampleNode>("random", root);
+    }
+
+    /**
+     * @return a path of the given number of nodes below a root, all with one sample
+     */
+    public static NodeContextTree<SampleNode> chain(final int depth) {
+        final SampleNode root = new SampleNode("root", 1);
+        SampleNode node = root;
+        for (int i = 0; i < depth; i++) {
+            final SampleNode child = new SampleNode("f" + i % 3, 1);
+            node.addChild(child);
+            node = child;
+        }
+        return new NodeContextTree<SampleNode>("chain", root);
+    }
+
+    /**
+     * @return an off-heap copy of the given tree, with the samples in its only long column
+     */
+    public static OffHeapContextTree offHeap(final NodeContextTree<SampleNode> tree) {
+        final OffHeapContextTree copy = new OffHeapContextTree("copy", new String[] {"samples"}, tree.getRoot().getLabel());
+        final ArrayList<SampleNode> nodes = new ArrayList<SampleNode>();
+        final ArrayList<OffHeapContextTree.Node> copies = new ArrayList<OffHeapContextTree.Node>();
+        nodes.add(tree.getRoot());
+        copies.add(copy.getRoot());
+        for (int i = 0; i < nodes.size(); i++) {
+            copy.setLong(0, copies.get(i), nodes.get(i).getSamples());
+            for (final SampleNode child : tree.iterable(nodes.get(i))) {
+                nodes.add(child);
+                copies.add(copy.addNode(copies.get(i), child.getLabel()));
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * @return all nodes of the given tree, in pre-order (found with an explicit stack, so this works for deep trees)
+     */
+    public static <T> List<T> nodes(final ContextTree<T> tree) {
+        final ArrayList<T> nodes = new ArrayList<T>();
+        final ArrayList<T> stack = new ArrayList<T>();
+        stack.add(tree.getRoot());
+        while (!stack.isEmpty()) {
+            final T node = stack.remove(stack.size() - 1);
+            nodes.add(node);
+            for (int i = tree.getChildCount(node) - 1; i >= 0; i--) {
+                stack.add(tree.getChild(node, i));
+            }
+        }
+        return nodes;
+    }
+
+    /**
+     * @return the label path (like "root/m1/m4") of the given node
+     */
+    public static <T> String path(final ContextTree<T> tree, final T node) {
+        final StringBuilder path = new StringBuilder(String.valueOf(tree.getLabel(node)));
+        for (T parent = tree.getParent(node); parent != null; parent = tree.getParent(parent)) {
+            path.insert(0, '/').insert(0, tree.getLabel(parent));
+        }
+        return path.toString();
+    }
+
+    /**
+     * @return the values of the given attribute for all nodes of the given tree, keyed by their label paths
+     */
+    public static <T> Map<String, Long> paths(final ContextTree<T> tree, final LongAttribute attribute) {
+        final HashMap<String, Long> paths = new HashMap<String, Long>();
+        for (final T node : nodes(tree)) {
+            final Long previous = paths.put(path(tree, node), attribute.evaluate(node));
+            if (previous != null) {
+                throw new AssertionError("Duplicate path " + path(tree, node));
+            }
+        }
+        return paths;
+    }
+
+}
@@ -0,0 +1,142 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import ch.usi.inf.sape.trevis.model.operations.ContextTreeOperations;
+import ch.usi.inf.sape.trevis.model.operations.SampleNodeFactory;
+
+public class TreeCursorTest {
+
+    /**
+     * A visited node and its depth.
+     */
+    private static String visit(final SampleNode node, final int depth) {
+        return node.getLabel() + "@" + depth + "#" + System.identityHashCode(node);
+    }
+
+    private static void preOrder(final ContextTree<SampleNode> tree, final SampleNode node, final int depth, final List<String> visits) {
+        visits.add(visit(node, depth));
+        for (final SampleNode child : tree.iterable(node)) {
+            preOrder(tree, child, depth + 1, visits);
+        }
+    }
+
+    private static void postOrder(final ContextTree<SampleNode> tree, final SampleNode node, final int depth, final List<String> visits) {
+        for (final SampleNode child : tree.iterable(node)) {
+            postOrder(tree, child, depth + 1, visits);
+        }
+        visits.add(visit(node, depth));
+    }
+
+    private static List<String> levelOrder(final ContextTree<SampleNode> tree, final SampleNode start) {
+        final ArrayList<String> visits = new ArrayList<String>();
+        final ArrayDeque<SampleNode> queue = new ArrayDeque<SampleNode>();
+        final ArrayDeque<Integer> depths = new ArrayDeque<Integer>();
+        queue.add(start);
+        depths.add(0);
+        while (!queue.isEmpty()) {
+            final SampleNode node = queue.poll();
+            final int depth = depths.poll();
+            visits.add(visit(node, depth));
+            for (final SampleNode child : tree.iterable(node)) {
+                queue.add(child);
+                depths.add(depth + 1);
+            }
+        }
+        return visits;
+    }
+
+    private static List<String> walk(final TreeCursor<SampleNode> cursor, final SampleNode start, final TreeCursor.Order order) {
+        final ArrayList<String> visits = new ArrayList<String>();
+        cursor.reset(start, order);
+        while (cursor.next()) {
+            visits.add(visit(cursor.getNode(), cursor.getDepth()));
+        }
+        return visits;
+    }
+
+    @Test
+    public void visitsNodesInTheRecursiveOrders() {
+        for (int seed = 0; seed < 20; seed++) {
+            final NodeContextTree<SampleNode> tree = SampleTrees.random(new Random(seed), 1 + seed * 200, 8);
+            final List<ContextTree<SampleNode>> trees = Arrays.<ContextTree<SampleNode>>asList(tree, ContextTreeOperations.freeze(tree));
+            for (final ContextTree<SampleNode> t : trees) {
+                final TreeCursor<SampleNode> cursor = new TreeCursor<SampleNode>(t);
+                final ArrayList<String> expected = new ArrayList<String>();
+                preOrder(t, t.getRoot(), 0, expected);
+                assertEquals(expected, walk(cursor, t.getRoot(), TreeCursor.Order.PRE_ORDER));
+                expected.clear();
+                postOrder(t, t.getRoot(), 0, expected);
+                assertEquals(expected, walk(cursor, t.getRoot(), TreeCursor.Order.POST_ORDER));
+                assertEquals(levelOrder(t, t.getRoot()), walk(cursor, t.getRoot(), TreeCursor.Order.LEVEL_ORDER));
+                // a cursor can be reset in the middle of a walk
+                cursor.reset(t.getRoot(), TreeCursor.Order.LEVEL_ORDER);
+                cursor.next();
+                cursor.next();
+                assertEquals(levelOrder(t, t.getRoot()), walk(cursor, t.getRoot(), TreeCursor.Order.LEVEL_ORDER));
+            }
+        }
+    }
+
+    @Test
+    public void walksASubtreeWithDepthsRelativeToItsRoot() {
+        final NodeContextTree<SampleNode> tree = SampleTrees.random(new Random(1), 500, 4);
+        final SampleNode start = tree.getChild(tree.getRoot(), 0);
+        final ArrayList<String> expected = new ArrayList<String>();
+        preOrder(tree, start, 0, expected);
+        assertEquals(expected, walk(new TreeCursor<SampleNode>(tree), start, TreeCursor.Order.PRE_ORDER));
+    }
+
+    @Test
+    public void visitorsCanSkipChildren() {
+        final NodeContextTree<SampleNode> tree = SampleTrees.random(new Random(2), 2000, 8);
+        final TreeCursor<SampleNode> cursor = new TreeCursor<SampleNode>(tree);
+        // children can only be skipped when their parent is visited first
+        for (final TreeCursor.Order order : new TreeCursor.Order[] {TreeCursor.Order.PRE_ORDER, TreeCursor.Order.LEVEL_ORDER}) {
+            final int[] visits = new int[1];
+            cursor.accept(tree.getRoot(), order, new ContextTreeVisitor<SampleNode>() {
+                public boolean visit(final SampleNode node, final int depth) {
+                    visits[0]++;
+                    return depth < 1;
+                }
+            });
+            assertEquals(order.name(), 1 + tree.getChildCount(tree.getRoot()), visits[0]);
+        }
+    }
+
+    @Test
+    public void walksDeepTrees() {
+        final NodeContextTree<SampleNode> tree = SampleTrees.chain(300000);
+        int count = 0;
+        int maxDepth = 0;
+        final TreeCursor<SampleNode> cursor = new TreeCursor<SampleNode>(tree);
+        cursor.reset(tree.getRoot(), TreeCursor.Order.POST_ORDER);
+        while (cursor.next()) {
+            count++;
+            maxDepth = Math.max(maxDepth, cursor.getDepth());
+        }
+        assertEquals(300001, count);
+        assertEquals(300000, maxDepth);
+        final ContextTree<SampleNode> clone = ContextTreeOperations.clone(tree, new SampleNodeFactory());
+        assertEquals(300001, clone.getHeight(clone.getRoot()));
+    }
+
+}
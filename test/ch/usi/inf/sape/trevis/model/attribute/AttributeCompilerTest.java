@@ -0,0 +1,85 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model.attribute;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import ch.usi.inf.sape.trevis.model.SampleNode;
+import ch.usi.inf.sape.trevis.model.SampleTrees;
+
+public class AttributeCompilerTest {
+
+    @Test
+    public void evaluatesLikeTheInterpretedExpressions() {
+        final List<SampleNode> nodes = SampleTrees.nodes(SampleTrees.random(new Random(1), 500, 5));
+        final Expressions expressions = new Expressions(new Random(3));
+        for (int i = 0; i < 1000; i++) {
+            final NodeAttribute expression = expressions.expression(i);
+            final NodeAttribute compiled = AttributeCompiler.compile(expression);
+            assertEquals(expression.getType(), compiled.getType());
+            assertEquals(expression.getName(), compiled.getName());
+            assertEquals(expression.getDescription(), compiled.getDescription());
+            assertArrayEquals(expression.getArguments(), compiled.getArguments());
+            for (final SampleNode node : nodes) {
+                // Double.equals treats NaN as equal to NaN
+                assertEquals(expression.getDescription(), Expressions.value(expression, node), Expressions.value(compiled, node));
+            }
+        }
+    }
+
+    @Test
+    public void compilesCompiledAttributes() {
+        final LongAttribute expression = new LongAddition(new LongMultiplication(SampleTrees.SAMPLES, new LongConstant(3)),
+                new LongConstant(7));
+        final LongAttribute compiled = AttributeCompiler.compile(expression);
+        final SampleNode node = new SampleNode("m0", 5);
+        assertEquals(22, compiled.evaluate(node));
+        assertEquals(-5, AttributeCompiler.compile(new LongNegation(SampleTrees.SAMPLES)).evaluate(node));
+        // compiling a compiled attribute reuses its handle
+        final LongAttribute recompiled = AttributeCompiler.compile(compiled);
+        assertEquals(22, recompiled.evaluate(node));
+        assertEquals(expression.getDescription(), recompiled.getDescription());
+        // and so does an expression containing a compiled attribute
+        assertEquals(-22, AttributeCompiler.compile(new LongNegation(compiled)).evaluate(node));
+    }
+
+    @Test
+    public void leavesAttributesOfOtherTypesAlone() {
+        final NodeAttribute attribute = new NodeAttribute() {
+
+            public String getName() {
+                return "Node";
+            }
+
+            public String getDescription() {
+                return "Node";
+            }
+
+            public Type getType() {
+                return null;
+            }
+
+            public Object getValue(final Object node) {
+                return node;
+            }
+
+        };
+        assertSame(attribute, AttributeCompiler.compile(attribute));
+    }
+
+}
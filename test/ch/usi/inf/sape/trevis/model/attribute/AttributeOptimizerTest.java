@@ -0,0 +1,162 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model.attribute;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import ch.usi.inf.sape.trevis.model.SampleNode;
+import ch.usi.inf.sape.trevis.model.SampleTrees;
+
+public class AttributeOptimizerTest {
+
+    /**
+     * Three times the samples of a node, counting its evaluations.
+     */
+    private static final class CountingAttribute extends LongAttribute {
+
+        private int evaluations;
+
+        public String getName() {
+            return "Counting";
+        }
+
+        public String getDescription() {
+            return "Counting";
+        }
+
+        public long evaluate(final Object node) {
+            evaluations++;
+            return 3 * ((SampleNode) node).getSamples();
+        }
+
+    }
+
+    private final List<SampleNode> nodes = SampleTrees.nodes(SampleTrees.random(new Random(1), 500, 5));
+
+    @Test
+    public void evaluatesLikeTheOriginalExpressions() {
+        final Expressions expressions = new Expressions(new Random(5));
+        for (int i = 0; i < 1000; i++) {
+            final NodeAttribute expression = expressions.expression(i);
+            final NodeAttribute optimized = AttributeOptimizer.optimize(expression);
+            assertEquals(expression.getType(), optimized.getType());
+            for (final SampleNode node : nodes) {
+                assertEquals(expression.getDescription(), Expressions.value(expression, node), Expressions.value(optimized, node));
+            }
+        }
+    }
+
+    @Test
+    public void foldsConstantsAndRemovesIdentities() {
+        final LongAttribute constant = new LongAddition(new LongMultiplication(new LongConstant(3), new LongConstant(4)),
+                new LongConstant(1));
+        final LongAttribute folded = AttributeOptimizer.optimize(constant);
+        assertTrue(folded instanceof LongConstant);
+        assertEquals(13, folded.evaluate(null));
+        final CountingAttribute counting = new CountingAttribute();
+        assertSame(counting, AttributeOptimizer.optimize(new LongAddition(new LongMultiplication(counting, new LongConstant(1)),
+                new LongConstant(0))));
+        final LongGreaterThan comparison = new LongGreaterThan(counting, new LongConstant(5));
+        final BooleanAttribute and = AttributeOptimizer.optimize(new BooleanAnd(new BooleanAttribute[] {new BooleanConstant(true),
+                comparison}));
+        assertTrue(and instanceof LongGreaterThan);
+        assertSame(counting, and.getArguments()[0]);
+        assertSame(counting, AttributeOptimizer.optimize(new LongConditional(new BooleanConstant(false), new LongConstant(1), counting)));
+    }
+
+    @Test
+    public void evaluatesEqualSubexpressionsOnce() {
+        final CountingAttribute counting = new CountingAttribute();
+        final LongAttribute sum1 = new LongAddition(counting, new LongConstant(5));
+        final LongAttribute sum2 = new LongAddition(counting, new LongConstant(5));
+        final LongAttribute expression = new LongConditional(new LongGreaterThan(sum1, new LongConstant(10)), new LongDivision(sum2,
+                new LongConstant(2)), new LongMultiplication(counting, new LongConstant(2)));
+        final LongAttribute optimized = AttributeOptimizer.optimize(expression);
+        long expected = 0;
+        for (final SampleNode node : nodes) {
+            expected += expression.evaluate(node);
+        }
+        assertEquals(2 * nodes.size(), counting.evaluations);
+        counting.evaluations = 0;
+        long sum = 0;
+        for (final SampleNode node : nodes) {
+            sum += optimized.evaluate(node);
+        }
+        assertEquals(expected, sum);
+        assertEquals(nodes.size(), counting.evaluations);
+        // optimized expressions can be compiled
+        final LongAttribute compiled = AttributeCompiler.compile(optimized);
+        long compiledSum = 0;
+        for (final SampleNode node : nodes) {
+            compiledSum += compiled.evaluate(node);
+        }
+        assertEquals(expected, compiledSum);
+    }
+
+    @Test
+    public void sharesSubexpressionsSafelyBetweenThreads() throws Exception {
+        final LongAttribute value = new LongAttribute() {
+
+            public String getName() {
+                return "Value";
+            }
+
+            public String getDescription() {
+                return "Value";
+            }
+
+            public long evaluate(final Object node) {
+                return (Long) node;
+            }
+
+        };
+        // value*value + (value*value - value*value), with value*value shared after the optimization
+        final LongAttribute square = new LongMultiplication(value, value);
+        final LongAttribute optimized = AttributeOptimizer.optimize(new LongAddition(new LongMultiplication(value, value),
+                new LongSubtraction(square, new LongMultiplication(value, value))));
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final ArrayList<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+            for (int t = 0; t < 8; t++) {
+                final int thread = t;
+                results.add(executor.submit(new Callable<Boolean>() {
+                    public Boolean call() {
+                        for (long i = 0; i < 200000; i++) {
+                            final long n = 8 * i + thread;
+                            if (optimized.evaluate(n) != n * n) {
+                                return false;
+                            }
+                        }
+                        return true;
+                    }
+                }));
+            }
+            for (final Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+}
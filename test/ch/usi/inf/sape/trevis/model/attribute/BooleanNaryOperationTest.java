@@ -0,0 +1,134 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model.attribute;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class BooleanNaryOperationTest {
+
+    /**
+     * Tells whether an Integer node is not a multiple of a divisor (spending some work on each evaluation), counting its evaluations.
+     */
+    private static final class NotMultiple extends BooleanAttribute {
+
+        private final String name;
+        private final int divisor;
+        private final int work;
+        private int evaluations;
+        private long sink;
+
+        private NotMultiple(final String name, final int divisor, final int work) {
+            this.name = name;
+            this.divisor = divisor;
+            this.work = work;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getDescription() {
+            return name;
+        }
+
+        public boolean evaluate(final Object node) {
+            evaluations++;
+            final int value = (Integer) node;
+            long hash = value;
+            for (int i = 0; i < work; i++) {
+                hash = hash * 31 + i;
+            }
+            sink += hash;
+            return value % divisor != 0;
+        }
+
+    }
+
+    @Test
+    public void stopsAtTheFirstDecidingArgument() {
+        final NotMultiple two = new NotMultiple("two", 2, 0);
+        final NotMultiple three = new NotMultiple("three", 3, 0);
+        final BooleanAnd and = new BooleanAnd(new BooleanAttribute[] {two, three});
+        assertFalse(and.evaluate(4));
+        assertEquals(0, three.evaluations);
+        assertTrue(and.evaluate(5));
+        assertEquals(1, three.evaluations);
+        final BooleanOr or = new BooleanOr(new BooleanAttribute[] {two, three});
+        assertTrue(or.evaluate(5));
+        assertEquals(1, three.evaluations);
+        assertFalse(or.evaluate(6));
+        assertEquals(2, three.evaluations);
+    }
+
+    @Test
+    public void adaptiveOperationsComputeTheSameResults() {
+        final Random random = new Random(1);
+        for (int i = 0; i < 20; i++) {
+            final BooleanAttribute[] arguments = new BooleanAttribute[1 + random.nextInt(5)];
+            for (int a = 0; a < arguments.length; a++) {
+                arguments[a] = new NotMultiple("m" + a, 1 + random.nextInt(6), random.nextInt(20));
+            }
+            final BooleanNaryOperation plain = i % 2 == 0 ? new BooleanAnd(arguments) : new BooleanOr(arguments);
+            final BooleanNaryOperation adaptive = i % 2 == 0 ? new BooleanAnd(arguments) : new BooleanOr(arguments);
+            adaptive.setAdaptive(true);
+            for (int node = 0; node < 10 * BooleanNaryOperation.REORDER_INTERVAL; node++) {
+                assertEquals(plain.evaluate(node), adaptive.evaluate(node));
+            }
+        }
+    }
+
+    @Test
+    public void evaluatesCheapDecisiveArgumentsFirst() {
+        final NotMultiple slow = new NotMultiple("slow", 100, 2000);
+        final NotMultiple fast = new NotMultiple("fast", 2, 1);
+        final BooleanAnd and = new BooleanAnd(new BooleanAttribute[] {slow, fast});
+        and.setAdaptive(true);
+        assertArrayEquals(new BooleanAttribute[] {slow, fast}, and.getEvaluationOrder());
+        for (int node = 0; node < 20 * BooleanNaryOperation.REORDER_INTERVAL; node++) {
+            and.evaluate(node);
+        }
+        assertArrayEquals(new BooleanAttribute[] {fast, slow}, and.getEvaluationOrder());
+        // the slow argument now is only evaluated for the odd nodes (and the explored evaluations)
+        slow.evaluations = 0;
+        for (int node = 0; node < 10000; node++) {
+            and.evaluate(node);
+        }
+        assertTrue(String.valueOf(slow.evaluations), slow.evaluations < 6000);
+        and.setAdaptive(false);
+        assertArrayEquals(new BooleanAttribute[] {slow, fast}, and.getEvaluationOrder());
+    }
+
+    @Test
+    public void staysAdaptiveWhenRebuilt() {
+        final NotMultiple two = new NotMultiple("two", 2, 0);
+        final NotMultiple three = new NotMultiple("three", 3, 0);
+        final BooleanOr or = new BooleanOr(new BooleanAttribute[] {two, three});
+        or.setAdaptive(true);
+        assertTrue(((BooleanNaryOperation) or.withArguments(new NodeAttribute[] {three, two})).isAdaptive());
+        final BooleanAttribute optimized = AttributeOptimizer.optimize((BooleanAttribute) or);
+        assertTrue(((BooleanNaryOperation) optimized).isAdaptive());
+        // the compiler keeps adaptive operations as they are (inside the compiled expression)
+        final BooleanAttribute compiled = AttributeCompiler.compile(new BooleanNot(or));
+        for (int node = 0; node < 100; node++) {
+            assertEquals(!or.evaluate(node), compiled.evaluate(node));
+        }
+        assertSame(or, compiled.getArguments()[0]);
+    }
+
+}
@@ -0,0 +1,152 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model.attribute;
+
+import java.util.Random;
+
+import ch.usi.inf.sape.trevis.model.SampleNode;
+import ch.usi.inf.sape.trevis.model.SampleTrees;
+
+/**
+ * Random attribute expressions over SampleNodes, using most operators of the attribute package, for the differential tests of the
+ * AttributeCompiler and the AttributeOptimizer.
+ */
+final class Expressions {
+
+    static final StringAttribute LABEL = new StringAttribute() {
+
+        public String getName() {
+            return "Label";
+        }
+
+        public String getDescription() {
+            return "Label";
+        }
+
+        public String evaluate(final Object node) {
+            return String.valueOf(((SampleNode) node).getLabel());
+        }
+
+    };
+
+    private final Random random;
+
+    Expressions(final Random random) {
+        this.random = random;
+    }
+
+    /**
+     * @return a random expression of the given depth (at most)
+     */
+    LongAttribute longExpression(final int depth) {
+        switch (depth <= 0 ? random.nextInt(2) : random.nextInt(14)) {
+        case 0:
+            return SampleTrees.SAMPLES;
+        case 1:
+            return new LongConstant(random.nextInt(10) + 1);
+        case 2:
+            return new LongAddition(longExpression(depth - 1), longExpression(depth - 1));
+        case 3:
+            return new LongSubtraction(longExpression(depth - 1), longExpression(depth - 1));
+        case 4:
+            return new LongMultiplication(longExpression(depth - 1), longExpression(depth - 1));
+        case 5:
+            return new LongBitwiseExclusiveOr(longExpression(depth - 1), longExpression(depth - 1));
+        case 6:
+            return new LongConditional(booleanExpression(depth - 1), longExpression(depth - 1), longExpression(depth - 1));
+        case 7:
+            return new LongNegation(longExpression(depth - 1));
+        case 8:
+            return new DoubleToLong(doubleExpression(depth - 1));
+        case 9:
+            return new StringLength(stringExpression(depth - 1));
+        case 10:
+            return new LongLeftShift(longExpression(depth - 1), new LongConstant(3));
+        case 11:
+            return new LongBitwiseNot(longExpression(depth - 1));
+        case 12:
+            return new LongRemainder(longExpression(depth - 1), new LongConstant(7));
+        default:
+            return new LongUnsignedRightShift(longExpression(depth - 1), longExpression(depth - 1));
+        }
+    }
+
+    DoubleAttribute doubleExpression(final int depth) {
+        switch (depth <= 0 ? 0 : random.nextInt(5)) {
+        case 0:
+            return new LongToDouble(longExpression(depth - 1));
+        case 1:
+            return new DoubleAddition(doubleExpression(depth - 1), doubleExpression(depth - 1));
+        case 2:
+            return new DoubleDivision(doubleExpression(depth - 1), new DoubleConstant(3.5));
+        case 3:
+            return new DoubleConditional(booleanExpression(depth - 1), doubleExpression(depth - 1), doubleExpression(depth - 1));
+        default:
+            return new DoubleNegation(doubleExpression(depth - 1));
+        }
+    }
+
+    BooleanAttribute booleanExpression(final int depth) {
+        switch (depth <= 0 ? 0 : random.nextInt(9)) {
+        case 0:
+            return new BooleanConstant(random.nextBoolean());
+        case 1:
+            return new LongGreaterThan(longExpression(depth - 1), longExpression(depth - 1));
+        case 2:
+            return new BooleanAnd(new BooleanAttribute[] {booleanExpression(depth - 1), booleanExpression(depth - 1),
+                    booleanExpression(depth - 1)});
+        case 3:
+            return new BooleanOr(booleanExpression(depth - 1), booleanExpression(depth - 1));
+        case 4:
+            return new BooleanNot(booleanExpression(depth - 1));
+        case 5:
+            return new DoubleLessEqual(doubleExpression(depth - 1), doubleExpression(depth - 1));
+        case 6:
+            return new StringEqual(stringExpression(depth - 1), stringExpression(depth - 1));
+        case 7:
+            return new StringPrefix(stringExpression(depth - 1), new StringConstant("m"));
+        default:
+            return new BooleanAnd(new BooleanAttribute[] {booleanExpression(depth - 1)});
+        }
+    }
+
+    StringAttribute stringExpression(final int depth) {
+        switch (depth <= 0 ? 0 : random.nextInt(4)) {
+        case 0:
+            return LABEL;
+        case 1:
+            return new StringConcat(new StringAttribute[] {stringExpression(depth - 1), stringExpression(depth - 1)});
+        case 2:
+            return new StringConditional(booleanExpression(depth - 1), stringExpression(depth - 1), stringExpression(depth - 1));
+        default:
+            return new ToString(longExpression(depth - 1));
+        }
+    }
+
+    /**
+     * @return the value of the attribute for the node, or the class of the ArithmeticException it throws
+     */
+    static Object value(final NodeAttribute attribute, final Object node) {
+        try {
+            return attribute.getValue(node);
+        } catch (final ArithmeticException ex) {
+            return ex.getClass();
+        }
+    }
+
+    /**
+     * @return a random expression of one of the four types
+     */
+    NodeAttribute expression(final int i) {
+        return i % 4 == 0 ? longExpression(5) : i % 4 == 1 ? doubleExpression(5) : i % 4 == 2 ? booleanExpression(5) : stringExpression(3);
+    }
+
+}
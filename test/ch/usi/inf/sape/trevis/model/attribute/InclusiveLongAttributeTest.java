@@ -0,0 +1,97 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model.attribute;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import ch.usi.inf.sape.trevis.model.NodeContextTree;
+import ch.usi.inf.sape.trevis.model.NodeIndex;
+import ch.usi.inf.sape.trevis.model.SampleNode;
+import ch.usi.inf.sape.trevis.model.SampleTrees;
+
+public class InclusiveLongAttributeTest {
+
+    private final NodeContextTree<SampleNode> tree = SampleTrees.random(new Random(1), 5000, 20);
+
+    @Test
+    public void materializedValuesEqualSubtreeWalks() {
+        final InclusiveLongAttribute inclusive = new InclusiveLongAttribute(tree, SampleTrees.SAMPLES);
+        final List<SampleNode> nodes = SampleTrees.nodes(tree);
+        final long[] expected = new long[nodes.size()];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = inclusive.evaluate(nodes.get(i));
+        }
+        inclusive.materialize();
+        assertTrue(inclusive.isMaterialized());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], inclusive.evaluate(nodes.get(i)));
+        }
+    }
+
+    @Test
+    public void inclusiveValueOfTheRootIsTheTotal() {
+        long total = 0;
+        for (final SampleNode node : SampleTrees.nodes(tree)) {
+            total += node.getSamples();
+        }
+        final InclusiveLongAttribute inclusive = new InclusiveLongAttribute(tree, SampleTrees.SAMPLES);
+        assertEquals(total, inclusive.evaluate(tree.getRoot()));
+        inclusive.materialize(new NodeIndex<SampleNode>(tree));
+        assertEquals(total, inclusive.evaluate(tree.getRoot()));
+    }
+
+    @Test
+    public void doubleAttributeMatchesLongAttribute() {
+        final InclusiveLongAttribute inclusiveLong = new InclusiveLongAttribute(tree, SampleTrees.SAMPLES);
+        final InclusiveDoubleAttribute inclusiveDouble = new InclusiveDoubleAttribute(tree, new LongToDouble(SampleTrees.SAMPLES));
+        final List<SampleNode> nodes = SampleTrees.nodes(tree);
+        for (int i = 0; i < nodes.size(); i += 7) {
+            assertEquals(inclusiveLong.evaluate(nodes.get(i)), inclusiveDouble.evaluate(nodes.get(i)), 0.0);
+        }
+        inclusiveDouble.materialize();
+        for (int i = 0; i < nodes.size(); i++) {
+            assertEquals(inclusiveLong.evaluate(nodes.get(i)), inclusiveDouble.evaluate(nodes.get(i)), 0.0);
+        }
+    }
+
+    @Test
+    public void materializedLeavesTheAttributeUnchanged() {
+        final InclusiveLongAttribute inclusive = new InclusiveLongAttribute(tree, SampleTrees.SAMPLES);
+        final InclusiveLongAttribute copy = inclusive.materialized();
+        assertNotSame(inclusive, copy);
+        assertFalse(inclusive.isMaterialized());
+        assertTrue(copy.isMaterialized());
+        assertEquals(inclusive.evaluate(tree.getRoot()), copy.evaluate(tree.getRoot()));
+        assertSame(copy, copy.materialized());
+    }
+
+    @Test
+    public void materializationIsASnapshot() {
+        final InclusiveLongAttribute inclusive = new InclusiveLongAttribute(tree, SampleTrees.SAMPLES);
+        inclusive.materialize();
+        final long before = inclusive.evaluate(tree.getRoot());
+        final SampleNode root = tree.getRoot();
+        root.setSamples(root.getSamples() + 100);
+        assertEquals(before, inclusive.evaluate(root));
+        inclusive.materialize();
+        assertEquals(before + 100, inclusive.evaluate(root));
+    }
+
+}
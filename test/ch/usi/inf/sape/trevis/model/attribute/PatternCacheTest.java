@@ -0,0 +1,82 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model.attribute;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.junit.Test;
+
+public class PatternCacheTest {
+
+    @Test
+    public void compilesEachPatternOnce() {
+        final Pattern pattern = PatternCache.get("once(a|b)+");
+        assertEquals("once(a|b)+", pattern.pattern());
+        assertSame(pattern, PatternCache.get("once(a|b)+"));
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyUsedPattern() {
+        final Pattern used = PatternCache.get("used.*");
+        final Pattern unused = PatternCache.get("unused.*");
+        for (int i = 0; i < PatternCache.CAPACITY - 1; i++) {
+            PatternCache.get("evict" + i);
+            // keep the used pattern the most recently used one
+            assertSame(used, PatternCache.get("used.*"));
+        }
+        assertNotSame(unused, PatternCache.get("unused.*"));
+    }
+
+    @Test(expected = PatternSyntaxException.class)
+    public void rejectsInvalidPatterns() {
+        PatternCache.get("[");
+    }
+
+    @Test
+    public void canBeUsedByMultipleThreads() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final ArrayList<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+            for (int t = 0; t < 8; t++) {
+                final int thread = t;
+                results.add(executor.submit(new Callable<Boolean>() {
+                    public Boolean call() {
+                        // more patterns than the cache can hold, so the threads also evict
+                        for (int i = 0; i < 20000; i++) {
+                            final int n = (i * 7 + thread) % (2 * PatternCache.CAPACITY);
+                            if (!PatternCache.get("p" + n + "x?").matcher("p" + n).matches()) {
+                                return false;
+                            }
+                        }
+                        return true;
+                    }
+                }));
+            }
+            for (final Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,117 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model.attribute;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.junit.Test;
+
+public class StringMatchTest {
+
+    private static final String[] TEXTS = {"abc", "xxabcxx", "java.util.HashMap", "java.util.HashSet.add", "a.c", "axc", "", "xx",
+            "hello world", "a+b", "(x)"};
+
+    private static final String[] PATTERNS = {"a.c", "abc", "Hash", "", "x+", "^a", "c$", "Hash(Map|Set)", "a\\+b", "\\(x\\)", "l{2}",
+            "[aeiou] w"};
+
+    /**
+     * The nodes are the strings themselves.
+     */
+    private static final StringAttribute TEXT = new StringAttribute() {
+
+        public String getName() {
+            return "Text";
+        }
+
+        public String getDescription() {
+            return "Text";
+        }
+
+        public String evaluate(final Object node) {
+            return (String) node;
+        }
+
+    };
+
+    /**
+     * A non-constant pattern: one of the PATTERNS, depending on the node.
+     */
+    private static final StringAttribute PATTERN = new StringAttribute() {
+
+        public String getName() {
+            return "Pattern";
+        }
+
+        public String getDescription() {
+            return "Pattern";
+        }
+
+        public String evaluate(final Object node) {
+            return PATTERNS[((String) node).length() % PATTERNS.length];
+        }
+
+    };
+
+    @Test
+    public void matchesLikeThePatterns() {
+        for (final String regex : PATTERNS) {
+            final StringMatch match = new StringMatch(TEXT, new StringConstant(regex));
+            final Pattern pattern = Pattern.compile(regex);
+            for (final String text : TEXTS) {
+                assertEquals(regex + " " + text, pattern.matcher(text).find(), match.evaluate(text));
+            }
+        }
+        final StringMatch match = new StringMatch(TEXT, PATTERN);
+        for (final String text : TEXTS) {
+            assertEquals(text, Pattern.compile(PATTERN.evaluate(text)).matcher(text).find(), match.evaluate(text));
+        }
+    }
+
+    @Test
+    public void findsLikeTheStringMethods() {
+        for (final String needle : PATTERNS) {
+            final StringConstant constant = new StringConstant(needle);
+            for (final String text : TEXTS) {
+                assertEquals(text.contains(needle), new StringContains(TEXT, constant).evaluate(text));
+                assertEquals(text.startsWith(needle), new StringPrefix(TEXT, constant).evaluate(text));
+                assertEquals(text.endsWith(needle), new StringSuffix(TEXT, constant).evaluate(text));
+            }
+        }
+        for (final String text : TEXTS) {
+            final String needle = PATTERN.evaluate(text);
+            assertEquals(text.contains(needle), new StringContains(TEXT, PATTERN).evaluate(text));
+            assertEquals(text.startsWith(needle), new StringPrefix(TEXT, PATTERN).evaluate(text));
+            assertEquals(text.endsWith(needle), new StringSuffix(TEXT, PATTERN).evaluate(text));
+        }
+    }
+
+    @Test
+    public void rebuildsWithTheNewPattern() {
+        final StringMatch match = new StringMatch(TEXT, new StringConstant("abc"));
+        final BooleanAttribute rebuilt = match.withArguments(new NodeAttribute[] {TEXT, new StringConstant("^x")});
+        assertEquals(true, match.evaluate("xxabcxx"));
+        assertEquals(false, match.evaluate("xx"));
+        assertEquals(true, rebuilt.evaluate("xx"));
+        assertEquals(false, rebuilt.evaluate("abc"));
+        assertEquals(match.getName(), rebuilt.getName());
+    }
+
+    @Test(expected = PatternSyntaxException.class)
+    public void reportsInvalidConstantPatternsWhenEvaluating() {
+        // constructing it is fine, like for patterns that are only known when evaluating
+        final StringMatch match = new StringMatch(TEXT, new StringConstant("("));
+        match.evaluate("a");
+    }
+
+}
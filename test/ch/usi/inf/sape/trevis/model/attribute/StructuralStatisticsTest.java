@@ -0,0 +1,68 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model.attribute;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import ch.usi.inf.sape.trevis.model.NodeContextTree;
+import ch.usi.inf.sape.trevis.model.NodeIndex;
+import ch.usi.inf.sape.trevis.model.SampleNode;
+import ch.usi.inf.sape.trevis.model.SampleTrees;
+
+public class StructuralStatisticsTest {
+
+    @Test
+    public void lookedUpValuesEqualComputedValues() {
+        final NodeContextTree<SampleNode> tree = SampleTrees.random(new Random(2), 3000, 10);
+        final NodeIndex<SampleNode> index = new NodeIndex<SampleNode>(tree);
+        final StructuralStatistics statistics = new StructuralStatistics(tree, index);
+        final LongAttribute[][] pairs = {
+            {new DescendantCountAttribute(tree), new DescendantCountAttribute(statistics)},
+            {new LeafCountAttribute(tree), new LeafCountAttribute(statistics)},
+            {new HeightAttribute(tree), new HeightAttribute(statistics)},
+            {new DepthAttribute(tree), new DepthAttribute(statistics)},
+            {new ChildCountAttribute(tree), new ChildCountAttribute(statistics)}};
+        for (int i = 0; i < index.size(); i++) {
+            final SampleNode node = index.getNode(i);
+            for (final LongAttribute[] pair : pairs) {
+                assertEquals(pair[0].getName(), pair[0].evaluate(node), pair[1].evaluate(node));
+            }
+        }
+        assertEquals(tree.getHeight(tree.getRoot()), statistics.getHeight(0));
+    }
+
+    @Test
+    public void statisticsOfASubtreeKnowTheDepthOfItsRoot() {
+        final NodeContextTree<SampleNode> tree = SampleTrees.chain(10);
+        final SampleNode subtreeRoot = tree.getChild(tree.getChild(tree.getRoot(), 0), 0);
+        final StructuralStatistics statistics = new StructuralStatistics(tree, new NodeIndex<SampleNode>(tree, subtreeRoot));
+        assertEquals(2, statistics.getDepth(0));
+        assertEquals(8, statistics.getDescendantCount(0));
+        assertEquals(-1, statistics.indexOf(tree.getRoot()));
+        // a node the statistics don't cover is computed
+        assertEquals(0, new DepthAttribute(statistics).evaluate(tree.getRoot()));
+    }
+
+    @Test
+    public void deepTreesDontOverflowTheStack() {
+        final NodeContextTree<SampleNode> tree = SampleTrees.chain(200000);
+        assertEquals(200001, tree.getHeight(tree.getRoot()));
+        final StructuralStatistics statistics = new StructuralStatistics(tree);
+        assertEquals(200000, new DescendantCountAttribute(statistics).evaluate(tree.getRoot()));
+        assertEquals(1, new LeafCountAttribute(statistics).evaluate(tree.getRoot()));
+        assertEquals(200001, statistics.getHeight(0));
+    }
+
+}
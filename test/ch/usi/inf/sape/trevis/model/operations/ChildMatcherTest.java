@@ -0,0 +1,115 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model.operations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+
+import org.junit.Test;
+
+import ch.usi.inf.sape.trevis.model.NodeContextTree;
+import ch.usi.inf.sape.trevis.model.SampleNode;
+import ch.usi.inf.sape.trevis.model.SampleTrees;
+
+public class ChildMatcherTest {
+
+    /**
+     * A factory that always matches children with a sort-merge.
+     */
+    private static final class SortMergeFactory extends SampleNodeFactory {
+
+        @Override
+        public boolean isComparatorConsistentWithLabels() {
+            return false;
+        }
+
+    }
+
+    /**
+     * @return a tree with up to fanout children below the root and each of its children, and 3 children further down
+     */
+    private static NodeContextTree<SampleNode> wide(final Random random, final int fanout, final int depth) {
+        final SampleNode root = new SampleNode("root", random.nextInt(10));
+        grow(random, root, fanout, depth);
+        return new NodeContextTree<SampleNode>("wide", root);
+    }
+
+    private static void grow(final Random random, final SampleNode node, final int fanout, final int depth) {
+        if (depth == 0) {
+            return;
+        }
+        final HashSet<Integer> labels = new HashSet<Integer>();
+        final int count = random.nextInt(fanout);
+        for (int i = 0; i < count; i++) {
+            final int label = random.nextInt(2 * fanout);
+            if (labels.add(label)) {
+                final SampleNode child = new SampleNode("w" + label, random.nextInt(10));
+                node.addChild(child);
+                grow(random, child, depth > 2 ? 3 : fanout, depth - 1);
+            }
+        }
+    }
+
+    @Test
+    public void hashJoinsMatchLikeSortMerges() {
+        final SampleNodeFactory factory = new SampleNodeFactory();
+        final SortMergeFactory sortMergeFactory = new SortMergeFactory();
+        for (int seed = 0; seed < 10; seed++) {
+            final Random random = new Random(seed);
+            final NodeContextTree<SampleNode> a = wide(random, 2000, 3);
+            final NodeContextTree<SampleNode> b = wide(random, 2000, 3);
+            assertEquals(SampleTrees.paths(ContextTreeOperations.union(a, b, sortMergeFactory), SampleTrees.SAMPLES),
+                    SampleTrees.paths(ContextTreeOperations.union(a, b, factory), SampleTrees.SAMPLES));
+            assertEquals(SampleTrees.paths(ContextTreeOperations.intersection(a, b, sortMergeFactory), SampleTrees.SAMPLES),
+                    SampleTrees.paths(ContextTreeOperations.intersection(a, b, factory), SampleTrees.SAMPLES));
+            assertEquals(SampleTrees.paths(ContextTreeOperations.subtract(a, b, sortMergeFactory), SampleTrees.SAMPLES),
+                    SampleTrees.paths(ContextTreeOperations.subtract(a, b, factory), SampleTrees.SAMPLES));
+        }
+    }
+
+    @Test
+    public void hashJoinsKeepTheOrderOfTheFirstNode() {
+        final SampleNode aRoot = new SampleNode("root", 1);
+        final SampleNode bRoot = new SampleNode("root", 1);
+        final int size = ChildMatcher.HASH_JOIN_THRESHOLD;
+        for (int i = 0; i < size; i++) {
+            aRoot.addChild(new SampleNode("f" + (size - i), 1));
+        }
+        for (int i = 0; i < size / 2; i++) {
+            bRoot.addChild(new SampleNode("f" + (size + i), 1));
+        }
+        final NodeContextTree<SampleNode> a = new NodeContextTree<SampleNode>("a", aRoot);
+        final NodeContextTree<SampleNode> b = new NodeContextTree<SampleNode>("b", bRoot);
+        final ArrayList<SampleNode> aMatches = new ArrayList<SampleNode>();
+        final ArrayList<SampleNode> bMatches = new ArrayList<SampleNode>();
+        new ChildMatcher<SampleNode>(a, b, new SampleNodeFactory()).match(aRoot, bRoot, true, true, aMatches, bMatches);
+        // all children of a, in their order (only the first one, f<size>, has a match), then the unmatched children of b
+        assertEquals(size + size / 2 - 1, aMatches.size());
+        assertEquals(aMatches.size(), bMatches.size());
+        for (int i = 0; i < size; i++) {
+            assertSame(a.getChild(aRoot, i), aMatches.get(i));
+        }
+        assertSame(b.getChild(bRoot, 0), bMatches.get(0));
+        for (int i = 1; i < size; i++) {
+            assertNull(bMatches.get(i));
+        }
+        for (int i = size; i < aMatches.size(); i++) {
+            assertNull(aMatches.get(i));
+            assertSame(b.getChild(bRoot, i - size + 1), bMatches.get(i));
+        }
+    }
+
+}
@@ -0,0 +1,76 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model.operations;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import ch.usi.inf.sape.trevis.model.ContextTree;
+import ch.usi.inf.sape.trevis.model.NodeContextTree;
+import ch.usi.inf.sape.trevis.model.SampleNode;
+import ch.usi.inf.sape.trevis.model.SampleTrees;
+
+public class ContextTreeOperationsTest {
+
+    private final SampleNodeFactory factory = new SampleNodeFactory();
+
+    @Test
+    public void mergesLikeThePathMaps() {
+        for (int seed = 0; seed < 50; seed++) {
+            final Random random = new Random(seed);
+            final NodeContextTree<SampleNode> a = SampleTrees.random(random, 1 + random.nextInt(3000), 1 + random.nextInt(6));
+            final NodeContextTree<SampleNode> b = SampleTrees.random(random, 1 + random.nextInt(3000), 1 + random.nextInt(6));
+            final Map<String, Long> aPaths = SampleTrees.paths(a, SampleTrees.SAMPLES);
+            final Map<String, Long> bPaths = SampleTrees.paths(b, SampleTrees.SAMPLES);
+            assertEquals(PathMaps.union(aPaths, bPaths),
+                    SampleTrees.paths(ContextTreeOperations.union(a, b, factory), SampleTrees.SAMPLES));
+            assertEquals(PathMaps.intersection(aPaths, bPaths),
+                    SampleTrees.paths(ContextTreeOperations.intersection(a, b, factory), SampleTrees.SAMPLES));
+            assertEquals(PathMaps.subtract(aPaths, bPaths),
+                    SampleTrees.paths(ContextTreeOperations.subtract(a, b, factory), SampleTrees.SAMPLES));
+            assertEquals(aPaths, SampleTrees.paths(ContextTreeOperations.clone(a, factory), SampleTrees.SAMPLES));
+        }
+    }
+
+    @Test
+    public void leavesTheInputsUnchanged() {
+        final Random random = new Random(1);
+        final NodeContextTree<SampleNode> a = SampleTrees.random(random, 2000, 5);
+        final NodeContextTree<SampleNode> b = SampleTrees.random(random, 2000, 5);
+        final Map<String, Long> aPaths = SampleTrees.paths(a, SampleTrees.SAMPLES);
+        final Map<String, Long> bPaths = SampleTrees.paths(b, SampleTrees.SAMPLES);
+        ContextTreeOperations.union(a, b, factory);
+        ContextTreeOperations.intersection(a, b, factory);
+        ContextTreeOperations.subtract(a, b, factory);
+        assertEquals(aPaths, SampleTrees.paths(a, SampleTrees.SAMPLES));
+        assertEquals(bPaths, SampleTrees.paths(b, SampleTrees.SAMPLES));
+    }
+
+    @Test
+    public void mergesDeepTrees() {
+        final NodeContextTree<SampleNode> a = SampleTrees.chain(200000);
+        final NodeContextTree<SampleNode> b = SampleTrees.chain(150000);
+        final ContextTree<SampleNode> union = ContextTreeOperations.union(a, b, factory);
+        assertEquals(200001, union.getHeight(union.getRoot()));
+        final ContextTree<SampleNode> intersection = ContextTreeOperations.intersection(a, b, factory);
+        assertEquals(150001, intersection.getHeight(intersection.getRoot()));
+        final ContextTree<SampleNode> difference = ContextTreeOperations.subtract(a, b, factory);
+        assertEquals(200001, difference.getHeight(difference.getRoot()));
+        // the common part of the chains has 1-1 samples, the rest 1
+        assertEquals(0, difference.getRoot().getSamples());
+        assertEquals(1, SampleTrees.nodes(difference).get(150001).getSamples());
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model.operations;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import ch.usi.inf.sape.trevis.model.NodeContextTree;
+import ch.usi.inf.sape.trevis.model.SampleNode;
+import ch.usi.inf.sape.trevis.model.SampleTrees;
+import ch.usi.inf.sape.trevis.model.attribute.LongAttribute;
+
+public class ContextTreeSimilarityTest {
+
+    private final SampleNodeFactory factory = new SampleNodeFactory();
+
+    private static long sum(final Map<String, Long> paths) {
+        long sum = 0;
+        for (final long value : paths.values()) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    @Test
+    public void measuresLikeThePathMaps() {
+        for (int seed = 0; seed < 40; seed++) {
+            final Random random = new Random(seed);
+            final NodeContextTree<SampleNode> a = SampleTrees.random(random, 1 + random.nextInt(3000), 2 + random.nextInt(30));
+            final NodeContextTree<SampleNode> b = SampleTrees.random(random, 1 + random.nextInt(3000), 2 + random.nextInt(30));
+            final Map<String, Long> aPaths = SampleTrees.paths(a, SampleTrees.SAMPLES);
+            final Map<String, Long> bPaths = SampleTrees.paths(b, SampleTrees.SAMPLES);
+            final Map<String, Long> union = PathMaps.union(aPaths, bPaths);
+            final Map<String, Long> intersection = PathMaps.intersection(aPaths, bPaths);
+            assertEquals((double) intersection.size() / union.size(), ContextTreeSimilarity.jaccard(a, b, factory), 0);
+            final double overlap = (double) intersection.size() / Math.min(aPaths.size(), bPaths.size());
+            assertEquals(overlap, ContextTreeSimilarity.overlap(a, b, factory), 0);
+            final double weighted = sum(union) == 0 ? 1.0 : (double) sum(intersection) / sum(union);
+            assertEquals(weighted, ContextTreeSimilarity.weightedJaccard(a, b, SampleTrees.SAMPLES, factory), 0);
+            assertEquals(1.0, ContextTreeSimilarity.jaccard(a, a, factory), 0);
+            assertEquals(1.0, ContextTreeSimilarity.weightedJaccard(a, a, SampleTrees.SAMPLES, factory), 0);
+        }
+    }
+
+    @Test
+    public void measuresWithDifferentWeightsPerTree() {
+        final Random random = new Random(1);
+        final NodeContextTree<SampleNode> a = SampleTrees.random(random, 2000, 6);
+        final NodeContextTree<SampleNode> b = SampleTrees.random(random, 2000, 6);
+        final LongAttribute doubled = new LongAttribute() {
+
+            public String getName() {
+                return "Doubled";
+            }
+
+            public String getDescription() {
+                return "Doubled";
+            }
+
+            public long evaluate(final Object node) {
+                return 2 * ((SampleNode) node).getSamples();
+            }
+
+        };
+        final Map<String, Long> aPaths = SampleTrees.paths(a, doubled);
+        final Map<String, Long> bPaths = SampleTrees.paths(b, SampleTrees.SAMPLES);
+        assertEquals((double) sum(PathMaps.intersection(aPaths, bPaths)) / sum(PathMaps.union(aPaths, bPaths)),
+                ContextTreeSimilarity.weightedJaccard(a, doubled, b, SampleTrees.SAMPLES, factory), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMissingWeights() {
+        final NodeContextTree<SampleNode> a = SampleTrees.random(new Random(2), 100, 4);
+        ContextTreeSimilarity.weightedJaccard(a, SampleTrees.SAMPLES, a, null, factory);
+    }
+
+    @Test
+    public void measuresDeepTrees() {
+        final NodeContextTree<SampleNode> a = SampleTrees.chain(200000);
+        final NodeContextTree<SampleNode> b = SampleTrees.chain(100000);
+        assertEquals(100001.0 / 200001, ContextTreeSimilarity.jaccard(a, b, factory), 0);
+        assertEquals(1.0, ContextTreeSimilarity.overlap(a, b, factory), 0);
+    }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model.operations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import ch.usi.inf.sape.trevis.model.NodeContextTree;
+import ch.usi.inf.sape.trevis.model.SampleNode;
+import ch.usi.inf.sape.trevis.model.SampleTrees;
+import ch.usi.inf.sape.trevis.model.attribute.InclusiveDoubleAttribute;
+import ch.usi.inf.sape.trevis.model.attribute.InclusiveLongAttribute;
+import ch.usi.inf.sape.trevis.model.attribute.LongAttribute;
+import ch.usi.inf.sape.trevis.model.attribute.LongToDouble;
+
+public class HotPathsTest {
+
+    /**
+     * @return the values of the attribute for all nodes of the tree, highest first
+     */
+    private static List<Double> sortedValues(final NodeContextTree<SampleNode> tree, final LongAttribute attribute) {
+        final ArrayList<Double> values = new ArrayList<Double>();
+        for (final SampleNode node : SampleTrees.nodes(tree)) {
+            values.add((double) attribute.evaluate(node));
+        }
+        Collections.sort(values, Collections.reverseOrder());
+        return values;
+    }
+
+    private static void assertHottest(final NodeContextTree<SampleNode> tree, final LongAttribute attribute, final int k,
+            final List<HotPath<SampleNode>> paths) {
+        final List<Double> values = sortedValues(tree, attribute);
+        assertEquals(Math.min(k, values.size()), paths.size());
+        for (int i = 0; i < paths.size(); i++) {
+            final HotPath<SampleNode> path = paths.get(i);
+            assertEquals(values.get(i), path.getValue(), 0);
+            assertEquals(values.get(i), attribute.evaluate(path.getNode()), 0);
+            final List<SampleNode> nodes = path.getNodes();
+            assertSame(tree.getRoot(), nodes.get(0));
+            assertSame(path.getNode(), nodes.get(nodes.size() - 1));
+            for (int n = 1; n < nodes.size(); n++) {
+                assertSame(nodes.get(n - 1), tree.getParent(nodes.get(n)));
+            }
+            assertEquals(SampleTrees.path(tree, path.getNode()), joined(path.getLabels()));
+        }
+    }
+
+    private static String joined(final List<Object> labels) {
+        final StringBuilder sb = new StringBuilder();
+        for (final Object label : labels) {
+            sb.append(sb.length() == 0 ? "" : "/").append(label);
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void findsTheHottestNodes() {
+        for (int seed = 0; seed < 30; seed++) {
+            final Random random = new Random(seed);
+            final NodeContextTree<SampleNode> tree = SampleTrees.random(random, 1 + random.nextInt(20000), 2 + random.nextInt(6));
+            final InclusiveLongAttribute inclusive = new InclusiveLongAttribute(tree, SampleTrees.SAMPLES);
+            inclusive.materialize();
+            for (final int k : new int[] {1, 5, 100, 100000}) {
+                assertHottest(tree, inclusive, k, HotPaths.find(tree, inclusive, k));
+                assertHottest(tree, SampleTrees.SAMPLES, k, HotPaths.find(tree, SampleTrees.SAMPLES, inclusive, k));
+            }
+        }
+    }
+
+    @Test
+    public void findsTheHottestNodesByDoubleValues() {
+        final NodeContextTree<SampleNode> tree = SampleTrees.random(new Random(1), 10000, 6);
+        final InclusiveLongAttribute inclusive = new InclusiveLongAttribute(tree, SampleTrees.SAMPLES);
+        inclusive.materialize();
+        final InclusiveDoubleAttribute inclusiveDouble = new InclusiveDoubleAttribute(tree, new LongToDouble(SampleTrees.SAMPLES));
+        final LongToDouble exclusiveDouble = new LongToDouble(SampleTrees.SAMPLES);
+        for (final int k : new int[] {1, 20, 20000}) {
+            assertHottest(tree, inclusive, k, HotPaths.find(tree, inclusiveDouble, k));
+            assertHottest(tree, SampleTrees.SAMPLES, k, HotPaths.find(tree, exclusiveDouble, inclusiveDouble, k));
+        }
+    }
+
+    @Test
+    public void findsHotPathsInDeepTrees() {
+        final NodeContextTree<SampleNode> tree = SampleTrees.chain(200000);
+        final InclusiveLongAttribute inclusive = new InclusiveLongAttribute(tree, SampleTrees.SAMPLES);
+        inclusive.materialize();
+        final List<HotPath<SampleNode>> paths = HotPaths.find(tree, SampleTrees.SAMPLES, inclusive, 3);
+        assertEquals(3, paths.size());
+        assertEquals(1, paths.get(0).getValue(), 0);
+        assertHottest(tree, inclusive, 10, HotPaths.find(tree, inclusive, 10));
+    }
+
+}
@@ -0,0 +1,81 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model.operations;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import ch.usi.inf.sape.trevis.model.ArrayIntContextTree;
+import ch.usi.inf.sape.trevis.model.IntContextTree;
+import ch.usi.inf.sape.trevis.model.LabelDictionary;
+
+public class IntContextTreeOperationsTest {
+
+    private static ArrayIntContextTree random(final Random random, final int size, final int labels, final LabelDictionary dictionary) {
+        final ArrayIntContextTree tree = new ArrayIntContextTree("random", "root", 16, dictionary);
+        for (int i = 1; i < size; i++) {
+            tree.getOrAddChild(random.nextInt(tree.size()), "f" + random.nextInt(labels));
+        }
+        return tree;
+    }
+
+    private static Set<String> paths(final IntContextTree tree) {
+        final TreeSet<String> paths = new TreeSet<String>();
+        addPaths(tree, tree.getRoot(), "", paths);
+        return paths;
+    }
+
+    private static void addPaths(final IntContextTree tree, final int node, final String parentPath, final Set<String> paths) {
+        final String path = parentPath + "/" + tree.getLabel(node);
+        paths.add(path);
+        for (int child = tree.getFirstChild(node); child != IntContextTree.NONE; child = tree.getNextSibling(child)) {
+            addPaths(tree, child, path, paths);
+        }
+    }
+
+    private static void check(final boolean sharedDictionary) {
+        for (int seed = 0; seed < 100; seed++) {
+            final Random random = new Random(seed);
+            final LabelDictionary dictionary = new LabelDictionary();
+            final ArrayIntContextTree a = random(random, 1 + random.nextInt(2000), 2 + random.nextInt(8), dictionary);
+            final ArrayIntContextTree b = random(random, 1 + random.nextInt(2000), 2 + random.nextInt(8),
+                    sharedDictionary ? dictionary : new LabelDictionary());
+            final Set<String> union = new TreeSet<String>(paths(a));
+            union.addAll(paths(b));
+            final Set<String> intersection = new TreeSet<String>(paths(a));
+            intersection.retainAll(paths(b));
+
+            final ArrayIntContextTree unionTree = IntContextTreeOperations.union(a, b);
+            assertEquals(union, paths(unionTree));
+            // no duplicate children
+            assertEquals(union.size(), unionTree.size());
+            final ArrayIntContextTree intersectionTree = IntContextTreeOperations.intersection(a, b);
+            assertEquals(intersection, paths(intersectionTree));
+            assertEquals(intersection.size(), intersectionTree.size());
+        }
+    }
+
+    @Test
+    public void mergesTreesSharingADictionary() {
+        check(true);
+    }
+
+    @Test
+    public void mergesTreesWithDifferentDictionaries() {
+        check(false);
+    }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model.operations;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import ch.usi.inf.sape.trevis.model.ContextTree;
+import ch.usi.inf.sape.trevis.model.ContextTreeNode;
+import ch.usi.inf.sape.trevis.model.NodeContextTree;
+import ch.usi.inf.sape.trevis.model.OffHeapContextTree;
+import ch.usi.inf.sape.trevis.model.SampleNode;
+import ch.usi.inf.sape.trevis.model.SampleTrees;
+
+public class InvertTest {
+
+    private final SampleNodeFactory factory = new SampleNodeFactory();
+
+    private static void add(final Map<String, Long> paths, final String path, final long value) {
+        final Long sum = paths.get(path);
+        paths.put(path, sum == null ? value : sum + value);
+    }
+
+    /**
+     * @return the path map of the inverted tree: each node with samples adds them to the path of the root, and to each prefix of the
+     *         path from the node up to the root, below the root
+     */
+    private static Map<String, Long> expected(final NodeContextTree<SampleNode> tree) {
+        final HashMap<String, Long> paths = new HashMap<String, Long>();
+        final String rootLabel = String.valueOf(tree.getRoot().getLabel());
+        for (final SampleNode node : SampleTrees.nodes(tree)) {
+            if (node.getSamples() > 0) {
+                String path = rootLabel;
+                add(paths, path, node.getSamples());
+                for (ContextTreeNode ancestor = node; ancestor != null; ancestor = ancestor.getParent()) {
+                    path += "/" + ancestor.getLabel();
+                    add(paths, path, node.getSamples());
+                }
+            }
+        }
+        if (paths.isEmpty()) {
+            paths.put(rootLabel, tree.getRoot().getSamples());
+        }
+        return paths;
+    }
+
+    @Test
+    public void invertsLikeTheDefinition() {
+        for (int seed = 0; seed < 20; seed++) {
+            final Random random = new Random(seed);
+            final NodeContextTree<SampleNode> tree = SampleTrees.random(random, 1 + random.nextInt(5000), 2 + random.nextInt(6));
+            final ContextTree<SampleNode> inverted = ContextTreeOperations.invert(tree, SampleTrees.SAMPLES, factory);
+            final Map<String, Long> expected = expected(tree);
+            assertEquals(expected, SampleTrees.paths(inverted, SampleTrees.SAMPLES));
+            assertEquals(expected.size(), SampleTrees.nodes(inverted).size());
+        }
+    }
+
+    @Test
+    public void invertsTreesWithoutSamples() {
+        final SampleNode root = new SampleNode("root", 0);
+        root.addChild(new SampleNode("m0", 0));
+        final ContextTree<SampleNode> inverted = ContextTreeOperations.invert(new NodeContextTree<SampleNode>("empty", root),
+                SampleTrees.SAMPLES, factory);
+        assertEquals(1, SampleTrees.nodes(inverted).size());
+        assertEquals("root", inverted.getLabel(inverted.getRoot()));
+    }
+
+    @Test
+    public void invertsOffHeapTrees() {
+        final NodeContextTree<SampleNode> tree = SampleTrees.random(new Random(2), 3000, 5);
+        final OffHeapContextTree offHeapTree = SampleTrees.offHeap(tree);
+        final OffHeapContextTree inverted = (OffHeapContextTree) ContextTreeOperations.invert(offHeapTree, offHeapTree.getLongAttribute(0),
+                new OffHeapContextTreeFactory("inverted"));
+        final Map<String, Long> expected = expected(tree);
+        assertEquals(expected, SampleTrees.paths(inverted, inverted.getLongAttribute(0)));
+        // the factory allocates only the output nodes in the inverted tree
+        assertEquals(expected.size(), inverted.size());
+    }
+
+    @Test
+    public void invertsDeepTrees() {
+        final ContextTree<SampleNode> inverted = ContextTreeOperations.invert(SampleTrees.chain(3000), SampleTrees.SAMPLES, factory);
+        assertEquals(3001, inverted.getRoot().getSamples());
+        // the longest inverted path goes from the last node of the chain up to its root
+        assertEquals(3002, inverted.getHeight(inverted.getRoot()));
+    }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model.operations;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import ch.usi.inf.sape.trevis.model.ContextTree;
+import ch.usi.inf.sape.trevis.model.NodeContextTree;
+import ch.usi.inf.sape.trevis.model.OffHeapContextTree;
+import ch.usi.inf.sape.trevis.model.SampleNode;
+import ch.usi.inf.sape.trevis.model.SampleTrees;
+
+public class KWayUnionTest {
+
+    private final SampleNodeFactory factory = new SampleNodeFactory();
+
+    @Test
+    public void unitesLikeTheFoldedPathMaps() {
+        for (int seed = 0; seed < 40; seed++) {
+            final Random random = new Random(seed);
+            final int k = 1 + random.nextInt(12);
+            final ArrayList<ContextTree<SampleNode>> trees = new ArrayList<ContextTree<SampleNode>>();
+            Map<String, Long> expected = null;
+            for (int i = 0; i < k; i++) {
+                final NodeContextTree<SampleNode> tree = SampleTrees.random(random, 1 + random.nextInt(2000), 2 + random.nextInt(6));
+                trees.add(tree);
+                final Map<String, Long> paths = SampleTrees.paths(tree, SampleTrees.SAMPLES);
+                expected = expected == null ? paths : PathMaps.union(expected, paths);
+            }
+            final ContextTree<SampleNode> union = ContextTreeOperations.union(trees, factory);
+            assertEquals(expected, SampleTrees.paths(union, SampleTrees.SAMPLES));
+        }
+    }
+
+    @Test
+    public void keepsTheChildOrderOfThePairwiseUnion() {
+        final Random random = new Random(3);
+        final NodeContextTree<SampleNode> a = SampleTrees.random(random, 3000, 6);
+        final NodeContextTree<SampleNode> b = SampleTrees.random(random, 3000, 6);
+        final ContextTree<SampleNode> pairwise = ContextTreeOperations.union(a, b, factory);
+        final List<ContextTree<SampleNode>> trees = new ArrayList<ContextTree<SampleNode>>();
+        trees.add(a);
+        trees.add(b);
+        final ContextTree<SampleNode> union = ContextTreeOperations.union(trees, factory);
+        final List<SampleNode> expected = SampleTrees.nodes(pairwise);
+        final List<SampleNode> nodes = SampleTrees.nodes(union);
+        assertEquals(expected.size(), nodes.size());
+        for (int i = 0; i < nodes.size(); i++) {
+            assertEquals(SampleTrees.path(pairwise, expected.get(i)), SampleTrees.path(union, nodes.get(i)));
+        }
+    }
+
+    @Test
+    public void unitesOffHeapTrees() {
+        final Random random = new Random(5);
+        final ArrayList<ContextTree<SampleNode>> trees = new ArrayList<ContextTree<SampleNode>>();
+        final ArrayList<ContextTree<OffHeapContextTree.Node>> offHeapTrees = new ArrayList<ContextTree<OffHeapContextTree.Node>>();
+        for (int i = 0; i < 7; i++) {
+            final NodeContextTree<SampleNode> tree = SampleTrees.random(random, 2000, 5);
+            trees.add(tree);
+            offHeapTrees.add(SampleTrees.offHeap(tree));
+        }
+        final OffHeapContextTree union = (OffHeapContextTree) ContextTreeOperations.union(offHeapTrees,
+                new OffHeapContextTreeFactory("union"));
+        assertEquals(SampleTrees.paths(ContextTreeOperations.union(trees, factory), SampleTrees.SAMPLES),
+                SampleTrees.paths(union, union.getLongAttribute(0)));
+    }
+
+    @Test
+    public void unitesDeepTrees() {
+        final ArrayList<ContextTree<SampleNode>> trees = new ArrayList<ContextTree<SampleNode>>();
+        for (int i = 0; i < 5; i++) {
+            trees.add(SampleTrees.chain(100000 + i));
+        }
+        final ContextTree<SampleNode> union = ContextTreeOperations.union(trees, factory);
+        assertEquals(100005, union.getHeight(union.getRoot()));
+    }
+
+}
@@ -0,0 +1,123 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model.operations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import ch.usi.inf.sape.trevis.model.ContextTree;
+import ch.usi.inf.sape.trevis.model.NodeContextTree;
+import ch.usi.inf.sape.trevis.model.OffHeapContextTree;
+import ch.usi.inf.sape.trevis.model.SampleNode;
+import ch.usi.inf.sape.trevis.model.SampleTrees;
+
+public class LazyMergedContextTreeTest {
+
+    /**
+     * A factory that counts the nodes it creates.
+     */
+    private static final class CountingFactory extends SampleNodeFactory {
+
+        private int created;
+
+        @Override
+        public SampleNode cloneNode(final SampleNode node) {
+            created++;
+            return super.cloneNode(node);
+        }
+
+        @Override
+        public SampleNode unionNodes(final SampleNode node1, final SampleNode node2) {
+            created++;
+            return super.unionNodes(node1, node2);
+        }
+
+    }
+
+    private final SampleNodeFactory factory = new SampleNodeFactory();
+
+    private static void assertSameTree(final ContextTree<SampleNode> expected, final ContextTree<SampleNode> tree) {
+        final List<SampleNode> expectedNodes = SampleTrees.nodes(expected);
+        final List<SampleNode> nodes = SampleTrees.nodes(tree);
+        assertEquals(expectedNodes.size(), nodes.size());
+        for (int i = 0; i < nodes.size(); i++) {
+            assertEquals(SampleTrees.path(expected, expectedNodes.get(i)), SampleTrees.path(tree, nodes.get(i)));
+            assertEquals(expectedNodes.get(i).getSamples(), nodes.get(i).getSamples());
+        }
+    }
+
+    @Test
+    public void viewsLookLikeTheMaterializedOperations() {
+        for (int seed = 0; seed < 30; seed++) {
+            final Random random = new Random(seed);
+            final NodeContextTree<SampleNode> a = SampleTrees.random(random, 1 + random.nextInt(3000), 2 + random.nextInt(6));
+            final NodeContextTree<SampleNode> b = SampleTrees.random(random, 1 + random.nextInt(3000), 2 + random.nextInt(6));
+            assertSameTree(ContextTreeOperations.union(a, b, factory), ContextTreeOperations.unionView(a, b, factory));
+            assertSameTree(ContextTreeOperations.intersection(a, b, factory), ContextTreeOperations.intersectionView(a, b, factory));
+            assertSameTree(ContextTreeOperations.subtract(a, b, factory), ContextTreeOperations.subtractView(a, b, factory));
+        }
+    }
+
+    @Test
+    public void navigatesConsistently() {
+        final Random random = new Random(1);
+        final NodeContextTree<SampleNode> a = SampleTrees.random(random, 3000, 6);
+        final NodeContextTree<SampleNode> b = SampleTrees.random(random, 3000, 6);
+        final LazyMergedContextTree<SampleNode> view = ContextTreeOperations.unionView(a, b, factory);
+        for (final SampleNode node : SampleTrees.nodes(view)) {
+            for (int i = 0; i < view.getChildCount(node); i++) {
+                final SampleNode child = view.getChild(node, i);
+                assertSame(node, view.getParent(child));
+                assertSame(child, view.getChild(node, view.getLabel(child)));
+                assertEquals(i, view.indexOfChild(node, child));
+                assertFalse(view.isRoot(child));
+            }
+        }
+        assertTrue(view.isRoot(view.getRoot()));
+        assertEquals(SampleTrees.paths(ContextTreeOperations.union(a, b, factory), SampleTrees.SAMPLES),
+                SampleTrees.paths(ContextTreeOperations.clone(view, factory), SampleTrees.SAMPLES));
+    }
+
+    @Test
+    public void onlyComputesTheChildrenThatAreAskedFor() {
+        final NodeContextTree<SampleNode> a = SampleTrees.random(new Random(3), 100000, 10);
+        final NodeContextTree<SampleNode> b = SampleTrees.random(new Random(4), 100000, 10);
+        final CountingFactory countingFactory = new CountingFactory();
+        final LazyMergedContextTree<SampleNode> view = ContextTreeOperations.unionView(a, b, countingFactory);
+        assertEquals(1, countingFactory.created);
+        assertFalse(view.isExpanded(view.getRoot()));
+        final int children = view.getChildCount(view.getRoot());
+        assertTrue(view.isExpanded(view.getRoot()));
+        assertEquals(1 + children, countingFactory.created);
+        assertFalse(view.isExpanded(view.getChild(view.getRoot(), 0)));
+    }
+
+    @Test
+    public void viewsOffHeapTrees() {
+        final Random random = new Random(5);
+        final NodeContextTree<SampleNode> a = SampleTrees.random(random, 2000, 5);
+        final NodeContextTree<SampleNode> b = SampleTrees.random(random, 2000, 5);
+        final OffHeapContextTreeFactory offHeapFactory = new OffHeapContextTreeFactory("view");
+        final LazyMergedContextTree<OffHeapContextTree.Node> view = ContextTreeOperations.intersectionView(SampleTrees.offHeap(a),
+                SampleTrees.offHeap(b), offHeapFactory);
+        final OffHeapContextTree intersection = (OffHeapContextTree) ContextTreeOperations.clone(view, offHeapFactory);
+        assertEquals(SampleTrees.paths(ContextTreeOperations.intersection(a, b, factory), SampleTrees.SAMPLES),
+                SampleTrees.paths(intersection, intersection.getLongAttribute(0)));
+    }
+
+}
@@ -0,0 +1,73 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model.operations;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import ch.usi.inf.sape.trevis.model.NodeContextTree;
+import ch.usi.inf.sape.trevis.model.OffHeapContextTree;
+import ch.usi.inf.sape.trevis.model.SampleNode;
+import ch.usi.inf.sape.trevis.model.SampleTrees;
+
+public class MergeIntoTest {
+
+    private final SampleNodeFactory factory = new SampleNodeFactory();
+
+    @Test
+    public void accumulatesLikeThePathMaps() {
+        for (int seed = 0; seed < 30; seed++) {
+            final Random random = new Random(seed);
+            final NodeContextTree<SampleNode> target = SampleTrees.random(random, 1 + random.nextInt(3000), 2 + random.nextInt(6));
+            final OffHeapContextTree offHeapTarget = SampleTrees.offHeap(target);
+            final OffHeapContextTreeFactory offHeapFactory = new OffHeapContextTreeFactory("target");
+            Map<String, Long> expected = SampleTrees.paths(target, SampleTrees.SAMPLES);
+            for (int i = 0; i < 4; i++) {
+                final NodeContextTree<SampleNode> source = SampleTrees.random(random, 1 + random.nextInt(3000), 2 + random.nextInt(6));
+                final Map<String, Long> sourcePaths = SampleTrees.paths(source, SampleTrees.SAMPLES);
+                expected = PathMaps.add(expected, sourcePaths);
+                ContextTreeOperations.mergeInto(target, source, factory);
+                ContextTreeOperations.mergeInto(offHeapTarget, SampleTrees.offHeap(source), offHeapFactory);
+                assertEquals(sourcePaths, SampleTrees.paths(source, SampleTrees.SAMPLES));
+            }
+            assertEquals(expected, SampleTrees.paths(target, SampleTrees.SAMPLES));
+            assertEquals(expected, SampleTrees.paths(offHeapTarget, offHeapTarget.getLongAttribute(0)));
+        }
+    }
+
+    @Test
+    public void copiesTheNodesMissingInTheTarget() {
+        final Random random = new Random(1);
+        final NodeContextTree<SampleNode> target = SampleTrees.random(random, 10, 2);
+        final NodeContextTree<SampleNode> source = SampleTrees.random(random, 2000, 6);
+        final Map<String, Long> sourcePaths = SampleTrees.paths(source, SampleTrees.SAMPLES);
+        ContextTreeOperations.mergeInto(target, source, factory);
+        // accumulating into the target again must not change the source, so the target must not share its nodes
+        ContextTreeOperations.mergeInto(target, source, factory);
+        assertEquals(sourcePaths, SampleTrees.paths(source, SampleTrees.SAMPLES));
+    }
+
+    @Test
+    public void accumulatesDeepTrees() {
+        final NodeContextTree<SampleNode> target = SampleTrees.chain(100000);
+        ContextTreeOperations.mergeInto(target, SampleTrees.chain(200000), factory);
+        ContextTreeOperations.mergeInto(target, SampleTrees.chain(150000), factory);
+        assertEquals(200001, target.getHeight(target.getRoot()));
+        assertEquals(3, target.getRoot().getSamples());
+        assertEquals(2, SampleTrees.nodes(target).get(150000).getSamples());
+        assertEquals(1, SampleTrees.nodes(target).get(150001).getSamples());
+    }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model.operations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import ch.usi.inf.sape.trevis.model.ContextTree;
+import ch.usi.inf.sape.trevis.model.FrozenContextTree;
+import ch.usi.inf.sape.trevis.model.NodeContextTree;
+import ch.usi.inf.sape.trevis.model.SampleNode;
+import ch.usi.inf.sape.trevis.model.SampleTrees;
+
+public class OrderedChildrenTest {
+
+    /**
+     * A factory that counts how often it sorts children.
+     */
+    private static final class CountingFactory extends SampleNodeFactory {
+
+        private int sorts;
+
+        @Override
+        public ArrayList<SampleNode> getOrderedChildren(final SampleNode node) {
+            sorts++;
+            return super.getOrderedChildren(node);
+        }
+
+    }
+
+    private final CountingFactory factory = new CountingFactory();
+
+    @Test
+    public void usesSortedFrozenTreesAsTheyAre() {
+        final NodeContextTree<SampleNode> tree = SampleTrees.random(new Random(1), 3000, 8);
+        final FrozenContextTree<SampleNode> sorted = ContextTreeOperations.freeze(tree, factory.getNodeComparator());
+        final OrderedChildren<SampleNode> children = new OrderedChildren<SampleNode>(sorted, factory);
+        assertTrue(children.isCanonical());
+        final Comparator<SampleNode> comparator = factory.getNodeComparator();
+        for (final SampleNode node : SampleTrees.nodes(sorted)) {
+            final List<SampleNode> list = children.get(node);
+            for (int i = 1; i < list.size(); i++) {
+                assertTrue(comparator.compare(list.get(i - 1), list.get(i)) < 0);
+            }
+            assertEquals(factory.getOrderedChildren(node), list);
+        }
+        assertFalse(new OrderedChildren<SampleNode>(tree, factory).isCanonical());
+        assertFalse(new OrderedChildren<SampleNode>(ContextTreeOperations.freeze(tree), factory).isCanonical());
+    }
+
+    @Test
+    public void mergesSortedFrozenTreesWithoutSorting() {
+        for (int seed = 0; seed < 20; seed++) {
+            final Random random = new Random(seed);
+            final NodeContextTree<SampleNode> a = SampleTrees.random(random, 1 + random.nextInt(3000), 2 + random.nextInt(6));
+            final NodeContextTree<SampleNode> b = SampleTrees.random(random, 1 + random.nextInt(3000), 2 + random.nextInt(6));
+            final FrozenContextTree<SampleNode> sortedA = ContextTreeOperations.freeze(a, factory.getNodeComparator());
+            final FrozenContextTree<SampleNode> sortedB = ContextTreeOperations.freeze(b, factory.getNodeComparator());
+            factory.sorts = 0;
+            final ContextTree<SampleNode> union = ContextTreeOperations.union(sortedA, sortedB, factory);
+            final ContextTree<SampleNode> intersection = ContextTreeOperations.intersection(sortedA, sortedB, factory);
+            final ContextTree<SampleNode> difference = ContextTreeOperations.subtract(sortedA, sortedB, factory);
+            final ContextTree<SampleNode> kWayUnion = ContextTreeOperations.union(Arrays.<ContextTree<SampleNode>>asList(sortedA, sortedB,
+                    sortedA), factory);
+            assertEquals(0, factory.sorts);
+            assertEquals(SampleTrees.paths(ContextTreeOperations.union(a, b, factory), SampleTrees.SAMPLES),
+                    SampleTrees.paths(union, SampleTrees.SAMPLES));
+            assertEquals(SampleTrees.paths(ContextTreeOperations.intersection(a, b, factory), SampleTrees.SAMPLES),
+                    SampleTrees.paths(intersection, SampleTrees.SAMPLES));
+            assertEquals(SampleTrees.paths(ContextTreeOperations.subtract(a, b, factory), SampleTrees.SAMPLES),
+                    SampleTrees.paths(difference, SampleTrees.SAMPLES));
+            assertEquals(SampleTrees.paths(union, SampleTrees.SAMPLES), SampleTrees.paths(kWayUnion, SampleTrees.SAMPLES));
+        }
+    }
+
+}
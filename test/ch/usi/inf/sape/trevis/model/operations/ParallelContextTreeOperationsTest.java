@@ -0,0 +1,96 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model.operations;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import ch.usi.inf.sape.trevis.model.ContextTree;
+import ch.usi.inf.sape.trevis.model.NodeContextTree;
+import ch.usi.inf.sape.trevis.model.OffHeapContextTree;
+import ch.usi.inf.sape.trevis.model.SampleNode;
+import ch.usi.inf.sape.trevis.model.SampleTrees;
+import ch.usi.inf.sape.trevis.model.attribute.LongAttribute;
+
+public class ParallelContextTreeOperationsTest {
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    @AfterClass
+    public static void shutdownPool() {
+        POOL.shutdown();
+    }
+
+    /**
+     * @return the label paths and values of all nodes, in pre-order (so the order of children matters)
+     */
+    private static <T> List<String> exact(final ContextTree<T> tree, final LongAttribute attribute) {
+        final ArrayList<String> nodes = new ArrayList<String>();
+        for (final T node : SampleTrees.nodes(tree)) {
+            nodes.add(SampleTrees.path(tree, node) + "=" + attribute.evaluate(node));
+        }
+        return nodes;
+    }
+
+    @Test
+    public void mergesLikeTheSequentialOperations() {
+        for (int seed = 0; seed < 20; seed++) {
+            final Random random = new Random(seed);
+            final NodeContextTree<SampleNode> a = SampleTrees.random(random, 1 + random.nextInt(20000), 2 + random.nextInt(8));
+            final NodeContextTree<SampleNode> b = SampleTrees.random(random, 1 + random.nextInt(20000), 2 + random.nextInt(8));
+            final ContextTree<SampleNode> inputA = seed % 2 == 0 ? a : ContextTreeOperations.freeze(a);
+            final SampleNodeFactory factory = new SampleNodeFactory();
+            for (final int threshold : new int[] {1, 7, 100, ParallelContextTreeOperations.DEFAULT_THRESHOLD}) {
+                assertEquals(exact(ContextTreeOperations.union(inputA, b, factory), SampleTrees.SAMPLES),
+                        exact(ParallelContextTreeOperations.union(inputA, b, factory, POOL, threshold), SampleTrees.SAMPLES));
+                assertEquals(exact(ContextTreeOperations.intersection(inputA, b, factory), SampleTrees.SAMPLES),
+                        exact(ParallelContextTreeOperations.intersection(inputA, b, factory, POOL, threshold), SampleTrees.SAMPLES));
+                assertEquals(exact(ContextTreeOperations.subtract(inputA, b, factory), SampleTrees.SAMPLES),
+                        exact(ParallelContextTreeOperations.subtract(inputA, b, factory, POOL, threshold), SampleTrees.SAMPLES));
+            }
+        }
+    }
+
+    @Test
+    public void mergesDeepTrees() {
+        // a caterpillar: a deep chain with a leaf hanging off each node
+        final NodeContextTree<SampleNode> a = SampleTrees.chain(100000);
+        for (SampleNode node = a.getRoot(); node.getChildCount() > 0; node = (SampleNode) node.getChild(0)) {
+            node.addChild(new SampleNode("leaf", 1));
+        }
+        final NodeContextTree<SampleNode> b = SampleTrees.chain(100000);
+        final SampleNodeFactory factory = new SampleNodeFactory();
+        final ContextTree<SampleNode> parallel = ParallelContextTreeOperations.union(a, b, factory, POOL, 1);
+        final ContextTree<SampleNode> sequential = ContextTreeOperations.union(a, b, factory);
+        assertEquals(SampleTrees.nodes(sequential).size(), SampleTrees.nodes(parallel).size());
+        assertEquals(sequential.getHeight(sequential.getRoot()), parallel.getHeight(parallel.getRoot()));
+    }
+
+    @Test
+    public void fallsBackToTheSequentialMergeForFactoriesThatArentThreadSafe() {
+        final Random random = new Random(1);
+        final NodeContextTree<SampleNode> a = SampleTrees.random(random, 40000, 5);
+        final NodeContextTree<SampleNode> b = SampleTrees.random(random, 40000, 5);
+        final OffHeapContextTreeFactory factory = new OffHeapContextTreeFactory("parallel");
+        final OffHeapContextTree union = (OffHeapContextTree) ParallelContextTreeOperations.union(SampleTrees.offHeap(a),
+                SampleTrees.offHeap(b), factory, POOL, 100);
+        assertEquals(SampleTrees.paths(ContextTreeOperations.union(a, b, new SampleNodeFactory()), SampleTrees.SAMPLES),
+                SampleTrees.paths(union, union.getLongAttribute(0)));
+    }
+
+}
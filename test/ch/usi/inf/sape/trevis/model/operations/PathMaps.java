@@ -0,0 +1,69 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model.operations;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The tree operations on the path maps of trees (as returned by SampleTrees.paths), with the semantics of SampleNodeFactory. This is
+ * what the operations compute, in its simplest form, for the differential tests to compare against.
+ */
+final class PathMaps {
+
+    private PathMaps() {
+    }
+
+    static Map<String, Long> union(final Map<String, Long> a, final Map<String, Long> b) {
+        final HashMap<String, Long> union = new HashMap<String, Long>(a);
+        for (final Map.Entry<String, Long> entry : b.entrySet()) {
+            final Long aValue = a.get(entry.getKey());
+            union.put(entry.getKey(), aValue == null ? entry.getValue() : Math.max(aValue, entry.getValue()));
+        }
+        return union;
+    }
+
+    static Map<String, Long> intersection(final Map<String, Long> a, final Map<String, Long> b) {
+        final HashMap<String, Long> intersection = new HashMap<String, Long>();
+        for (final Map.Entry<String, Long> entry : a.entrySet()) {
+            final Long bValue = b.get(entry.getKey());
+            if (bValue != null) {
+                intersection.put(entry.getKey(), Math.min(entry.getValue(), bValue));
+            }
+        }
+        return intersection;
+    }
+
+    static Map<String, Long> subtract(final Map<String, Long> a, final Map<String, Long> b) {
+        final HashMap<String, Long> difference = new HashMap<String, Long>();
+        for (final Map.Entry<String, Long> entry : a.entrySet()) {
+            final Long bValue = b.get(entry.getKey());
+            difference.put(entry.getKey(), bValue == null ? entry.getValue() : Math.max(0, entry.getValue() - bValue));
+        }
+        return difference;
+    }
+
+    /**
+     * @return the sums of the values of each path in all given maps
+     */
+    @SafeVarargs
+    static Map<String, Long> add(final Map<String, Long>... maps) {
+        final HashMap<String, Long> sum = new HashMap<String, Long>();
+        for (final Map<String, Long> map : maps) {
+            for (final Map.Entry<String, Long> entry : map.entrySet()) {
+                final Long value = sum.get(entry.getKey());
+                sum.put(entry.getKey(), value == null ? entry.getValue() : value + entry.getValue());
+            }
+        }
+        return sum;
+    }
+
+}
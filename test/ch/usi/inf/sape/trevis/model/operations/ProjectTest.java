@@ -0,0 +1,164 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model.operations;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import ch.usi.inf.sape.trevis.model.ContextTree;
+import ch.usi.inf.sape.trevis.model.NodeContextTree;
+import ch.usi.inf.sape.trevis.model.OffHeapContextTree;
+import ch.usi.inf.sape.trevis.model.SampleNode;
+import ch.usi.inf.sape.trevis.model.SampleTrees;
+import ch.usi.inf.sape.trevis.model.attribute.StringAttribute;
+
+public class ProjectTest {
+
+    private final SampleNodeFactory factory = new SampleNodeFactory();
+
+    /**
+     * @return a mapping of the labels of the given tree: "root" stays "root", "m3" maps to null, and "m<i>" maps to "g<i % 3>"
+     */
+    private static <T> StringAttribute groups(final ContextTree<T> tree) {
+        return new StringAttribute() {
+
+            public String getName() {
+                return "Group";
+            }
+
+            public String getDescription() {
+                return "Group";
+            }
+
+            public String evaluate(final Object node) {
+                @SuppressWarnings("unchecked")
+                final String label = String.valueOf(tree.getLabel((T) node));
+                if (label.equals("root")) {
+                    return label;
+                } else if (label.equals("m3")) {
+                    return null;
+                } else {
+                    return "g" + Integer.parseInt(label.substring(1)) % 3;
+                }
+            }
+
+        };
+    }
+
+    /**
+     * The path map of the projected tree, computed recursively from its definition.
+     */
+    private static void project(final SampleNode node, final StringAttribute mapping, final String parentPath, final String parentLabel,
+            final Map<String, Long> paths) {
+        final String mapped = mapping.evaluate(node);
+        final String path;
+        final String label;
+        if (parentLabel == null) {
+            label = mapped == null ? String.valueOf(node.getLabel()) : mapped;
+            path = label;
+        } else if (mapped == null || mapped.equals(parentLabel)) {
+            label = parentLabel;
+            path = parentPath;
+        } else {
+            label = mapped;
+            path = parentPath + "/" + mapped;
+        }
+        final Long value = paths.get(path);
+        paths.put(path, value == null ? node.getSamples() : value + node.getSamples());
+        for (final Object child : node.getChildren()) {
+            project((SampleNode) child, mapping, path, label, paths);
+        }
+    }
+
+    private static Map<String, Long> expected(final NodeContextTree<SampleNode> tree, final StringAttribute mapping) {
+        final HashMap<String, Long> paths = new HashMap<String, Long>();
+        project(tree.getRoot(), mapping, null, null, paths);
+        return paths;
+    }
+
+    @Test
+    public void projectsLikeTheDefinition() {
+        for (int seed = 0; seed < 20; seed++) {
+            final Random random = new Random(seed);
+            final NodeContextTree<SampleNode> tree = SampleTrees.random(random, 1 + random.nextInt(5000), 2 + random.nextInt(6));
+            final StringAttribute mapping = groups(tree);
+            final Map<String, Long> expected = expected(tree, mapping);
+            final ContextTree<SampleNode> projected = ContextTreeOperations.project(tree, mapping, factory);
+            assertEquals(expected, SampleTrees.paths(projected, SampleTrees.SAMPLES));
+            // siblings with the same label are merged, so each path is a single node
+            assertEquals(expected.size(), SampleTrees.nodes(projected).size());
+        }
+    }
+
+    @Test
+    public void projectingWithTheLabelsCopiesTheTree() {
+        final NodeContextTree<SampleNode> tree = SampleTrees.random(new Random(1), 3000, 6);
+        final StringAttribute labels = new StringAttribute() {
+
+            public String getName() {
+                return "Label";
+            }
+
+            public String getDescription() {
+                return "Label";
+            }
+
+            public String evaluate(final Object node) {
+                return String.valueOf(((SampleNode) node).getLabel());
+            }
+
+        };
+        final ContextTree<SampleNode> projected = ContextTreeOperations.project(tree, labels, factory);
+        assertEquals(expected(tree, labels), SampleTrees.paths(projected, SampleTrees.SAMPLES));
+    }
+
+    @Test
+    public void projectsOffHeapTrees() {
+        final NodeContextTree<SampleNode> tree = SampleTrees.random(new Random(2), 3000, 5);
+        final OffHeapContextTree offHeapTree = SampleTrees.offHeap(tree);
+        final OffHeapContextTree projected = (OffHeapContextTree) ContextTreeOperations.project(offHeapTree, groups(offHeapTree),
+                new OffHeapContextTreeFactory("projected"));
+        final Map<String, Long> expected = expected(tree, groups(tree));
+        assertEquals(expected, SampleTrees.paths(projected, projected.getLongAttribute(0)));
+        // the factory allocates only the output nodes in the projected tree
+        assertEquals(expected.size(), projected.size());
+    }
+
+    @Test
+    public void projectsDeepTrees() {
+        // the labels of the chain are f0, f1, f2, f0, ..., and all of them map to the same group
+        final NodeContextTree<SampleNode> tree = SampleTrees.chain(200000);
+        final StringAttribute oneGroup = new StringAttribute() {
+
+            public String getName() {
+                return "Group";
+            }
+
+            public String getDescription() {
+                return "Group";
+            }
+
+            public String evaluate(final Object node) {
+                return node == tree.getRoot() ? "root" : "f";
+            }
+
+        };
+        final ContextTree<SampleNode> projected = ContextTreeOperations.project(tree, oneGroup, factory);
+        assertEquals(2, SampleTrees.nodes(projected).size());
+        assertEquals(200000, projected.getChild(projected.getRoot(), 0).getSamples());
+    }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model.operations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import ch.usi.inf.sape.trevis.model.ContextTree;
+import ch.usi.inf.sape.trevis.model.NodeContextTree;
+import ch.usi.inf.sape.trevis.model.OffHeapContextTree;
+import ch.usi.inf.sape.trevis.model.SampleNode;
+import ch.usi.inf.sape.trevis.model.SampleTrees;
+import ch.usi.inf.sape.trevis.model.attribute.InclusiveLongAttribute;
+
+public class PruneTest {
+
+    private final SampleNodeFactory factory = new SampleNodeFactory();
+
+    /**
+     * The path map of the pruned tree, computed recursively from its definition.
+     */
+    private static void prune(final SampleNode node, final String path, final InclusiveLongAttribute inclusive, final long threshold,
+            final Object otherLabel, final Map<String, Long> paths) {
+        long dropped = 0;
+        boolean anyDropped = false;
+        for (final Object child : node.getChildren()) {
+            final SampleNode sampleNode = (SampleNode) child;
+            if (inclusive.evaluate(sampleNode) >= threshold) {
+                prune(sampleNode, path + "/" + sampleNode.getLabel(), inclusive, threshold, otherLabel, paths);
+            } else {
+                dropped += inclusive.evaluate(sampleNode);
+                anyDropped = true;
+            }
+        }
+        if (otherLabel == null) {
+            paths.put(path, node.getSamples() + dropped);
+        } else {
+            paths.put(path, node.getSamples());
+            if (anyDropped) {
+                paths.put(path + "/" + otherLabel, dropped);
+            }
+        }
+    }
+
+    private static Map<String, Long> expected(final NodeContextTree<SampleNode> tree, final InclusiveLongAttribute inclusive,
+            final long threshold, final Object otherLabel) {
+        final HashMap<String, Long> paths = new HashMap<String, Long>();
+        prune(tree.getRoot(), String.valueOf(tree.getRoot().getLabel()), inclusive, threshold, otherLabel, paths);
+        return paths;
+    }
+
+    @Test
+    public void prunesLikeTheDefinition() {
+        for (int seed = 0; seed < 20; seed++) {
+            final Random random = new Random(seed);
+            final NodeContextTree<SampleNode> tree = SampleTrees.random(random, 1 + random.nextInt(20000), 2 + random.nextInt(6));
+            final InclusiveLongAttribute inclusive = new InclusiveLongAttribute(tree, SampleTrees.SAMPLES);
+            final long total = inclusive.evaluate(tree.getRoot());
+            for (final long threshold : new long[] {0, 1, 50, total / 100, total + 1}) {
+                assertEquals(expected(tree, inclusive, threshold, null),
+                        SampleTrees.paths(ContextTreeOperations.pruneAbsolute(tree, inclusive, threshold, factory), SampleTrees.SAMPLES));
+                assertEquals(expected(tree, inclusive, threshold, "<other>"), SampleTrees.paths(
+                        ContextTreeOperations.pruneAbsolute(tree, inclusive, threshold, "<other>", factory), SampleTrees.SAMPLES));
+            }
+            final long threshold = (long) Math.ceil(0.01 * total);
+            assertEquals(expected(tree, inclusive, threshold, "<other>"), SampleTrees.paths(
+                    ContextTreeOperations.pruneRelative(tree, inclusive, 0.01, "<other>", factory), SampleTrees.SAMPLES));
+            // pruning keeps the inclusive value of the root
+            final ContextTree<SampleNode> pruned = ContextTreeOperations.pruneRelative(tree, inclusive, 0.01, factory);
+            assertEquals(total, new InclusiveLongAttribute(pruned, SampleTrees.SAMPLES).evaluate(pruned.getRoot()));
+            assertFalse(inclusive.isMaterialized());
+        }
+    }
+
+    @Test
+    public void prunesOffHeapTrees() {
+        final NodeContextTree<SampleNode> tree = SampleTrees.random(new Random(9), 5000, 4);
+        final InclusiveLongAttribute inclusive = new InclusiveLongAttribute(tree, SampleTrees.SAMPLES);
+        final OffHeapContextTree offHeapTree = SampleTrees.offHeap(tree);
+        final InclusiveLongAttribute offHeapInclusive = new InclusiveLongAttribute(offHeapTree, offHeapTree.getLongAttribute(0));
+        final OffHeapContextTree pruned = (OffHeapContextTree) ContextTreeOperations.pruneAbsolute(offHeapTree, offHeapInclusive, 50L,
+                "<other>", new OffHeapContextTreeFactory("pruned"));
+        assertEquals(expected(tree, inclusive, 50, "<other>"), SampleTrees.paths(pruned, pruned.getLongAttribute(0)));
+    }
+
+    @Test
+    public void prunesDeepTrees() {
+        final NodeContextTree<SampleNode> tree = SampleTrees.chain(200000);
+        final InclusiveLongAttribute inclusive = new InclusiveLongAttribute(tree, SampleTrees.SAMPLES);
+        final ContextTree<SampleNode> pruned = ContextTreeOperations.pruneAbsolute(tree, inclusive, 100000, factory);
+        assertEquals(100002, pruned.getHeight(pruned.getRoot()));
+        assertEquals(100000, SampleTrees.nodes(pruned).get(100001).getSamples());
+    }
+
+}
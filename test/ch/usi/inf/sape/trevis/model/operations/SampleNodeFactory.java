@@ -0,0 +1,98 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model.operations;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+
+import ch.usi.inf.sape.trevis.model.ContextTree;
+import ch.usi.inf.sape.trevis.model.ContextTreeNode;
+import ch.usi.inf.sape.trevis.model.NodeContextTree;
+import ch.usi.inf.sape.trevis.model.SampleNode;
+
+/**
+ * The factory for trees of SampleNodes. It combines samples the way OffHeapContextTreeFactory combines its long columns: union takes
+ * the maximum, intersection the minimum, addition the sum, and subtraction the difference (but at least 0).
+ */
+public class SampleNodeFactory implements AccumulatingContextTreeFactory<SampleNode> {
+
+    private static final Comparator<SampleNode> COMPARATOR = new Comparator<SampleNode>() {
+        public int compare(final SampleNode node1, final SampleNode node2) {
+            return String.valueOf(node1.getLabel()).compareTo(String.valueOf(node2.getLabel()));
+        }
+    };
+
+    public ContextTree<SampleNode> createTree(final SampleNode root) {
+        return new NodeContextTree<SampleNode>("result", root);
+    }
+
+    public SampleNode cloneNode(final SampleNode node) {
+        return new SampleNode(node.getLabel(), node.getSamples());
+    }
+
+    public void connectParentAndChild(final SampleNode parent, final SampleNode child) {
+        parent.addChild(child);
+    }
+
+    public SampleNode unionNodes(final SampleNode node1, final SampleNode node2) {
+        return new SampleNode(node1.getLabel(), Math.max(node1.getSamples(), node2.getSamples()));
+    }
+
+    public SampleNode intersectNodes(final SampleNode node1, final SampleNode node2) {
+        return new SampleNode(node1.getLabel(), Math.min(node1.getSamples(), node2.getSamples()));
+    }
+
+    public SampleNode addNodes(final SampleNode node1, final SampleNode node2) {
+        return new SampleNode(node1.getLabel(), node1.getSamples() + node2.getSamples());
+    }
+
+    public SampleNode subtractNodes(final SampleNode node1, final SampleNode node2) {
+        return new SampleNode(node1.getLabel(), Math.max(0, node1.getSamples() - node2.getSamples()));
+    }
+
+    public void accumulateInto(final SampleNode targetNode, final SampleNode sourceNode) {
+        targetNode.setSamples(targetNode.getSamples() + sourceNode.getSamples());
+    }
+
+    public SampleNode relabelNode(final SampleNode node, final Object label) {
+        return new SampleNode(label, node.getSamples());
+    }
+
+    public SampleNode createNode(final Object label) {
+        return new SampleNode(label, 0);
+    }
+
+    public ArrayList<SampleNode> getOrderedChildren(final SampleNode node) {
+        final ArrayList<SampleNode> children = new ArrayList<SampleNode>(node.getChildCount());
+        for (final ContextTreeNode child : node.getChildren()) {
+            children.add((SampleNode) child);
+        }
+        Collections.sort(children, COMPARATOR);
+        return children;
+    }
+
+    public Comparator<SampleNode> getNodeComparator() {
+        return COMPARATOR;
+    }
+
+    public boolean isComparatorConsistentWithLabels() {
+        return true;
+    }
+
+    /**
+     * Each created node is a new object, and each node only gets children from the thread that created it.
+     */
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+}
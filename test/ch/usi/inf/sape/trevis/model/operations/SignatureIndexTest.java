@@ -0,0 +1,90 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model.operations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import ch.usi.inf.sape.trevis.model.SampleTrees;
+
+public class SignatureIndexTest {
+
+    private static String pair(final Object first, final Object second) {
+        return "(" + first + ", " + second + ")";
+    }
+
+    @Test
+    public void findsTheSimilarPairs() {
+        final Random random = new Random(1);
+        final SignatureIndex<Integer> index = new SignatureIndex<Integer>(32, 4);
+        final ArrayList<TreeSignature> signatures = new ArrayList<TreeSignature>();
+        for (int i = 0; i < 30; i++) {
+            final TreeSignature signature = TreeSignature.compute(SampleTrees.random(random, 200 + random.nextInt(3000), 2 + random
+                    .nextInt(4)), 128);
+            signatures.add(signature);
+            index.add(i, signature);
+        }
+        index.add(99, signatures.get(3));
+        assertEquals(31, index.size());
+        assertSame(signatures.get(3), index.getSignature(3));
+        assertNull(index.getSignature(100));
+        // identical trees always share all buckets
+        assertTrue(index.getCandidates(signatures.get(3)).contains(3));
+        assertTrue(index.getCandidates(signatures.get(3)).contains(99));
+        final HashSet<String> similar = new HashSet<String>();
+        for (final SignatureIndex.Pair<Integer> pair : index.getSimilarPairs(0.9)) {
+            similar.add(pair.toString());
+        }
+        assertTrue(similar.contains(pair(3, 99)));
+        // the similar pairs are the candidate pairs with a high enough estimated similarity, each pair once
+        final HashSet<String> expected = new HashSet<String>();
+        final List<SignatureIndex.Pair<Integer>> candidates = index.getCandidatePairs();
+        for (final SignatureIndex.Pair<Integer> pair : candidates) {
+            assertTrue(pair.getFirst() < pair.getSecond());
+            if (index.getSignature(pair.getFirst()).similarity(index.getSignature(pair.getSecond())) >= 0.9) {
+                expected.add(pair.toString());
+            }
+        }
+        assertEquals(candidates.size(), new HashSet<String>(toStrings(candidates)).size());
+        assertEquals(expected, similar);
+    }
+
+    private static List<String> toStrings(final List<SignatureIndex.Pair<Integer>> pairs) {
+        final ArrayList<String> strings = new ArrayList<String>();
+        for (final SignatureIndex.Pair<Integer> pair : pairs) {
+            strings.add(pair.toString());
+        }
+        return strings;
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsDuplicateKeys() {
+        final SignatureIndex<String> index = new SignatureIndex<String>(4, 2);
+        final TreeSignature signature = TreeSignature.compute(SampleTrees.chain(10), 8);
+        index.add("a", signature);
+        index.add("a", signature);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsSignaturesOfTheWrongSize() {
+        new SignatureIndex<String>(4, 2).add("a", TreeSignature.compute(SampleTrees.chain(10), 16));
+    }
+
+}
@@ -0,0 +1,84 @@
+/*
+ * This file is licensed to You under the "Simplified BSD License".
+ * You may not use this software except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ *
+ * See the COPYRIGHT file distributed with this work for information
+ * regarding copyright ownership.
+ */
+package ch.usi.inf.sape.trevis.model.operations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import ch.usi.inf.sape.trevis.model.ContextTree;
+import ch.usi.inf.sape.trevis.model.NodeContextTree;
+import ch.usi.inf.sape.trevis.model.SampleNode;
+import ch.usi.inf.sape.trevis.model.SampleTrees;
+
+public class TreeSignatureTest {
+
+    private static final int SIZE = 512;
+
+    private final SampleNodeFactory factory = new SampleNodeFactory();
+
+    @Test
+    public void estimatesTheSimilarityOfTheTrees() {
+        for (int seed = 0; seed < 30; seed++) {
+            final Random random = new Random(seed);
+            final NodeContextTree<SampleNode> a = SampleTrees.random(random, 200 + random.nextInt(3000), 2 + random.nextInt(4));
+            final NodeContextTree<SampleNode> b = SampleTrees.random(random, 1 + random.nextInt(3000), 2 + random.nextInt(4));
+            // c contains all of a and some more (for similarities between 0 and 1), or is unrelated to a (for similarities near 0)
+            final ContextTree<SampleNode> c = seed % 2 == 0 ? ContextTreeOperations.union(a, b, factory) : b;
+            // with 512 values, the standard error is at most 0.022
+            assertEquals(ContextTreeSimilarity.jaccard(a, c, factory),
+                    TreeSignature.compute(a, SIZE).similarity(TreeSignature.compute(c, SIZE)), 0.1);
+            assertEquals(ContextTreeSimilarity.weightedJaccard(a, c, SampleTrees.SAMPLES, factory), TreeSignature.compute(a,
+                    SampleTrees.SAMPLES, SIZE).similarity(TreeSignature.compute(c, SampleTrees.SAMPLES, SIZE)), 0.1);
+        }
+    }
+
+    @Test
+    public void dependsOnlyOnThePathsAndWeights() {
+        final NodeContextTree<SampleNode> tree = SampleTrees.random(new Random(1), 3000, 5);
+        final TreeSignature signature = TreeSignature.compute(tree, SIZE);
+        final TreeSignature weighted = TreeSignature.compute(tree, SampleTrees.SAMPLES, SIZE);
+        assertEquals(SIZE, signature.getSize());
+        assertFalse(signature.isWeighted());
+        assertTrue(weighted.isWeighted());
+        assertEquals(1.0, signature.similarity(TreeSignature.compute(tree, SIZE)), 0);
+        // a copy with differently ordered children has the same signatures
+        final ContextTree<SampleNode> sorted = ContextTreeOperations.freeze(tree, factory.getNodeComparator());
+        assertEquals(signature, TreeSignature.compute(sorted, SIZE));
+        assertEquals(weighted, TreeSignature.compute(sorted, SampleTrees.SAMPLES, SIZE));
+        assertEquals(signature.hashCode(), TreeSignature.compute(sorted, SIZE).hashCode());
+        assertFalse(signature.equals(weighted));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsSignaturesOfDifferentSizes() {
+        final NodeContextTree<SampleNode> tree = SampleTrees.random(new Random(2), 100, 4);
+        TreeSignature.compute(tree, 64).similarity(TreeSignature.compute(tree, 128));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsWeightedAndUnweightedSignatures() {
+        final NodeContextTree<SampleNode> tree = SampleTrees.random(new Random(2), 100, 4);
+        TreeSignature.compute(tree, 64).similarity(TreeSignature.compute(tree, SampleTrees.SAMPLES, 64));
+    }
+
+    @Test
+    public void signsDeepTrees() {
+        final TreeSignature a = TreeSignature.compute(SampleTrees.chain(200000), 256);
+        final TreeSignature b = TreeSignature.compute(SampleTrees.chain(100000), 256);
+        assertEquals(100001.0 / 200001, a.similarity(b), 0.1);
+    }
+
+}